@@ -1,6 +1,8 @@
 package nl.nn.workshop;
 
 import javax.transaction.Transactional;
+import nl.nn.workshop.repository.memory.InMemoryDatabase;
+import org.junit.jupiter.api.AfterEach;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -8,6 +10,7 @@ import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.MethodMode;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ActiveProfilesResolver;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
@@ -16,13 +19,19 @@ import org.testcontainers.containers.PostgreSQLContainer;
 @Transactional
 @DirtiesContext(methodMode = MethodMode.AFTER_METHOD)
 @SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
-@ActiveProfiles("integration-test")
+@ActiveProfiles(resolver = AbstractIntegrationTest.StorageProfilesResolver.class)
 @AutoConfigureMockMvc
 public abstract class AbstractIntegrationTest extends AbstractTest {
 
+  // -Dworkshop.storage=memory runs the suite against the in-memory storage engine instead of postgres
+  protected static final boolean IN_MEMORY = "memory".equals(System.getProperty("workshop.storage"));
+
   @Autowired
   protected MockMvc mvc;
 
+  @Autowired(required = false)
+  private InMemoryDatabase inMemoryDatabase;
+
   public static PostgreSQLContainer<?> container =
       new PostgreSQLContainer<>("postgres:13.4")
           .withUsername("workshop")
@@ -30,11 +39,16 @@ public abstract class AbstractIntegrationTest extends AbstractTest {
           .withDatabaseName("workshop");
 
   static {
-    container.start();
+    if (!IN_MEMORY) {
+      container.start();
+    }
   }
 
   @DynamicPropertySource
   static void exportPostgresProperties(DynamicPropertyRegistry registry) {
+    if (IN_MEMORY) {
+      return;
+    }
     container.addParameter("autoReconnect", "true");
     container.addParameter("useSSL", "false");
     registry.add("spring.datasource.url", container::getJdbcUrl);
@@ -42,4 +56,21 @@ public abstract class AbstractIntegrationTest extends AbstractTest {
     registry.add("spring.datasource.password", container::getPassword);
   }
 
+  // the in-memory engine has nothing to roll back, so the test transaction can not undo what a test wrote
+  @AfterEach
+  void clearInMemoryDatabase() {
+    if (inMemoryDatabase != null) {
+      inMemoryDatabase.clear();
+    }
+  }
+
+  public static class StorageProfilesResolver implements ActiveProfilesResolver {
+
+    @Override
+    public String[] resolve(Class<?> testClass) {
+      return IN_MEMORY ? new String[] {"integration-test", "memory"} : new String[] {"integration-test"};
+    }
+
+  }
+
 }
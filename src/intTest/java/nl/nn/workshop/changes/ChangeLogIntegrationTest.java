@@ -0,0 +1,141 @@
+package nl.nn.workshop.changes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import javax.transaction.Transactional;
+import javax.transaction.Transactional.TxType;
+import nl.nn.workshop.AbstractIntegrationTest;
+import nl.nn.workshop.model.Change;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.repository.ChangeRepository;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.CreateStudentRequestResource;
+import nl.nn.workshop.resource.UpdateStudentRequestResource;
+import nl.nn.workshop.service.CourseService;
+import nl.nn.workshop.service.EnrollmentService;
+import nl.nn.workshop.service.StudentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+
+// runs without the test transaction, changes are only numbered when they commit
+@Transactional(TxType.NOT_SUPPORTED)
+public class ChangeLogIntegrationTest extends AbstractIntegrationTest {
+
+  @Autowired
+  private StudentRepository studentRepository;
+
+  @Autowired
+  private CourseRepository courseRepository;
+
+  @Autowired
+  private EnrollmentRepository enrollmentRepository;
+
+  @Autowired
+  private StudentService studentService;
+
+  @Autowired
+  private CourseService courseService;
+
+  @Autowired
+  private EnrollmentService enrollmentService;
+
+  @Autowired
+  private ChangeLog changeLog;
+
+  @Autowired
+  private ChangeRepository changeRepository;
+
+  @AfterEach
+  void cleanUp() {
+    enrollmentRepository.deleteAll();
+    studentRepository.deleteAll();
+    courseRepository.deleteAll();
+  }
+
+  @Test
+  void testRead_whenChangesCommitted_shouldNumberThemPerTransaction() {
+    long before = changeLog.getSequence();
+
+    List<Long> ids =
+        studentService.createAll(List.of(createStudentRequest("Ada Lovelace"), createStudentRequest("Alan Turing")));
+    Course course = saveCourse();
+    enrollmentService.create(ids.get(0), course.getId());
+
+    long after = changeLog.getSequence();
+    List<Change> changes = changeLog.read(before, after, 10);
+    assertThat(changes).extracting(Change::getEntity, Change::getRowId, Change::getCourseId).containsExactly(
+        tuple(ChangeLog.Entity.STUDENT, ids.get(0), 0L),
+        tuple(ChangeLog.Entity.STUDENT, ids.get(1), 0L),
+        tuple(ChangeLog.Entity.ENROLLMENT, ids.get(0), course.getId()));
+    long number = changes.get(0).getSequence() / ChangeLog.CHANGES_PER_NUMBER;
+    assertThat(changes).extracting(Change::getSequence).containsExactly(
+        number * ChangeLog.CHANGES_PER_NUMBER, number * ChangeLog.CHANGES_PER_NUMBER + 1, after);
+    assertThat(after / ChangeLog.CHANGES_PER_NUMBER).isGreaterThan(number);
+  }
+
+  @Test
+  void testDeleteSuperseded_whenRowChangedAgain_shouldOnlyKeepItsLatestChange() {
+    long studentId = studentService.create(createStudentRequest("Isaac Newton")).getId();
+
+    UpdateStudentRequestResource update = new UpdateStudentRequestResource();
+    update.setName("Sir Isaac Newton");
+    update.setBirthday(LocalDate.of(1643, 1, 4));
+    studentService.update(studentId, update, null);
+    studentService.delete(studentId);
+    long deleted = changeLog.getSequence();
+    changeRepository.deleteSuperseded(LocalDateTime.now(ZoneOffset.UTC).plusMinutes(1));
+
+    assertThat(changeLog.read(0, changeLog.getSequence(), 1000))
+        .filteredOn(change -> change.getEntity() == ChangeLog.Entity.STUDENT && change.getRowId() == studentId)
+        .extracting(Change::getType, Change::getSequence)
+        .containsExactly(tuple(ChangeLog.Type.DELETED, deleted));
+  }
+
+  @Test
+  void testRead_whenCourseDeletionFailsOnItsEnrollments_shouldNotTakeNumberThatHoldsUpLaterChanges() {
+    Course course = saveCourse();
+    enrollmentService.create(saveStudent().getId(), course.getId());
+    long before = changeLog.getSequence();
+
+    Throwable failure = catchThrowable(() -> courseService.delete(course.getId()));
+
+    assertThat(failure).isInstanceOf(DataIntegrityViolationException.class);
+    assertThat(changeLog.getSequence()).isEqualTo(before);
+    enrollmentService.create(saveStudent().getId(), course.getId());
+    assertThat(changeLog.getSequence() / ChangeLog.CHANGES_PER_NUMBER)
+        .isEqualTo(before / ChangeLog.CHANGES_PER_NUMBER + 1);
+  }
+
+  private static CreateStudentRequestResource createStudentRequest(String name) {
+    CreateStudentRequestResource student = new CreateStudentRequestResource();
+    student.setName(name);
+    student.setBirthday(LocalDate.of(1815, 12, 10));
+    return student;
+  }
+
+  private Student saveStudent() {
+    Student student = new Student();
+    student.setName("Isaac Newton");
+    student.setBirthday(LocalDate.of(1643, 1, 4));
+    return studentRepository.save(student);
+  }
+
+  private Course saveCourse() {
+    Course course = new Course();
+    course.setName("Physics");
+    course.setAvailable(true);
+    return courseRepository.save(course);
+  }
+
+}
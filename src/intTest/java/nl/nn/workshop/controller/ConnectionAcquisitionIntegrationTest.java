@@ -0,0 +1,187 @@
+package nl.nn.workshop.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import javax.transaction.Transactional;
+import javax.transaction.Transactional.TxType;
+import nl.nn.workshop.AbstractIntegrationTest;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Enrollment;
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.UpdateStudentRequestResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+// runs without the test transaction so every request borrows its connections from the pool itself
+@Transactional(TxType.NOT_SUPPORTED)
+@DisabledIfSystemProperty(named = "workshop.storage", matches = "memory", disabledReason = "no connection pool")
+public class ConnectionAcquisitionIntegrationTest extends AbstractIntegrationTest {
+
+  @Autowired
+  private StudentRepository studentRepository;
+
+  @Autowired
+  private CourseRepository courseRepository;
+
+  @Autowired
+  private EnrollmentRepository enrollmentRepository;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @AfterEach
+  void cleanUp() {
+    enrollmentRepository.deleteAll();
+    studentRepository.deleteAll();
+    courseRepository.deleteAll();
+  }
+
+  @Test
+  void testPutStudent_whenStudentExists_shouldAcquireOneConnection() throws Exception {
+    Student saved = saveStudent();
+
+    UpdateStudentRequestResource resource = new UpdateStudentRequestResource();
+    resource.setName("Isaac Newton");
+    resource.setBirthday(LocalDate.of(1643, 1, 4));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .put("/students/{id}", saved.getId())
+            .content(GSON.toJson(resource))
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    assertThat(acquisitionsDuring(request, 200)).isEqualTo(1);
+  }
+
+  @Test
+  void testDeleteCourse_whenCourseExists_shouldAcquireOneConnection() throws Exception {
+    Course saved = saveCourse();
+
+    RequestBuilder request = MockMvcRequestBuilders.delete("/courses/{id}", saved.getId());
+
+    assertThat(acquisitionsDuring(request, 204)).isEqualTo(1);
+  }
+
+  @Test
+  void testCreateEnrollment_whenStudentAndCourseExist_shouldAcquireOneConnection() throws Exception {
+    Student student = saveStudent();
+    Course course = saveCourse();
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .post("/enrollments/student/{studentId}/course/{courseId}", student.getId(), course.getId())
+            .accept(MediaType.APPLICATION_JSON);
+
+    assertThat(acquisitionsDuring(request, 200)).isEqualTo(1);
+  }
+
+  @Test
+  void testDeleteEnrollment_whenEnrollmentExists_shouldAcquireOneConnection() throws Exception {
+    Student student = saveStudent();
+    Course course = saveCourse();
+
+    Enrollment enrollment = new Enrollment();
+    enrollment.setStudentId(student.getId());
+    enrollment.setCourseId(course.getId());
+    enrollment.setEnrollmentDate(LocalDateTime.now());
+    enrollmentRepository.save(enrollment);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .delete("/enrollments/student/{studentId}/course/{courseId}", student.getId(), course.getId());
+
+    assertThat(acquisitionsDuring(request, 200)).isEqualTo(1);
+  }
+
+  @Test
+  void testGetCourseStudents_whenCourseHasNoStudents_shouldAcquireOneConnection() throws Exception {
+    Course course = saveCourse();
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/{id}/students", course.getId())
+            .accept(MediaType.APPLICATION_JSON);
+
+    assertThat(acquisitionsDuring(request, 200)).isEqualTo(1);
+  }
+
+  @Test
+  void testGetStudentIdsByCourses_whenAnsweredFromIndex_shouldAcquireNoConnection() throws Exception {
+    Student student = saveStudent();
+    Course course = saveCourse();
+    mvc.perform(MockMvcRequestBuilders.post(
+        "/enrollments/student/{studentId}/course/{courseId}", student.getId(), course.getId()));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders.get("/enrollments/students").param("all", String.valueOf(course.getId()));
+
+    assertThat(acquisitionsDuring(request, 200)).isEqualTo(0);
+  }
+
+  @Test
+  void testGetCourseStats_whenCourseHasEnrollments_shouldAcquireNoConnection() throws Exception {
+    Student student = saveStudent();
+    Course course = saveCourse();
+    mvc.perform(MockMvcRequestBuilders.post(
+        "/enrollments/student/{studentId}/course/{courseId}", student.getId(), course.getId()));
+
+    RequestBuilder request = MockMvcRequestBuilders.get("/courses/{id}/stats", course.getId());
+
+    assertThat(acquisitionsDuring(request, 200)).isEqualTo(0);
+  }
+
+  @Test
+  void testSearchStudents_whenStudentWasRenamed_shouldAcquireNoConnection() throws Exception {
+    Student saved = saveStudent();
+    UpdateStudentRequestResource resource = new UpdateStudentRequestResource();
+    resource.setName("Gottfried Leibniz");
+    resource.setBirthday(LocalDate.of(1646, 7, 1));
+    mvc.perform(MockMvcRequestBuilders
+        .put("/students/{id}", saved.getId())
+        .content(GSON.toJson(resource))
+        .contentType(MediaType.APPLICATION_JSON));
+
+    RequestBuilder request = MockMvcRequestBuilders.get("/students/search").param("prefix", "gottfried");
+
+    assertThat(acquisitionsDuring(request, 200)).isEqualTo(0);
+  }
+
+  private long acquisitionsDuring(RequestBuilder request, int expectedStatus) throws Exception {
+    long before = acquisitions();
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(expectedStatus);
+    return acquisitions() - before;
+  }
+
+  private long acquisitions() {
+    return meterRegistry.get("hikaricp.connections.acquire").timer().count();
+  }
+
+  private Student saveStudent() {
+    Student student = new Student();
+    student.setName("Isaac Newton");
+    student.setBirthday(LocalDate.of(1643, 1, 4));
+    return studentRepository.save(student);
+  }
+
+  private Course saveCourse() {
+    Course course = new Course();
+    course.setName("Physics");
+    course.setAvailable(true);
+    return courseRepository.save(course);
+  }
+
+}
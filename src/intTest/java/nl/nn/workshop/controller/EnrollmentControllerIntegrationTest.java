@@ -6,6 +6,7 @@ import com.google.gson.reflect.TypeToken;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import nl.nn.workshop.AbstractIntegrationTest;
 import nl.nn.workshop.model.Course;
 import nl.nn.workshop.model.Enrollment;
@@ -13,6 +14,8 @@ import nl.nn.workshop.model.Student;
 import nl.nn.workshop.repository.CourseRepository;
 import nl.nn.workshop.repository.EnrollmentRepository;
 import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.CursorPageResource;
+import nl.nn.workshop.resource.EnrollmentDetailResource;
 import nl.nn.workshop.resource.EnrollmentResource;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -368,4 +371,107 @@ public class EnrollmentControllerIntegrationTest extends AbstractIntegrationTest
     assertThat(response.getContentAsString()).isEmpty();
   }
 
+  @Test
+  void testGetExpandedEnrollments_whenFilteredByCourse_shouldJoinNamesPageByPageAndReturnSC200() throws Exception {
+    Student newton = saveStudent("Isaac Newton");
+    Student leibniz = saveStudent("Gottfried Leibniz");
+    Course physics = saveCourse("Physics", true);
+    Course optics = saveCourse("Optics", false);
+    enroll(newton, physics);
+    enroll(leibniz, physics);
+    enroll(newton, optics);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/enrollments/expanded")
+            .param("courseId", String.valueOf(physics.getId()))
+            .param("limit", "1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<EnrollmentDetailResource> firstPage = GSON.fromJson(response.getContentAsString(),
+        new TypeToken<CursorPageResource<EnrollmentDetailResource>>() {}.getType());
+    assertThat(firstPage.getItems()).hasSize(1);
+    assertThat(firstPage.getNextCursor()).isNotNull();
+
+    request =
+        MockMvcRequestBuilders
+            .get("/enrollments/expanded")
+            .param("courseId", String.valueOf(physics.getId()))
+            .param("limit", "1")
+            .param("cursor", firstPage.getNextCursor())
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<EnrollmentDetailResource> secondPage = GSON.fromJson(response.getContentAsString(),
+        new TypeToken<CursorPageResource<EnrollmentDetailResource>>() {}.getType());
+    assertThat(secondPage.getNextCursor()).isNull();
+
+    List<EnrollmentDetailResource> details = new ArrayList<>(firstPage.getItems());
+    details.addAll(secondPage.getItems());
+    assertThat(details).extracting(EnrollmentDetailResource::getStudentName)
+        .containsExactly("Isaac Newton", "Gottfried Leibniz");
+    assertThat(details).extracting(EnrollmentDetailResource::getCourseName).containsOnly("Physics");
+    assertThat(details).allMatch(detail -> detail.isCourseAvailable() && detail.getEnrollmentDate() != null);
+  }
+
+  @Test
+  void testGetExpandedEnrollments_whenFilteredByStudent_shouldListTheCoursesOfTheStudentAndReturnSC200()
+      throws Exception {
+    Student newton = saveStudent("Isaac Newton");
+    Student leibniz = saveStudent("Gottfried Leibniz");
+    Course physics = saveCourse("Physics", true);
+    Course optics = saveCourse("Optics", false);
+    enroll(newton, physics);
+    enroll(leibniz, physics);
+    enroll(newton, optics);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/enrollments/expanded")
+            .param("studentId", String.valueOf(newton.getId()))
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<EnrollmentDetailResource> page = GSON.fromJson(response.getContentAsString(),
+        new TypeToken<CursorPageResource<EnrollmentDetailResource>>() {}.getType());
+    assertThat(page.getItems()).extracting(EnrollmentDetailResource::getCourseName)
+        .containsExactly("Physics", "Optics");
+    assertThat(page.getItems()).extracting(EnrollmentDetailResource::isCourseAvailable)
+        .containsExactly(true, false);
+    assertThat(page.getItems()).extracting(EnrollmentDetailResource::getStudentName).containsOnly("Isaac Newton");
+    assertThat(page.getNextCursor()).isNull();
+  }
+
+  private Student saveStudent(String name) {
+    Student student = new Student();
+    student.setBirthday(LocalDate.of(1643, 1, 4));
+    student.setName(name);
+    return studentRepository.save(student);
+  }
+
+  private Course saveCourse(String name, boolean available) {
+    Course course = new Course();
+    course.setName(name);
+    course.setAvailable(available);
+    return courseRepository.save(course);
+  }
+
+  private void enroll(Student student, Course course) {
+    Enrollment enrollment = new Enrollment();
+    enrollment.setEnrollmentDate(LocalDateTime.now());
+    enrollment.setStudentId(student.getId());
+    enrollment.setCourseId(course.getId());
+    enrollmentRepository.save(enrollment);
+  }
+
 }
@@ -2,10 +2,13 @@ package nl.nn.workshop.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.google.gson.reflect.TypeToken;
 import java.time.LocalDate;
 import nl.nn.workshop.AbstractIntegrationTest;
 import nl.nn.workshop.model.Student;
 import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.MultiGetResource;
+import nl.nn.workshop.resource.StudentResource;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
@@ -192,4 +195,32 @@ public class StudentControllerIntegrationTest extends AbstractIntegrationTest {
     assertThat(response.getErrorMessage()).isEqualTo(String.format("student with id %d not found", saved.getId() + 1));
   }
 
-}
\ No newline at end of file
+  @Test
+  void testGetStudentsByIds_whenSomeExist_shouldReturnThemInRequestedOrderWithMissingIdsAndSC200() throws Exception {
+    Student newton = new Student();
+    newton.setName("Isaac Newton");
+    newton.setBirthday(LocalDate.of(1643, 1, 4));
+    Student leibniz = new Student();
+    leibniz.setName("Gottfried Leibniz");
+    leibniz.setBirthday(LocalDate.of(1646, 7, 1));
+    long newtonId = studentRepository.save(newton).getId();
+    long leibnizId = studentRepository.save(leibniz).getId();
+    long missingId = leibnizId + 1000;
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/students")
+            .param("ids", String.format("%d,%d,%d", leibnizId, missingId, newtonId))
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    MultiGetResource<StudentResource> fromResponse = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<MultiGetResource<StudentResource>>() {}.getType());
+    assertThat(fromResponse.getItems()).extracting(StudentResource::getName)
+        .containsExactly("Gottfried Leibniz", "Isaac Newton");
+    assertThat(fromResponse.getMissingIds()).containsExactly(missingId);
+  }
+
+}
@@ -0,0 +1,88 @@
+package nl.nn.workshop.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.time.LocalDate;
+import javax.transaction.Transactional;
+import javax.transaction.Transactional.TxType;
+import nl.nn.workshop.AbstractIntegrationTest;
+import nl.nn.workshop.capacity.CourseSeats;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.CourseStatsResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+
+// runs without the test transaction, a deletion only fails on the enrollments of its course when it commits
+@Transactional(TxType.NOT_SUPPORTED)
+public class CourseDeletionIntegrationTest extends AbstractIntegrationTest {
+
+  @Autowired
+  private StudentRepository studentRepository;
+
+  @Autowired
+  private CourseRepository courseRepository;
+
+  @Autowired
+  private EnrollmentRepository enrollmentRepository;
+
+  @Autowired
+  private CourseService courseService;
+
+  @Autowired
+  private CourseSeats courseSeats;
+
+  @Autowired
+  private EnrollmentService enrollmentService;
+
+  @AfterEach
+  void cleanUp() {
+    enrollmentRepository.deleteAll();
+    studentRepository.deleteAll();
+    courseRepository.deleteAll();
+  }
+
+  @Test
+  void testDeleteCourse_whenCourseStillHasEnrollments_shouldFailAndKeepItsEnrollmentCount() {
+    Course course = saveCourse(null);
+    enrollmentService.create(saveStudent().getId(), course.getId());
+
+    Throwable failure = catchThrowable(() -> courseService.delete(course.getId()));
+
+    assertThat(failure).isInstanceOf(DataIntegrityViolationException.class);
+    assertThat(courseService.findStats(course.getId())).isEqualTo(new CourseStatsResource(course.getId(), 1));
+  }
+
+  @Test
+  void testDeleteCourse_whenCourseWithCapacityStillHasEnrollments_shouldFailAndKeepCountingItsSeats() {
+    Course course = saveCourse(1);
+    enrollmentService.create(saveStudent().getId(), course.getId());
+
+    Throwable failure = catchThrowable(() -> courseService.delete(course.getId()));
+
+    assertThat(failure).isInstanceOf(DataIntegrityViolationException.class);
+    assertThat(courseSeats.hasCapacity(course.getId())).isTrue();
+  }
+
+  private Course saveCourse(Integer capacity) {
+    Course course = new Course();
+    course.setName("Physics");
+    course.setAvailable(true);
+    course.setCapacity(capacity);
+    return courseRepository.save(course);
+  }
+
+  private Student saveStudent() {
+    Student student = new Student();
+    student.setName("Isaac Newton");
+    student.setBirthday(LocalDate.of(1643, 1, 4));
+    return studentRepository.save(student);
+  }
+
+}
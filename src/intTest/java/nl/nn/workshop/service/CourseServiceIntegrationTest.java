@@ -85,7 +85,7 @@ public class CourseServiceIntegrationTest extends AbstractIntegrationTest {
     courseUpdate.setName(courseNewName);
     courseUpdate.setAvailable(false);
 
-    CourseResource updated = courseService.update(saved.getId(), courseUpdate);
+    CourseResource updated = courseService.update(saved.getId(), courseUpdate, null);
 
     assertThat(updated.getName()).isEqualTo(courseNewName);
     assertThat(updated.isAvailable()).isEqualTo(false);
@@ -107,7 +107,7 @@ public class CourseServiceIntegrationTest extends AbstractIntegrationTest {
     update.setName("Other Course");
 
     ResponseStatusException exception = catchThrowableOfType(
-        () -> courseService.update(saved.getId() + 1, update), ResponseStatusException.class);
+        () -> courseService.update(saved.getId() + 1, update, null), ResponseStatusException.class);
     assertThat(exception).hasMessage(String.format("404 NOT_FOUND \"course with id %d not found\"", saved.getId() + 1));
     assertThat(exception.getStatus()).isEqualTo(HttpStatus.NOT_FOUND);
   }
@@ -14,7 +14,10 @@ import nl.nn.workshop.model.Student;
 import nl.nn.workshop.repository.CourseRepository;
 import nl.nn.workshop.repository.EnrollmentRepository;
 import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.CourseResource;
+import nl.nn.workshop.resource.CursorPageResource;
 import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.resource.StudentResource;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -312,4 +315,84 @@ public class EnrollmentServiceIntegrationTest extends AbstractIntegrationTest {
     assertThat(exception.getStatus()).isEqualTo(HttpStatus.NOT_FOUND);
   }
 
+  @Test
+  void testFindEnrollmentPage_whenMoreEnrollmentsExist_shouldWalkAllPagesInKeyOrder() {
+    Student student = new Student();
+    student.setBirthday(LocalDate.of(1643, 1, 4));
+    student.setName("Isaac Newton");
+
+    Student savedStudent = studentRepository.save(student);
+
+    for (String courseName : List.of("Physics", "Optics", "Calculus")) {
+      Course course = new Course();
+      course.setName(courseName);
+      course.setAvailable(true);
+
+      Course savedCourse = courseRepository.save(course);
+
+      Enrollment enrollment = new Enrollment();
+      enrollment.setEnrollmentDate(LocalDateTime.now());
+      enrollment.setStudentId(savedStudent.getId());
+      enrollment.setCourseId(savedCourse.getId());
+      enrollmentRepository.save(enrollment);
+    }
+
+    CursorPageResource<EnrollmentResource> firstPage = enrollmentService.findPage(null, 2);
+    assertThat(firstPage.getItems()).hasSize(2);
+    assertThat(firstPage.getNextCursor()).isNotNull();
+
+    CursorPageResource<EnrollmentResource> secondPage = enrollmentService.findPage(firstPage.getNextCursor(), 2);
+    assertThat(secondPage.getItems()).hasSize(1);
+    assertThat(secondPage.getNextCursor()).isNull();
+
+    assertThat(firstPage.getItems().get(1).getCourseId()).isLessThan(secondPage.getItems().get(0).getCourseId());
+  }
+
+  @Test
+  void testFindStudentsByCourse_whenStudentsAreEnrolled_shouldWalkAllPagesInStudentOrder() {
+    Course course = new Course();
+    course.setName("Physics");
+    course.setAvailable(true);
+
+    Course savedCourse = courseRepository.save(course);
+
+    for (String studentName : List.of("Isaac Newton", "Marie Curie", "Albert Einstein")) {
+      Student student = new Student();
+      student.setBirthday(LocalDate.of(1643, 1, 4));
+      student.setName(studentName);
+
+      Student savedStudent = studentRepository.save(student);
+
+      Enrollment enrollment = new Enrollment();
+      enrollment.setEnrollmentDate(LocalDateTime.now());
+      enrollment.setStudentId(savedStudent.getId());
+      enrollment.setCourseId(savedCourse.getId());
+      enrollmentRepository.save(enrollment);
+    }
+
+    CursorPageResource<StudentResource> firstPage =
+        enrollmentService.findStudentsByCourse(savedCourse.getId(), null, 2);
+    assertThat(firstPage.getItems()).extracting(StudentResource::getName)
+        .containsExactly("Isaac Newton", "Marie Curie");
+    assertThat(firstPage.getNextCursor()).isNotNull();
+
+    CursorPageResource<StudentResource> secondPage =
+        enrollmentService.findStudentsByCourse(savedCourse.getId(), firstPage.getNextCursor(), 2);
+    assertThat(secondPage.getItems()).extracting(StudentResource::getName).containsExactly("Albert Einstein");
+    assertThat(secondPage.getNextCursor()).isNull();
+
+    CursorPageResource<CourseResource> courses =
+        enrollmentService.findCoursesByStudent(secondPage.getItems().get(0).getId(), null, 10);
+    assertThat(courses.getItems()).extracting(CourseResource::getName).containsExactly("Physics");
+  }
+
+  @Test
+  void testFindStudentsByCourse_whenCourseDoesNotExist_shouldThrowsNotFoundException() {
+    ResponseStatusException exception = catchThrowableOfType(
+        () -> enrollmentService.findStudentsByCourse(1L, null, 10), ResponseStatusException.class);
+
+    assertThat(exception.getStatus()).isEqualTo(HttpStatus.NOT_FOUND);
+    assertThat(exception.getReason()).isEqualTo("course with id 1 not found");
+  }
+
 }
@@ -0,0 +1,151 @@
+package nl.nn.workshop.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.transaction.Transactional;
+import javax.transaction.Transactional.TxType;
+import nl.nn.workshop.AbstractIntegrationTest;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.CourseStatsResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+// runs without the test transaction, the racing threads have to see each other's commits
+@Transactional(TxType.NOT_SUPPORTED)
+public class SeatReservationIntegrationTest extends AbstractIntegrationTest {
+
+  private static final int CAPACITY = 25;
+  private static final int STUDENTS = 2_000;
+  private static final int THREADS = 32;
+
+  @Autowired
+  private StudentRepository studentRepository;
+
+  @Autowired
+  private CourseRepository courseRepository;
+
+  @Autowired
+  private EnrollmentRepository enrollmentRepository;
+
+  @Autowired
+  private EnrollmentService enrollmentService;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @AfterEach
+  void cleanUp() {
+    enrollmentRepository.deleteAll();
+    studentRepository.deleteAll();
+    courseRepository.deleteAll();
+  }
+
+  @Test
+  void testCreateEnrollment_whenStudentsRaceForFewSeats_shouldFillCourseExactlyAndTurnTheRestAwayEarly()
+      throws Exception {
+    Course course = saveCourse(CAPACITY);
+    List<Long> studentIds = saveStudents(STUDENTS);
+    long reservationsBefore = reserveSeatCalls();
+
+    ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<HttpStatus>> outcomes = new ArrayList<>();
+    for (long studentId : studentIds) {
+      outcomes.add(pool.submit(() -> {
+        start.await();
+        try {
+          enrollmentService.create(studentId, course.getId());
+          return HttpStatus.OK;
+        } catch (ResponseStatusException e) {
+          return e.getStatus();
+        }
+      }));
+    }
+    long began = System.nanoTime();
+    start.countDown();
+    List<HttpStatus> statuses = new ArrayList<>();
+    for (Future<HttpStatus> outcome : outcomes) {
+      statuses.add(outcome.get(1, TimeUnit.MINUTES));
+    }
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began);
+    pool.shutdown();
+
+    Map<HttpStatus, Long> counted = statuses.stream()
+        .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+    assertThat(counted).containsOnlyKeys(HttpStatus.OK, HttpStatus.CONFLICT);
+    assertThat(counted.get(HttpStatus.OK)).isEqualTo(CAPACITY);
+    assertThat(enrollmentRepository.countEnrollmentsByCourse())
+        .containsExactly(new CourseStatsResource(course.getId(), CAPACITY));
+    assertThat(courseRepository.findById(course.getId()).orElseThrow().getSeatsTaken()).isEqualTo(CAPACITY);
+    // the students that found the course full never queued for its row lock
+    if (!IN_MEMORY) {
+      assertThat(reserveSeatCalls() - reservationsBefore).isEqualTo(CAPACITY);
+    }
+    assertThat(elapsedMillis).as("%d enrollments raced in %d ms", STUDENTS, elapsedMillis).isLessThan(30_000);
+  }
+
+  @Test
+  void testCreateEnrollment_whenEnrollmentOfFullCourseIsDeleted_shouldGiveItsSeatToTheNextStudent() {
+    Course course = saveCourse(1);
+    List<Long> studentIds = saveStudents(2);
+
+    enrollmentService.create(studentIds.get(0), course.getId());
+    ResponseStatusException full = catchThrowableOfType(
+        () -> enrollmentService.create(studentIds.get(1), course.getId()), ResponseStatusException.class);
+    enrollmentService.delete(studentIds.get(0), course.getId());
+    enrollmentService.create(studentIds.get(1), course.getId());
+
+    assertThat(full.getStatus()).isEqualTo(HttpStatus.CONFLICT);
+    assertThat(full.getReason()).isEqualTo(String.format("course %d is full", course.getId()));
+    assertThat(courseRepository.findById(course.getId()).orElseThrow().getSeatsTaken()).isEqualTo(1);
+  }
+
+  private long reserveSeatCalls() {
+    return meterRegistry.find("spring.data.repository.invocations").tag("method", "reserveSeat").timers().stream()
+        .mapToLong(Timer::count)
+        .sum();
+  }
+
+  private Course saveCourse(int capacity) {
+    Course course = new Course();
+    course.setName("Physics");
+    course.setAvailable(true);
+    course.setCapacity(capacity);
+    return courseRepository.save(course);
+  }
+
+  private List<Long> saveStudents(int count) {
+    List<Student> students = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Student student = new Student();
+      student.setName("Student " + i);
+      student.setBirthday(LocalDate.of(2000, 1, 1));
+      students.add(student);
+    }
+    List<Long> ids = new ArrayList<>(count);
+    studentRepository.saveAll(students).forEach(saved -> ids.add(saved.getId()));
+    return ids;
+  }
+
+}
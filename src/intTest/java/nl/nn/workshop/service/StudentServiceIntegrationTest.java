@@ -92,7 +92,7 @@ public class StudentServiceIntegrationTest extends AbstractIntegrationTest {
     studentUpdate.setName(updatedName);
     studentUpdate.setBirthday(updatedBirthday);
 
-    StudentResource updated = studentService.update(saved.getId(), studentUpdate);
+    StudentResource updated = studentService.update(saved.getId(), studentUpdate, null);
 
     assertThat(updated.getName()).isEqualTo(updatedName);
     assertThat(updated.getBirthday()).isEqualTo(updatedBirthday);
@@ -118,7 +118,7 @@ public class StudentServiceIntegrationTest extends AbstractIntegrationTest {
     studentUpdate.setBirthday(updatedBirthday);
 
     ResponseStatusException exception = catchThrowableOfType(
-        () -> studentService.update(saved.getId() + 1, studentUpdate), ResponseStatusException.class);
+        () -> studentService.update(saved.getId() + 1, studentUpdate, null), ResponseStatusException.class);
     assertThat(exception).hasMessage(String.format("404 NOT_FOUND \"student with id %d not found\"", saved.getId() + 1));
     assertThat(exception.getStatus()).isEqualTo(HttpStatus.NOT_FOUND);
   }
@@ -160,4 +160,30 @@ public class StudentServiceIntegrationTest extends AbstractIntegrationTest {
     assertThat(exception.getStatus()).isEqualTo(HttpStatus.NOT_FOUND);
   }
 
+  @Test
+  void testUpdateStudent_whenExpectedVersionIsOutdated_shouldThrowPreconditionFailedException() {
+    Student student = new Student();
+    student.setBirthday(LocalDate.of(1643, 1, 4));
+    student.setName("Isaac Newton");
+
+    Student saved = studentRepository.save(student);
+    // within the test transaction the saved entity is the one the update changes, so keep what it was
+    long version = saved.getVersion();
+
+    UpdateStudentRequestResource studentUpdate = new UpdateStudentRequestResource();
+    studentUpdate.setName("Sir Isaac Newton");
+    studentUpdate.setBirthday(LocalDate.of(1643, 1, 4));
+
+    StudentResource updated = studentService.update(saved.getId(), studentUpdate, version);
+    assertThat(updated.getVersion()).isEqualTo(version + 1);
+    assertThat(studentService.findVersion(saved.getId())).isEqualTo(updated.getVersion());
+
+    studentUpdate.setName("Isaac Newton");
+    ResponseStatusException exception = catchThrowableOfType(
+        () -> studentService.update(saved.getId(), studentUpdate, version), ResponseStatusException.class);
+    assertThat(exception).hasMessage(String.format("412 PRECONDITION_FAILED \"student with id %d has been changed\"",
+        saved.getId()));
+    assertThat(studentService.findById(saved.getId()).getName()).isEqualTo("Sir Isaac Newton");
+  }
+
 }
@@ -0,0 +1,120 @@
+package nl.nn.workshop.version;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.time.LocalDate;
+import java.util.List;
+import javax.transaction.Transactional;
+import javax.transaction.Transactional.TxType;
+import nl.nn.workshop.AbstractIntegrationTest;
+import nl.nn.workshop.changes.ChangeLog;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.CreateStudentRequestResource;
+import nl.nn.workshop.service.CourseService;
+import nl.nn.workshop.service.EnrollmentService;
+import nl.nn.workshop.service.StudentService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+
+// runs without the test transaction, a version only moves on when the change commits
+@Transactional(TxType.NOT_SUPPORTED)
+public class CollectionVersionsIntegrationTest extends AbstractIntegrationTest {
+
+  @Autowired
+  private StudentRepository studentRepository;
+
+  @Autowired
+  private CourseRepository courseRepository;
+
+  @Autowired
+  private EnrollmentRepository enrollmentRepository;
+
+  @Autowired
+  private StudentService studentService;
+
+  @Autowired
+  private CourseService courseService;
+
+  @Autowired
+  private EnrollmentService enrollmentService;
+
+  @Autowired
+  private CollectionVersions collectionVersions;
+
+  @Autowired
+  private ChangeLog changeLog;
+
+  @AfterEach
+  void cleanUp() {
+    enrollmentRepository.deleteAll();
+    studentRepository.deleteAll();
+    courseRepository.deleteAll();
+  }
+
+  @Test
+  void testCurrent_whenBatchOfStudentsCommits_shouldMoveStudentsOnToItsLatestChange() {
+    long students = collectionVersions.current(CollectionVersions.Collection.STUDENTS);
+    long courses = collectionVersions.current(CollectionVersions.Collection.COURSES);
+
+    studentService.createAll(List.of(createStudentRequest("Ada Lovelace"), createStudentRequest("Alan Turing")));
+
+    assertThat(collectionVersions.current(CollectionVersions.Collection.STUDENTS))
+        .isGreaterThan(students)
+        .isEqualTo(changeLog.getSequence());
+    assertThat(collectionVersions.current(CollectionVersions.Collection.COURSES)).isEqualTo(courses);
+  }
+
+  @Test
+  void testCurrent_whenEnrollmentIsCreated_shouldMoveEnrollmentsOn() {
+    Student student = saveStudent();
+    Course course = saveCourse();
+    long enrollments = collectionVersions.current(CollectionVersions.Collection.ENROLLMENTS);
+
+    enrollmentService.create(student.getId(), course.getId());
+
+    assertThat(collectionVersions.current(CollectionVersions.Collection.ENROLLMENTS))
+        .isGreaterThan(enrollments)
+        .isEqualTo(changeLog.getSequence());
+  }
+
+  @Test
+  void testCurrent_whenCourseDeletionFailsOnItsEnrollments_shouldKeepCoursesVersion() {
+    Course course = saveCourse();
+    enrollmentService.create(saveStudent().getId(), course.getId());
+    long courses = collectionVersions.current(CollectionVersions.Collection.COURSES);
+
+    Throwable failure = catchThrowable(() -> courseService.delete(course.getId()));
+
+    assertThat(failure).isInstanceOf(DataIntegrityViolationException.class);
+    assertThat(collectionVersions.current(CollectionVersions.Collection.COURSES)).isEqualTo(courses);
+  }
+
+  private static CreateStudentRequestResource createStudentRequest(String name) {
+    CreateStudentRequestResource student = new CreateStudentRequestResource();
+    student.setName(name);
+    student.setBirthday(LocalDate.of(1815, 12, 10));
+    return student;
+  }
+
+  private Student saveStudent() {
+    Student student = new Student();
+    student.setName("Isaac Newton");
+    student.setBirthday(LocalDate.of(1643, 1, 4));
+    return studentRepository.save(student);
+  }
+
+  private Course saveCourse() {
+    Course course = new Course();
+    course.setName("Physics");
+    course.setAvailable(true);
+    return courseRepository.save(course);
+  }
+
+}
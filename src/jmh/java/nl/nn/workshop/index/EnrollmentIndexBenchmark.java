@@ -0,0 +1,70 @@
+package nl.nn.workshop.index;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.resource.EnrollmentResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnrollmentIndexBenchmark {
+
+  private static final int COURSES = 200;
+  private static final int COURSES_PER_STUDENT = 8;
+  private static final long[] NONE = {};
+
+  @Param({"10000", "100000"})
+  private int students;
+
+  private EnrollmentIndex index;
+
+  @Setup
+  public void setUp() {
+    // popular courses get most of the enrollments, like a real catalogue
+    Random random = new Random(42);
+    LocalDateTime now = LocalDateTime.now();
+    Stream<EnrollmentResource> enrollments = Stream.iterate(0L, i -> i + 1)
+        .limit((long) students * COURSES_PER_STUDENT)
+        .map(i -> new EnrollmentResource(
+            1 + i / COURSES_PER_STUDENT, 1 + (long) (COURSES * Math.pow(random.nextDouble(), 2)), now));
+    // loading only ever calls streamAll
+    EnrollmentRepository enrollmentRepository = (EnrollmentRepository) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {EnrollmentRepository.class}, (proxy, method, args) -> enrollments);
+    index = new EnrollmentIndex(enrollmentRepository);
+    index.load();
+  }
+
+  @Benchmark
+  public long[] studentsInBothCourses() {
+    return index.findStudents(new long[] {1, 2}, NONE, NONE);
+  }
+
+  @Benchmark
+  public long[] studentsInFirstButNotSecondCourse() {
+    return index.findStudents(new long[] {1}, NONE, new long[] {2});
+  }
+
+  @Benchmark
+  public long[] coursesOfAnyOfTenStudents() {
+    return index.findCourses(NONE, new long[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, NONE);
+  }
+
+}
@@ -0,0 +1,118 @@
+package nl.nn.workshop.mapper;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import ma.glasnost.orika.MapperFacade;
+import ma.glasnost.orika.impl.DefaultMapperFactory;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Enrollment;
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.resource.CourseResource;
+import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.resource.StudentResource;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the generated MapStruct mappers with the Orika {@link MapperFacade} they replaced. The
+ * {@code cold*} benchmarks measure the first call on a fresh mapper, which is where Orika generates its
+ * class maps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+  private MapperFacade mapperFacade;
+  private StudentMapper studentMapper;
+  private CourseMapper courseMapper;
+  private EnrollmentMapper enrollmentMapper;
+  private Student student;
+  private Course course;
+  private Enrollment enrollment;
+
+  @Setup
+  public void setUp() {
+    mapperFacade = new DefaultMapperFactory.Builder().build().getMapperFacade();
+    studentMapper = Mappers.getMapper(StudentMapper.class);
+    courseMapper = Mappers.getMapper(CourseMapper.class);
+    enrollmentMapper = Mappers.getMapper(EnrollmentMapper.class);
+
+    student = new Student();
+    student.setId(1L);
+    student.setName("Isaac Newton");
+    student.setBirthday(LocalDate.of(1643, 1, 4));
+
+    course = new Course();
+    course.setId(1L);
+    course.setName("Physics");
+    course.setAvailable(true);
+
+    enrollment = new Enrollment();
+    enrollment.setStudentId(1L);
+    enrollment.setCourseId(1L);
+    enrollment.setEnrollmentDate(LocalDateTime.of(1661, 6, 5, 9, 0));
+  }
+
+  @Benchmark
+  public StudentResource orikaStudent() {
+    return mapperFacade.map(student, StudentResource.class);
+  }
+
+  @Benchmark
+  public CourseResource orikaCourse() {
+    return mapperFacade.map(course, CourseResource.class);
+  }
+
+  @Benchmark
+  public EnrollmentResource orikaEnrollment() {
+    return mapperFacade.map(enrollment, EnrollmentResource.class);
+  }
+
+  @Benchmark
+  public StudentResource mapstructStudent() {
+    return studentMapper.toResource(student);
+  }
+
+  @Benchmark
+  public CourseResource mapstructCourse() {
+    return courseMapper.toResource(course);
+  }
+
+  @Benchmark
+  public EnrollmentResource mapstructEnrollment() {
+    return enrollmentMapper.toResource(enrollment);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 20)
+  public StudentResource coldOrikaStudent() {
+    return new DefaultMapperFactory.Builder().build().getMapperFacade().map(student, StudentResource.class);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 0)
+  @Measurement(iterations = 20)
+  public StudentResource coldMapstructStudent() {
+    return Mappers.getMapper(StudentMapper.class).toResource(student);
+  }
+
+}
@@ -0,0 +1,90 @@
+package nl.nn.workshop.recommendation;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.resource.CourseRecommendationResource;
+import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.service.EnrollmentEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoEnrollmentRecommenderBenchmark {
+
+  private static final int COURSES = 500;
+  private static final int COURSES_PER_STUDENT = 8;
+
+  @Param({"10000", "100000"})
+  private int students;
+
+  private CoEnrollmentRecommender recommender;
+  private LocalDateTime now;
+  private long toggled;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    now = LocalDateTime.now();
+    recommender = recommender(enrollments());
+    recommender.load();
+  }
+
+  @Benchmark
+  public List<CourseRecommendationResource> findRecommendations() {
+    return recommender.findRecommendations(1, 10);
+  }
+
+  @Benchmark
+  public void createAndDeleteEnrollment() {
+    // student 1 already takes eight courses, so every event touches eight neighbour lists
+    long courseId = COURSES + 1 + (toggled++ & 63);
+    recommender.onEnrollment(EnrollmentEvent.created(1, courseId, now));
+    recommender.onEnrollment(EnrollmentEvent.deleted(1, courseId, now));
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Measurement(iterations = 5)
+  public CoEnrollmentRecommender load() {
+    CoEnrollmentRecommender loaded = recommender(enrollments());
+    loaded.load();
+    return loaded;
+  }
+
+  private Stream<EnrollmentResource> enrollments() {
+    // popular courses get most of the enrollments, like a real catalogue
+    Random random = new Random(42);
+    return Stream.iterate(0L, i -> i + 1)
+        .limit((long) students * COURSES_PER_STUDENT)
+        .map(i -> new EnrollmentResource(
+            1 + i / COURSES_PER_STUDENT, 1 + (long) (COURSES * Math.pow(random.nextDouble(), 2)), now));
+  }
+
+  private CoEnrollmentRecommender recommender(Stream<EnrollmentResource> enrollments) {
+    // loading only ever calls streamAll
+    EnrollmentRepository enrollmentRepository = (EnrollmentRepository) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[] {EnrollmentRepository.class}, (proxy, method, args) -> enrollments);
+    return new CoEnrollmentRecommender(enrollmentRepository);
+  }
+
+}
@@ -0,0 +1,56 @@
+package nl.nn.workshop.resource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  private int size;
+
+  private ObjectWriter writer;
+  private List<StudentResource> students;
+
+  @Setup
+  public void setUp() {
+    // same defaults Spring MVC applies to its message converters
+    writer = Jackson2ObjectMapperBuilder.json().build().writerFor(List.class);
+
+    students = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      StudentResource student = new StudentResource();
+      student.setId(i);
+      student.setName("Student " + i);
+      student.setBirthday(LocalDate.of(2000, 1, 1).plusDays(i % 3650));
+      students.add(student);
+    }
+  }
+
+  @Benchmark
+  public byte[] serializeStudents() throws JsonProcessingException {
+    return writer.writeValueAsBytes(students);
+  }
+
+}
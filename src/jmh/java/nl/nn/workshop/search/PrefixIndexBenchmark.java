@@ -0,0 +1,63 @@
+package nl.nn.workshop.search;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import nl.nn.workshop.resource.NameMatchResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// sampled, so the report shows the p99 of a single autocompletion next to the mean
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefixIndexBenchmark {
+
+  private static final String[] FIRST_NAMES = {
+      "Ada", "Alan", "Barbara", "Blaise", "Carl", "Charles", "Edsger", "Emmy", "Grace", "Isaac", "Johann",
+      "Jos\u00e9", "Katherine", "Leonhard", "Marie", "Niels", "Pierre", "Rosalind", "Sofia", "Werner"};
+  private static final String[] LAST_NAMES = {
+      "Bohr", "Curie", "Dijkstra", "Euler", "Franklin", "Gauss", "Heisenberg", "Hopper", "Johnson", "Kovalevskaya",
+      "Liskov", "Lovelace", "Mart\u00ed", "Newton", "Noether", "Pascal", "Babbage", "Turing", "Fermat", "Bernoulli"};
+  private static final String[] PREFIXES = {"m", "ma", "marie c", "jose mar", "katherine johnson 12", "zz"};
+
+  @Param({"1000000"})
+  private int students;
+
+  private PrefixIndex index;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    index = new PrefixIndex();
+    for (long id = 1; id <= students; id++) {
+      index.put(id, FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+          + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " " + random.nextInt(1000));
+    }
+  }
+
+  @Benchmark
+  public List<NameMatchResource> autocomplete() {
+    return index.find(PREFIXES[next++ % PREFIXES.length], 10);
+  }
+
+  @Benchmark
+  public void rename() {
+    long id = 1 + (next++ % students);
+    index.put(id, FIRST_NAMES[(int) (id % FIRST_NAMES.length)] + " Renamed " + next);
+  }
+
+}
@@ -0,0 +1,152 @@
+package nl.nn.workshop.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import nl.nn.workshop.WorkshopApplication;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Enrollment;
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.EnrollmentResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Runs the service layer against either the in-memory H2 datasource of the {@code h2} profile, so the
+ * numbers include Hibernate and JDBC but no network, or the primitive keyed tables of the {@code memory}
+ * profile.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnrollmentServiceBenchmark {
+
+  private static final int STUDENTS = 2000;
+  private static final int COURSES = 100;
+
+  @State(Scope.Benchmark)
+  public static class Application {
+
+    @Param({"h2", "memory"})
+    String profile;
+
+    ConfigurableApplicationContext context;
+    EnrollmentService enrollmentService;
+    EnrollmentRepository enrollmentRepository;
+    long[] studentIds;
+    long[] courseIds;
+
+    @Setup(Level.Trial)
+    public void start() {
+      context = new SpringApplicationBuilder(WorkshopApplication.class)
+          .web(WebApplicationType.NONE)
+          .profiles(profile)
+          .properties("spring.jpa.show-sql=false")
+          .run();
+      enrollmentService = context.getBean(EnrollmentService.class);
+      enrollmentRepository = context.getBean(EnrollmentRepository.class);
+
+      List<Student> students = new ArrayList<>(STUDENTS);
+      for (int i = 0; i < STUDENTS; i++) {
+        Student student = new Student();
+        student.setName("Student " + i);
+        student.setBirthday(LocalDate.of(2000, 1, 1));
+        students.add(student);
+      }
+      studentIds = new long[STUDENTS];
+      int i = 0;
+      for (Student saved : context.getBean(StudentRepository.class).saveAll(students)) {
+        studentIds[i++] = saved.getId();
+      }
+
+      List<Course> courses = new ArrayList<>(COURSES);
+      for (int j = 0; j < COURSES; j++) {
+        Course course = new Course();
+        course.setName("Course " + j);
+        course.setAvailable(true);
+        courses.add(course);
+      }
+      courseIds = new long[COURSES];
+      int j = 0;
+      for (Course saved : context.getBean(CourseRepository.class).saveAll(courses)) {
+        courseIds[j++] = saved.getId();
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+      context.close();
+    }
+
+  }
+
+  @State(Scope.Benchmark)
+  public static class CreateState {
+
+    int next;
+
+    @Setup(Level.Iteration)
+    public void clear(Application application) {
+      application.enrollmentRepository.deleteAll();
+      next = 0;
+    }
+
+  }
+
+  @State(Scope.Benchmark)
+  public static class FindAllState {
+
+    @Param({"100", "10000"})
+    int enrollments;
+
+    @Setup(Level.Trial)
+    public void fill(Application application) {
+      application.enrollmentRepository.deleteAll();
+      List<Enrollment> rows = new ArrayList<>(enrollments);
+      for (int i = 0; i < enrollments; i++) {
+        Enrollment enrollment = new Enrollment();
+        enrollment.setStudentId(application.studentIds[i % STUDENTS]);
+        enrollment.setCourseId(application.courseIds[i / STUDENTS % COURSES]);
+        enrollment.setEnrollmentDate(LocalDateTime.now());
+        rows.add(enrollment);
+      }
+      application.enrollmentRepository.saveAll(rows);
+    }
+
+  }
+
+  @Benchmark
+  public EnrollmentResource create(Application application, CreateState state) {
+    // walks the student x course grid so every call inserts a fresh pair
+    int pair = state.next++ % (STUDENTS * COURSES);
+    return application.enrollmentService.create(
+        application.studentIds[pair % STUDENTS], application.courseIds[pair / STUDENTS]);
+  }
+
+  @Benchmark
+  public List<EnrollmentResource> findAll(Application application, FindAllState state) {
+    return application.enrollmentService.findAll();
+  }
+
+}
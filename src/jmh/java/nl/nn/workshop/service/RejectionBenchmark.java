@@ -0,0 +1,69 @@
+package nl.nn.workshop.service;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * What a rejected request pays for its exception: thrown from below a number of frames, caught at the top and
+ * asked for its reason like the error resolver does. A request that reaches a service through the servlet
+ * container, the filters and the transaction proxy is well over a hundred frames deep. Run with
+ * {@code -prof gc} to see the allocations per rejection as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RejectionBenchmark {
+
+  @Param({"10", "150"})
+  private int depth;
+
+  private long id;
+
+  @Benchmark
+  public String formattedWithStackTrace() {
+    try {
+      throwFrom(depth, true);
+      return null;
+    } catch (ResponseStatusException e) {
+      return e.getReason();
+    }
+  }
+
+  @Benchmark
+  public String stacklessRejection() {
+    try {
+      throwFrom(depth, false);
+      return null;
+    } catch (ResponseStatusException e) {
+      return e.getReason();
+    }
+  }
+
+  private int throwFrom(int frames, boolean formatted) {
+    if (frames > 0) {
+      // the addition keeps the calls from being turned into a loop
+      return throwFrom(frames - 1, formatted) + 1;
+    }
+    long studentId = ++id;
+    if (formatted) {
+      throw new ResponseStatusException(
+          HttpStatus.NOT_FOUND, String.format("student with id %d not found", studentId));
+    }
+    throw Rejection.studentNotFound(studentId);
+  }
+
+}
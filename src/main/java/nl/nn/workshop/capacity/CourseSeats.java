@@ -0,0 +1,176 @@
+package nl.nn.workshop.capacity;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.service.EnrollmentEvent;
+import nl.nn.workshop.service.EntityEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Seat reservation for courses with a capacity. The database stays the authority: a seat is only taken
+ * by the conditional update of {@link CourseRepository#reserveSeat}, which can never push a course over
+ * its capacity. In front of it sits an atomic counter per course, so when registration opens and
+ * thousands of students race for the same few seats, only as many requests as there are seats reach the
+ * database row and the rest are turned away in memory without waiting for its lock.
+ *
+ * <p>Only courses with a capacity have a counter. It is filled from the course row the first time an
+ * enrollment into the course comes by and from then on follows the reservations made here, the
+ * committed enrollment deletions and the committed deletion of the course. With several application
+ * instances a counter only hears of the seats taken and freed through its own instance. So when the
+ * counter finds the course full, or the conditional update finds no seat the counter thought was free,
+ * the counter is set to the row again, at most once per {@code workshop.capacity.resync-interval} per
+ * course, and a seat freed through another instance is found at the latest by the first request after
+ * that.
+ */
+@Component
+public class CourseSeats {
+
+  private final CourseRepository courseRepository;
+  private final long resyncInterval;
+  private final Map<Long, Seats> seatsByCourse = new ConcurrentHashMap<>();
+
+  public CourseSeats(
+      CourseRepository courseRepository,
+      @Value("${workshop.capacity.resync-interval:PT0.1S}") Duration resyncInterval) {
+    this.courseRepository = courseRepository;
+    this.resyncInterval = resyncInterval.toNanos();
+  }
+
+  /** Whether the course is known to have a capacity, enrollments into it have to {@link #reserve} first. */
+  public boolean hasCapacity(long courseId) {
+    return seatsByCourse.containsKey(courseId);
+  }
+
+  /**
+   * Looks up a course this instance has not seen with a capacity yet and starts counting its seats if it
+   * has one. Returns whether it has.
+   */
+  public boolean discover(long courseId) {
+    Course course = courseRepository.findById(courseId).orElse(null);
+    if (course == null || course.getCapacity() == null) {
+      return false;
+    }
+    // a concurrent discovery may have been quicker, its counter already includes what we read
+    seatsByCourse.putIfAbsent(courseId, new Seats(course.getCapacity(), course.getSeatsTaken(), System.nanoTime()));
+    return true;
+  }
+
+  /**
+   * Takes a seat of a course with a capacity. Returns {@code false} when the course is full, a seat that
+   * was taken is either used by an enrollment or given back with {@link #cancel}.
+   */
+  public boolean reserve(long courseId) {
+    Seats seats = seatsByCourse.get(courseId);
+    if (seats == null) {
+      return false;
+    }
+    // the row may have seats that were freed through another instance
+    if (!seats.tryTake() && !(resync(courseId, seats) && seats.tryTake())) {
+      return false;
+    }
+    boolean reserved;
+    seats.reserving.incrementAndGet();
+    try {
+      reserved = courseRepository.reserveSeat(courseId) == 1;
+    } finally {
+      seats.reserving.decrementAndGet();
+    }
+    if (reserved) {
+      return true;
+    }
+    // the row has seats taken through another instance that this counter has not seen
+    seats.release();
+    resync(courseId, seats);
+    return false;
+  }
+
+  public void cancel(long courseId) {
+    courseRepository.releaseSeat(courseId);
+    release(courseId);
+  }
+
+  // the row was updated by the deleting transaction itself, the counter follows once it committed
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEnrollment(EnrollmentEvent event) {
+    if (event.getType() == EnrollmentEvent.Type.DELETED) {
+      release(event.getCourseId());
+    }
+  }
+
+  // a deletion that fails on the course's enrollments leaves the course and its seats as they were
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEntity(EntityEvent event) {
+    if (event.getEntity() == EntityEvent.Entity.COURSE && event.getType() == EntityEvent.Type.DELETED) {
+      seatsByCourse.remove(event.getId());
+    }
+  }
+
+  private void release(long courseId) {
+    Seats seats = seatsByCourse.get(courseId);
+    if (seats != null) {
+      seats.release();
+    }
+  }
+
+  /**
+   * Sets the counter to the course row, unless another request did so less than the resync interval ago.
+   * Returns whether it did, so only then is a refused seat worth trying again.
+   */
+  private boolean resync(long courseId, Seats seats) {
+    long now = System.nanoTime();
+    long last = seats.resyncedAt.get();
+    if (now - last < resyncInterval || !seats.resyncedAt.compareAndSet(last, now)) {
+      return false;
+    }
+    // taken before the row is read, a reservation that updates the row in between is counted twice
+    // rather than not at all, so the counter never lets more requests at the row than it has seats
+    int reserving = seats.reserving.get();
+    Course course = courseRepository.findById(courseId).orElse(null);
+    if (course == null || course.getCapacity() == null) {
+      seatsByCourse.remove(courseId, seats);
+      return false;
+    }
+    seats.capacity = course.getCapacity();
+    seats.taken.set(course.getSeatsTaken() + reserving);
+    return true;
+  }
+
+  private static final class Seats {
+
+    volatile int capacity;
+    final AtomicInteger taken;
+    // seats taken from the counter whose row update has not returned yet
+    final AtomicInteger reserving = new AtomicInteger();
+    final AtomicLong resyncedAt;
+
+    Seats(int capacity, int taken, long resyncedAt) {
+      this.capacity = capacity;
+      this.taken = new AtomicInteger(taken);
+      this.resyncedAt = new AtomicLong(resyncedAt);
+    }
+
+    boolean tryTake() {
+      int current;
+      do {
+        current = taken.get();
+        if (current >= capacity) {
+          return false;
+        }
+      } while (!taken.compareAndSet(current, current + 1));
+      return true;
+    }
+
+    void release() {
+      taken.updateAndGet(current -> Math.max(0, current - 1));
+    }
+
+  }
+
+}
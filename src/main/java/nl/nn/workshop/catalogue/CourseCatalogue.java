@@ -0,0 +1,103 @@
+package nl.nn.workshop.catalogue;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import nl.nn.workshop.resource.CourseResource;
+import nl.nn.workshop.service.CourseService;
+import nl.nn.workshop.version.CollectionVersions;
+import org.springframework.stereotype.Component;
+
+/**
+ * The full course list as it goes out on the wire, encoded once per change instead of once per request.
+ * The list is requested far more often than courses change, so it is kept as JSON bytes and as their gzip
+ * compression, and a request only has to copy one of them to the response.
+ *
+ * <p>An encoding belongs to the {@link CollectionVersions} version of the courses it was read at. Every
+ * committed create, update or delete of a course moves that version on, and the next request that finds
+ * the encoding outdated reads the list again and replaces it as a whole. Only one request does the work,
+ * the others that arrive meanwhile wait for it instead of reading the same list again. The version is shared
+ * by every instance, so a change committed through another instance outdates this encoding as well.
+ */
+@Component
+public class CourseCatalogue {
+
+  private final CourseService courseService;
+  private final CollectionVersions collectionVersions;
+  private final ObjectWriter writer;
+  private volatile Encoded encoded;
+
+  public CourseCatalogue(CourseService courseService, CollectionVersions collectionVersions, ObjectMapper mapper) {
+    this.courseService = courseService;
+    this.collectionVersions = collectionVersions;
+    this.writer = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, CourseResource.class));
+  }
+
+  /** The encoding of the current course list, read and encoded again if a course changed since the last one. */
+  public Encoded current() {
+    Encoded current = encoded;
+    if (current != null && current.version == collectionVersions.current(CollectionVersions.Collection.COURSES)) {
+      return current;
+    }
+    synchronized (this) {
+      // taken before the list is read, a change committing in between only makes the encoding newer than its version
+      long version = collectionVersions.current(CollectionVersions.Collection.COURSES);
+      current = encoded;
+      if (current == null || current.version != version) {
+        current = encode(version, courseService.findAll());
+        encoded = current;
+      }
+      return current;
+    }
+  }
+
+  private Encoded encode(long version, List<CourseResource> courses) {
+    try {
+      byte[] json = writer.writeValueAsBytes(courses);
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+      try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+        gzip.write(json);
+      }
+      return new Encoded(version, json, compressed.toByteArray());
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("course list could not be encoded", e);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** One encoding of the course list, never changed once made. */
+  public static final class Encoded {
+
+    private final long version;
+    private final byte[] json;
+    private final byte[] gzip;
+
+    private Encoded(long version, byte[] json, byte[] gzip) {
+      this.version = version;
+      this.json = json;
+      this.gzip = gzip;
+    }
+
+    public long getVersion() {
+      return version;
+    }
+
+    /** The JSON bytes, shared with every other request, so they must not be changed. */
+    public byte[] getJson() {
+      return json;
+    }
+
+    /** The gzip compressed JSON bytes, shared with every other request, so they must not be changed. */
+    public byte[] getGzip() {
+      return gzip;
+    }
+
+  }
+
+}
@@ -0,0 +1,298 @@
+package nl.nn.workshop.changes;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import nl.nn.workshop.model.Change;
+import nl.nn.workshop.repository.ChangeRepository;
+import nl.nn.workshop.service.EnrollmentEvent;
+import nl.nn.workshop.service.EntityEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The committed changes to students, courses and enrollments, each under a sequence number that only goes
+ * up. A deleted row stays behind as a tombstone, and a change that a newer change of its row has superseded
+ * is pruned after a while, so reading what changed after a sequence number costs as much as the rows that
+ * changed, not as much as the tables.
+ *
+ * <p>The changes are rows of the {@code change_log} table, written by the transaction that makes them, so
+ * they survive a restart and every application instance reads the same log. Right before it commits, a
+ * transaction takes a number of the {@code change_log_seq} sequence, which waits for no other transaction,
+ * and numbers its changes from there. Numbers are therefore taken in about the order the transactions
+ * commit, but a transaction can still commit after one that took a later number. Only the changes up to
+ * {@link #getSequence()} are read: the changes up to the first number that is missing, the number of a
+ * transaction that has not committed yet. A number that stays missing for longer than
+ * {@code workshop.changes.gap-timeout} belongs to a transaction that rolled back or died, and is skipped.
+ * Every instance keeps how far it got, along with the latest committed change of each entity, which the
+ * collection versions are.
+ */
+@Component
+public class ChangeLog {
+
+  public enum Entity {
+    STUDENT,
+    COURSE,
+    ENROLLMENT
+  }
+
+  public enum Type {
+    SAVED,
+    DELETED
+  }
+
+  /** How many changes a transaction numbers from one number of the sequence, it takes another for more. */
+  public static final long CHANGES_PER_NUMBER = 1L << 16;
+
+  private static final int PAGE_SIZE = 1000;
+
+  private final ChangeRepository repository;
+  private final Duration gapTimeout;
+  // null until the first request finds where to start
+  private final AtomicReference<Committed> committed = new AtomicReference<>();
+
+  public ChangeLog(
+      ChangeRepository repository, @Value("${workshop.changes.gap-timeout:PT10S}") Duration gapTimeout) {
+    this.repository = repository;
+    this.gapTimeout = gapTimeout;
+  }
+
+  @EventListener
+  public void onEntity(EntityEvent event) {
+    Entity entity = event.getEntity() == EntityEvent.Entity.STUDENT ? Entity.STUDENT : Entity.COURSE;
+    Type type = event.getType() == EntityEvent.Type.SAVED ? Type.SAVED : Type.DELETED;
+    changed(change(entity, event.getId(), 0, type, null));
+  }
+
+  @EventListener
+  public void onEnrollment(EnrollmentEvent event) {
+    Type type = event.getType() == EnrollmentEvent.Type.CREATED ? Type.SAVED : Type.DELETED;
+    changed(change(Entity.ENROLLMENT, event.getStudentId(), event.getCourseId(), type, event.getEnrollmentDate()));
+  }
+
+  /**
+   * The sequence number up to which every change has committed, 0 while nothing changed. Moving it on only
+   * reads the changes after where it was, usually none.
+   */
+  public long getSequence() {
+    return committed().sequence;
+  }
+
+  /**
+   * The sequence number of the latest committed change of {@code entity}, which moves on with every change
+   * that commits, the same on every application instance, 0 while nothing changed.
+   */
+  public long getVersion(Entity entity) {
+    return committed().versions[entity.ordinal()];
+  }
+
+  /** At most {@code limit} changes after {@code after} and up to {@code upTo}, oldest first. */
+  public List<Change> read(long after, long upTo, int limit) {
+    return repository.findAfter(after, upTo, PageRequest.of(0, limit));
+  }
+
+  /** Deletes the changes that newer changes of their rows have superseded, no reader needs them any more. */
+  @Scheduled(
+      initialDelayString = "${workshop.changes.prune-interval:PT10M}",
+      fixedDelayString = "${workshop.changes.prune-interval:PT10M}")
+  public void prune() {
+    // a reader only still walks past a number that is younger than the gap timeout
+    repository.deleteSuperseded(now().minus(gapTimeout));
+  }
+
+  private Committed committed() {
+    Committed current = committed.get();
+    if (current == null) {
+      current = committed.accumulateAndGet(start(), Committed::later);
+    }
+    while (true) {
+      List<Change> newer = repository.findAfter(current.sequence, Long.MAX_VALUE, PageRequest.of(0, PAGE_SIZE));
+      Committed passed = current.pass(newer, now().minus(gapTimeout));
+      // another request may have moved it on further in the meantime
+      current = committed.accumulateAndGet(passed, Committed::later);
+      if (newer.size() < PAGE_SIZE || passed.sequence != newer.get(newer.size() - 1).getSequence()) {
+        return current;
+      }
+    }
+  }
+
+  // the latest change that is older than the gap timeout, every missing number before it is given up on
+  private Committed start() {
+    LocalDateTime missingSince = now().minus(gapTimeout);
+    long sequence = 0;
+    search:
+    for (int page = 0; ; page++) {
+      List<Change> latest = repository.findLatest(PageRequest.of(page, PAGE_SIZE));
+      for (Change change : latest) {
+        if (!change.getChangedAt().isAfter(missingSince)) {
+          sequence = change.getSequence();
+          break search;
+        }
+      }
+      if (latest.size() < PAGE_SIZE) {
+        break;
+      }
+    }
+    long[] versions = new long[Entity.values().length];
+    for (Entity entity : Entity.values()) {
+      Long version = repository.findLastSequence(entity, sequence);
+      versions[entity.ordinal()] = version == null ? 0 : version;
+    }
+    return new Committed(sequence, versions);
+  }
+
+  private void changed(Change change) {
+    if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+      // without a transaction the change is committed already
+      append(List.of(change));
+      return;
+    }
+    Changes changes = (Changes) TransactionSynchronizationManager.getResource(this);
+    if (changes == null) {
+      changes = new Changes();
+      TransactionSynchronizationManager.bindResource(this, changes);
+      TransactionSynchronizationManager.registerSynchronization(changes);
+    }
+    // a row changed twice in one transaction only needs its last change
+    Key key = Key.of(change);
+    changes.byKey.remove(key);
+    changes.byKey.put(key, change);
+  }
+
+  private void append(List<Change> changes) {
+    LocalDateTime changedAt = now();
+    long first = 0;
+    for (int i = 0; i < changes.size(); i++) {
+      if (i % CHANGES_PER_NUMBER == 0) {
+        first = repository.nextNumber() * CHANGES_PER_NUMBER;
+      }
+      changes.get(i).setSequence(first + i % CHANGES_PER_NUMBER);
+      changes.get(i).setChangedAt(changedAt);
+    }
+    repository.saveAll(changes);
+  }
+
+  private static LocalDateTime now() {
+    return LocalDateTime.now(ZoneOffset.UTC);
+  }
+
+  private static Change change(Entity entity, long id, long courseId, Type type, LocalDateTime enrollmentDate) {
+    Change change = new Change();
+    change.setEntity(entity);
+    change.setRowId(id);
+    change.setCourseId(courseId);
+    change.setType(type);
+    change.setEnrollmentDate(enrollmentDate);
+    return change;
+  }
+
+  // the committed sequence number with the latest committed change of every entity up to it
+  private static final class Committed {
+
+    private final long sequence;
+    private final long[] versions;
+
+    private Committed(long sequence, long[] versions) {
+      this.sequence = sequence;
+      this.versions = versions;
+    }
+
+    private Committed pass(List<Change> newer, LocalDateTime missingSince) {
+      long passed = sequence;
+      long[] passedVersions = versions.clone();
+      for (Change change : newer) {
+        // a number in between belongs to a transaction that did not commit yet, unless it has been missing
+        // for longer than a commit takes, the changes after it were numbered that long ago
+        long number = change.getSequence() / CHANGES_PER_NUMBER;
+        if (number > passed / CHANGES_PER_NUMBER + 1 && change.getChangedAt().isAfter(missingSince)) {
+          break;
+        }
+        passed = change.getSequence();
+        passedVersions[change.getEntity().ordinal()] = passed;
+      }
+      return new Committed(passed, passedVersions);
+    }
+
+    private static Committed later(Committed one, Committed other) {
+      return one == null || other.sequence > one.sequence ? other : one;
+    }
+
+  }
+
+  /** The row a change is about, the same for every change of that student, course or enrollment. */
+  public static final class Key {
+
+    private final Entity entity;
+    private final long rowId;
+    private final long courseId;
+
+    private Key(Entity entity, long rowId, long courseId) {
+      this.entity = entity;
+      this.rowId = rowId;
+      this.courseId = courseId;
+    }
+
+    public static Key of(Change change) {
+      return new Key(change.getEntity(), change.getRowId(), change.getCourseId());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key that = (Key) o;
+      return rowId == that.rowId && courseId == that.courseId && entity == that.entity;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(entity, rowId, courseId);
+    }
+
+  }
+
+  // the changes one transaction made, it leaves them to a transaction it suspends and takes them back
+  private final class Changes implements TransactionSynchronization {
+
+    private final Map<Key, Change> byKey = new LinkedHashMap<>();
+
+    @Override
+    public void suspend() {
+      TransactionSynchronizationManager.unbindResource(ChangeLog.this);
+    }
+
+    @Override
+    public void resume() {
+      TransactionSynchronizationManager.bindResource(ChangeLog.this, this);
+    }
+
+    @Override
+    public void beforeCommit(boolean readOnly) {
+      // the transaction's own writes fail here rather than after it took a number that then stays missing
+      repository.flush();
+      append(new ArrayList<>(byKey.values()));
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(ChangeLog.this);
+    }
+
+  }
+
+}
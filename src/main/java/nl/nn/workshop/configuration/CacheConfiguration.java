@@ -0,0 +1,36 @@
+package nl.nn.workshop.configuration;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+  public static final String STUDENTS = "students";
+  public static final String COURSES = "courses";
+
+  /**
+   * Lets the puts and evictions of a {@code @Transactional} service method reach the cache only once its
+   * transaction committed, so a change that rolls back is never cached, and a read in between can not cache
+   * the row again before the change is visible. The cache manager Spring Boot picks for
+   * {@code spring.cache.type} is wrapped rather than replaced, so that choice and the cache metrics stay.
+   */
+  @Bean
+  public static BeanPostProcessor transactionAwareCacheManager() {
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof CacheManager && !(bean instanceof TransactionAwareCacheManagerProxy)) {
+          return new TransactionAwareCacheManagerProxy((CacheManager) bean);
+        }
+        return bean;
+      }
+    };
+  }
+
+}
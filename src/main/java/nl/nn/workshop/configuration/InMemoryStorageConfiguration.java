@@ -0,0 +1,67 @@
+package nl.nn.workshop.configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import nl.nn.workshop.repository.ChangeRepository;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.repository.memory.InMemoryChangeRepository;
+import nl.nn.workshop.repository.memory.InMemoryCourseRepository;
+import nl.nn.workshop.repository.memory.InMemoryDatabase;
+import nl.nn.workshop.repository.memory.InMemoryEnrollmentRepository;
+import nl.nn.workshop.repository.memory.InMemoryStudentRepository;
+import nl.nn.workshop.repository.memory.InMemoryTransactionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Storage engine of the {@code memory} profile: the repositories live on primitive long keyed tables in
+ * the heap instead of JPA over a database, which that profile leaves unconfigured. Setting
+ * {@code workshop.memory.directory} makes the tables durable through a write-ahead log and snapshots in
+ * that directory.
+ */
+@Configuration
+@Profile("memory")
+public class InMemoryStorageConfiguration {
+
+  @Bean(destroyMethod = "close")
+  public InMemoryDatabase inMemoryDatabase(
+      @Value("${workshop.memory.directory:}") String directory,
+      @Value("${workshop.memory.snapshot-interval:10m}") Duration snapshotInterval) throws IOException {
+    if (directory.isEmpty()) {
+      return new InMemoryDatabase();
+    }
+    return InMemoryDatabase.durable(Paths.get(directory), snapshotInterval);
+  }
+
+  @Bean
+  public ChangeRepository changeRepository(InMemoryDatabase database) {
+    return new InMemoryChangeRepository(database);
+  }
+
+  @Bean
+  public StudentRepository studentRepository(InMemoryDatabase database) {
+    return new InMemoryStudentRepository(database);
+  }
+
+  @Bean
+  public CourseRepository courseRepository(InMemoryDatabase database) {
+    return new InMemoryCourseRepository(database);
+  }
+
+  @Bean
+  public EnrollmentRepository enrollmentRepository(InMemoryDatabase database) {
+    return new InMemoryEnrollmentRepository(database);
+  }
+
+  @Bean
+  public PlatformTransactionManager transactionManager() {
+    return new InMemoryTransactionManager();
+  }
+
+}
@@ -0,0 +1,81 @@
+package nl.nn.workshop.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Times every public service method ({@code workshop.service}) and every mapping call
+ * ({@code workshop.mapping}). HTTP handlers and repository calls are timed by Spring Boot itself as
+ * {@code http.server.requests} and {@code spring.data.repository.invocations}.
+ */
+@Aspect
+@Configuration
+public class MetricsConfiguration {
+
+  private final MeterRegistry meterRegistry;
+  // keyed by the advised method: Spring AOP hands every call a join point of its own, static part included
+  private final Map<Method, Timer> successTimers = new ConcurrentHashMap<>();
+  private final Map<Method, Map<String, Timer>> failureTimers = new ConcurrentHashMap<>();
+
+  public MetricsConfiguration(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Around("execution(public * nl.nn.workshop.service.*Service.*(..))")
+  public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time("workshop.service", joinPoint);
+  }
+
+  @Around("execution(public * nl.nn.workshop.mapper.*Mapper.*(..))")
+  public Object timeMapping(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time("workshop.mapping", joinPoint);
+  }
+
+  private Object time(String name, ProceedingJoinPoint joinPoint) throws Throwable {
+    long start = System.nanoTime();
+    Object result;
+    try {
+      result = joinPoint.proceed();
+    } catch (Throwable e) {
+      // clients probe for missing ids all the time, so a rejection skips the registry lookup as well
+      failureTimers.computeIfAbsent(methodOf(joinPoint), method -> new ConcurrentHashMap<>())
+          .computeIfAbsent(exceptionName(e), exception -> timer(name, joinPoint, exception))
+          .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      throw e;
+    }
+    // one timer per advised method, so the hot path skips the registry lookup
+    successTimers.computeIfAbsent(methodOf(joinPoint), method -> timer(name, joinPoint, "none"))
+        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return result;
+  }
+
+  private static Method methodOf(ProceedingJoinPoint joinPoint) {
+    return ((MethodSignature) joinPoint.getSignature()).getMethod();
+  }
+
+  // the stackless rejections of the services are reported as the ResponseStatusException they are
+  private static String exceptionName(Throwable e) {
+    return e instanceof ResponseStatusException
+        ? ResponseStatusException.class.getSimpleName()
+        : e.getClass().getSimpleName();
+  }
+
+  private Timer timer(String name, ProceedingJoinPoint joinPoint, String exception) {
+    return Timer.builder(name)
+        .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+        .tag("method", joinPoint.getSignature().getName())
+        .tag("exception", exception)
+        .register(meterRegistry);
+  }
+
+}
@@ -0,0 +1,28 @@
+package nl.nn.workshop.controller;
+
+import nl.nn.workshop.resource.ChangeFeedResource;
+import nl.nn.workshop.service.ChangeService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/changes")
+public class ChangeController {
+
+  private final ChangeService changeService;
+
+  public ChangeController(ChangeService changeService) {
+    this.changeService = changeService;
+  }
+
+  @GetMapping
+  public ResponseEntity<ChangeFeedResource> getChanges(
+      @RequestParam(value = "since", required = false) String since,
+      @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+    return ResponseEntity.ok(changeService.findChanges(since, limit));
+  }
+
+}
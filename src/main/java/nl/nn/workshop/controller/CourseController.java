@@ -1,10 +1,21 @@
 package nl.nn.workshop.controller;
 
 import java.util.List;
+import nl.nn.workshop.catalogue.CourseCatalogue;
+import nl.nn.workshop.resource.CourseRecommendationResource;
 import nl.nn.workshop.resource.CourseResource;
+import nl.nn.workshop.resource.CourseStatsResource;
 import nl.nn.workshop.resource.CreateCourseRequestResource;
+import nl.nn.workshop.resource.CursorPageResource;
+import nl.nn.workshop.resource.MultiGetResource;
+import nl.nn.workshop.resource.NameMatchResource;
+import nl.nn.workshop.resource.NameSimilarityResource;
+import nl.nn.workshop.resource.StudentResource;
 import nl.nn.workshop.resource.UpdateCourseRequestResource;
 import nl.nn.workshop.service.CourseService;
+import nl.nn.workshop.service.EnrollmentService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,7 +23,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -20,9 +33,14 @@ import org.springframework.web.bind.annotation.RestController;
 public class CourseController {
 
   private final CourseService courseService;
+  private final EnrollmentService enrollmentService;
+  private final CourseCatalogue courseCatalogue;
 
-  public CourseController(CourseService courseService) {
+  public CourseController(
+      CourseService courseService, EnrollmentService enrollmentService, CourseCatalogue courseCatalogue) {
     this.courseService = courseService;
+    this.enrollmentService = enrollmentService;
+    this.courseCatalogue = courseCatalogue;
   }
 
   @PostMapping
@@ -30,21 +48,107 @@ public class CourseController {
     return ResponseEntity.ok(courseService.create(course));
   }
 
+  @PostMapping(value = "/batch")
+  public ResponseEntity<List<Long>> createCourses(@RequestBody List<CreateCourseRequestResource> courses) {
+    return ResponseEntity.ok(courseService.createAll(courses));
+  }
+
   @PutMapping(value = "/{id}")
   public ResponseEntity<CourseResource> updateCourse(
       @PathVariable(value = "id") long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
       @RequestBody UpdateCourseRequestResource course) {
-    return ResponseEntity.ok(courseService.update(id, course));
+    CourseResource updated = courseService.update(id, course, ETags.expectedVersion(ifMatch));
+    return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(updated);
   }
 
   @GetMapping(value = "/{id}")
-  public ResponseEntity<CourseResource> getCourseById(@PathVariable(value = "id") long id) {
-    return ResponseEntity.ok(courseService.findById(id));
+  public ResponseEntity<CourseResource> getCourseById(
+      @PathVariable(value = "id") long id,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    if (ifNoneMatch != null) {
+      String etag = ETags.of(courseService.findVersion(id));
+      if (ETags.matches(ifNoneMatch, etag)) {
+        return ETags.notModified(etag);
+      }
+    }
+    CourseResource course = courseService.findById(id);
+    return ResponseEntity.ok().eTag(ETags.of(course.getVersion())).body(course);
   }
 
   @GetMapping
-  public ResponseEntity<List<CourseResource>> getAllCourses() {
-    return ResponseEntity.ok(courseService.findAll());
+  public ResponseEntity<byte[]> getAllCourses(
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    long version = courseService.findCollectionVersion();
+    boolean gzip = acceptsGzip(acceptEncoding);
+    // a client may still hold either encoding of the current list, both are up to date
+    if (ETags.matches(ifNoneMatch, ETags.of(version)) || ETags.matches(ifNoneMatch, gzipETag(version))) {
+      return ETags.notModified(gzip ? gzipETag(version) : ETags.of(version));
+    }
+    // already encoded, the bytes are copied to the response as they are
+    CourseCatalogue.Encoded catalogue = courseCatalogue.current();
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .varyBy(HttpHeaders.ACCEPT_ENCODING);
+    if (gzip) {
+      return response
+          .eTag(gzipETag(catalogue.getVersion()))
+          .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+          .body(catalogue.getGzip());
+    }
+    return response.eTag(ETags.of(catalogue.getVersion())).body(catalogue.getJson());
+  }
+
+  @GetMapping(value = "/stats")
+  public ResponseEntity<List<CourseStatsResource>> getAllCourseStats() {
+    return ResponseEntity.ok(courseService.findAllStats());
+  }
+
+  @GetMapping(params = "ids")
+  public ResponseEntity<MultiGetResource<CourseResource>> getCoursesByIds(@RequestParam(value = "ids") long[] ids) {
+    return ResponseEntity.ok(courseService.findAllById(ids));
+  }
+
+  @GetMapping(params = "limit")
+  public ResponseEntity<CursorPageResource<CourseResource>> getCoursePage(
+      @RequestParam(value = "limit") int limit,
+      @RequestParam(value = "cursor", required = false) String cursor) {
+    return ResponseEntity.ok(courseService.findPage(cursor, limit));
+  }
+
+  @GetMapping(value = "/search", params = "prefix")
+  public ResponseEntity<List<NameMatchResource>> searchCourses(
+      @RequestParam(value = "prefix") String prefix,
+      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+    return ResponseEntity.ok(courseService.search(prefix, limit));
+  }
+
+  @GetMapping(value = "/search", params = "query")
+  public ResponseEntity<List<NameSimilarityResource>> searchSimilarCourses(
+      @RequestParam(value = "query") String query,
+      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+    return ResponseEntity.ok(courseService.searchSimilar(query, limit));
+  }
+
+  @GetMapping(value = "/{id}/students")
+  public ResponseEntity<CursorPageResource<StudentResource>> getCourseStudents(
+      @PathVariable(value = "id") long id,
+      @RequestParam(value = "limit", defaultValue = "100") int limit,
+      @RequestParam(value = "cursor", required = false) String cursor) {
+    return ResponseEntity.ok(enrollmentService.findStudentsByCourse(id, cursor, limit));
+  }
+
+  @GetMapping(value = "/{id}/recommendations")
+  public ResponseEntity<List<CourseRecommendationResource>> getCourseRecommendations(
+      @PathVariable(value = "id") long id,
+      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+    return ResponseEntity.ok(courseService.findRecommendations(id, limit));
+  }
+
+  @GetMapping(value = "/{id}/stats")
+  public ResponseEntity<CourseStatsResource> getCourseStats(@PathVariable(value = "id") long id) {
+    return ResponseEntity.ok(courseService.findStats(id));
   }
 
   @DeleteMapping(value = "/{id}")
@@ -53,4 +157,23 @@ public class CourseController {
     return ResponseEntity.noContent().build();
   }
 
+  // the compressed bytes are another representation than the JSON, a strong tag may not be shared between them
+  private static String gzipETag(long version) {
+    return ETags.of(version + "-gzip");
+  }
+
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parameters = coding.split(";");
+      if (parameters[0].trim().equalsIgnoreCase("gzip")) {
+        // gzip;q=0 is the client saying it does not want it
+        return parameters.length == 1 || !parameters[1].trim().matches("q=0(\\.0*)?");
+      }
+    }
+    return false;
+  }
+
 }
@@ -0,0 +1,69 @@
+package nl.nn.workshop.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Strong entity tags made from versions, and the two conditions the controllers evaluate themselves. A
+ * matching {@code If-None-Match} is decided on the version alone, before anything is loaded or serialized,
+ * which the framework's own check on a finished response cannot do.
+ */
+final class ETags {
+
+  private static final long UNMATCHABLE = -1;
+
+  private ETags() {
+  }
+
+  static String of(long version) {
+    return "\"" + version + "\"";
+  }
+
+  static String of(String version) {
+    return "\"" + version + "\"";
+  }
+
+  /** Whether an {@code If-None-Match} header names the tag, compared weakly like the header asks for. */
+  static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.equals("*")) {
+        return true;
+      }
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if (candidate.equals(etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The version an {@code If-Match} header expects, or {@code null} when it sets no condition on the version.
+   * Anything but a single strong tag of a version can never match and yields a version no row has.
+   */
+  static Long expectedVersion(String ifMatch) {
+    if (ifMatch == null || ifMatch.trim().equals("*")) {
+      return null;
+    }
+    String tag = ifMatch.trim();
+    if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+      return UNMATCHABLE;
+    }
+    try {
+      return Long.parseLong(tag.substring(1, tag.length() - 1));
+    } catch (NumberFormatException e) {
+      return UNMATCHABLE;
+    }
+  }
+
+  static <T> ResponseEntity<T> notModified(String etag) {
+    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+  }
+
+}
@@ -1,24 +1,45 @@
 package nl.nn.workshop.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import nl.nn.workshop.events.EnrollmentEventStream;
+import nl.nn.workshop.resource.CursorPageResource;
+import nl.nn.workshop.resource.EnrollmentDetailResource;
 import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.resource.IdSetResource;
 import nl.nn.workshop.service.EnrollmentService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/enrollments")
 public class EnrollmentController {
 
   private final EnrollmentService enrollmentService;
+  private final EnrollmentEventStream eventStream;
+  private final ObjectWriter ndjsonWriter;
 
-  public EnrollmentController(EnrollmentService enrollmentService) {
+  public EnrollmentController(
+      EnrollmentService enrollmentService, EnrollmentEventStream eventStream, ObjectMapper objectMapper) {
     this.enrollmentService = enrollmentService;
+    this.eventStream = eventStream;
+    this.ndjsonWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
   }
 
   @PostMapping(value = "/student/{studentId}/course/{courseId}")
@@ -32,12 +53,78 @@ public class EnrollmentController {
   public ResponseEntity<EnrollmentResource> getEnrollmentById(
       @PathVariable(value = "studentId") Long studentId,
       @PathVariable(value = "courseId") Long courseId) {
-    return ResponseEntity.ok(enrollmentService.findById(studentId, courseId));
+    // an enrollment is never changed, only deleted and made again, so its date is as good as a version;
+    // the framework answers a matching If-None-Match with 304 once the tag is on the response
+    EnrollmentResource enrollment = enrollmentService.findById(studentId, courseId);
+    return ResponseEntity.ok().eTag(ETags.of(enrollment.getEnrollmentDate().toString())).body(enrollment);
   }
 
   @GetMapping
-  public ResponseEntity<List<EnrollmentResource>> getAllEnrollments() {
-    return ResponseEntity.ok(enrollmentService.findAll());
+  public ResponseEntity<List<EnrollmentResource>> getAllEnrollments(
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    // taken before the list is read, a change committing in between can only make the list newer than its tag
+    String etag = ETags.of(enrollmentService.findCollectionVersion());
+    if (ETags.matches(ifNoneMatch, etag)) {
+      return ETags.notModified(etag);
+    }
+    return ResponseEntity.ok().eTag(etag).body(enrollmentService.findAll());
+  }
+
+  @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportAllEnrollments() {
+    StreamingResponseBody body = out -> {
+      JsonGenerator generator = ndjsonWriter.getFactory().createGenerator(out);
+      // every line ends with its own newline, the space Jackson puts between root values would start the next one
+      generator.setRootValueSeparator(null);
+      enrollmentService.exportAll(enrollment -> {
+        try {
+          ndjsonWriter.writeValue(generator, enrollment);
+          generator.writeRaw('\n');
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      generator.flush();
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+  }
+
+  @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamEnrollmentEvents(
+      @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+    return eventStream.subscribe(lastEventId);
+  }
+
+  @GetMapping(params = "limit")
+  public ResponseEntity<CursorPageResource<EnrollmentResource>> getEnrollmentPage(
+      @RequestParam(value = "limit") int limit,
+      @RequestParam(value = "cursor", required = false) String cursor) {
+    return ResponseEntity.ok(enrollmentService.findPage(cursor, limit));
+  }
+
+  @GetMapping(value = "/expanded")
+  public ResponseEntity<CursorPageResource<EnrollmentDetailResource>> getExpandedEnrollmentPage(
+      @RequestParam(value = "studentId", required = false) Long studentId,
+      @RequestParam(value = "courseId", required = false) Long courseId,
+      @RequestParam(value = "limit", defaultValue = "100") int limit,
+      @RequestParam(value = "cursor", required = false) String cursor) {
+    return ResponseEntity.ok(enrollmentService.findDetailsPage(studentId, courseId, cursor, limit));
+  }
+
+  @GetMapping(value = "/students")
+  public ResponseEntity<IdSetResource> getStudentIdsByCourses(
+      @RequestParam(value = "all", defaultValue = "") long[] all,
+      @RequestParam(value = "any", defaultValue = "") long[] any,
+      @RequestParam(value = "none", defaultValue = "") long[] none) {
+    return ResponseEntity.ok(enrollmentService.findStudentIdsByCourses(all, any, none));
+  }
+
+  @GetMapping(value = "/courses")
+  public ResponseEntity<IdSetResource> getCourseIdsByStudents(
+      @RequestParam(value = "all", defaultValue = "") long[] all,
+      @RequestParam(value = "any", defaultValue = "") long[] any,
+      @RequestParam(value = "none", defaultValue = "") long[] none) {
+    return ResponseEntity.ok(enrollmentService.findCourseIdsByStudents(all, any, none));
   }
 
   @DeleteMapping(value = "/student/{studentId}/course/{courseId}")
@@ -1,10 +1,17 @@
 package nl.nn.workshop.controller;
 
 import java.util.List;
+import nl.nn.workshop.resource.CourseResource;
 import nl.nn.workshop.resource.CreateStudentRequestResource;
+import nl.nn.workshop.resource.CursorPageResource;
+import nl.nn.workshop.resource.MultiGetResource;
+import nl.nn.workshop.resource.NameMatchResource;
+import nl.nn.workshop.resource.NameSimilarityResource;
 import nl.nn.workshop.resource.StudentResource;
 import nl.nn.workshop.resource.UpdateStudentRequestResource;
+import nl.nn.workshop.service.EnrollmentService;
 import nl.nn.workshop.service.StudentService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,7 +19,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -20,9 +29,11 @@ import org.springframework.web.bind.annotation.RestController;
 public class StudentController {
 
   private final StudentService studentService;
+  private final EnrollmentService enrollmentService;
 
-  public StudentController(StudentService studentService) {
+  public StudentController(StudentService studentService, EnrollmentService enrollmentService) {
     this.studentService = studentService;
+    this.enrollmentService = enrollmentService;
   }
 
   @PostMapping
@@ -30,21 +41,77 @@ public class StudentController {
     return ResponseEntity.ok(studentService.create(student));
   }
 
+  @PostMapping(value = "/batch")
+  public ResponseEntity<List<Long>> createStudents(@RequestBody List<CreateStudentRequestResource> students) {
+    return ResponseEntity.ok(studentService.createAll(students));
+  }
+
   @PutMapping(value = "/{id}")
   public ResponseEntity<StudentResource> updateStudent(
       @PathVariable(value = "id") long id,
+      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
       @RequestBody UpdateStudentRequestResource student) {
-    return ResponseEntity.ok(studentService.update(id, student));
+    StudentResource updated = studentService.update(id, student, ETags.expectedVersion(ifMatch));
+    return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(updated);
   }
 
   @GetMapping(value = "/{id}")
-  public ResponseEntity<StudentResource> getStudentById(@PathVariable(value = "id") long id) {
-    return ResponseEntity.ok(studentService.findById(id));
+  public ResponseEntity<StudentResource> getStudentById(
+      @PathVariable(value = "id") long id,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    if (ifNoneMatch != null) {
+      String etag = ETags.of(studentService.findVersion(id));
+      if (ETags.matches(ifNoneMatch, etag)) {
+        return ETags.notModified(etag);
+      }
+    }
+    StudentResource student = studentService.findById(id);
+    return ResponseEntity.ok().eTag(ETags.of(student.getVersion())).body(student);
   }
 
   @GetMapping
-  public ResponseEntity<List<StudentResource>> getAllStudents() {
-    return ResponseEntity.ok(studentService.findAll());
+  public ResponseEntity<List<StudentResource>> getAllStudents(
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    // taken before the list is read, a change committing in between can only make the list newer than its tag
+    String etag = ETags.of(studentService.findCollectionVersion());
+    if (ETags.matches(ifNoneMatch, etag)) {
+      return ETags.notModified(etag);
+    }
+    return ResponseEntity.ok().eTag(etag).body(studentService.findAll());
+  }
+
+  @GetMapping(params = "ids")
+  public ResponseEntity<MultiGetResource<StudentResource>> getStudentsByIds(@RequestParam(value = "ids") long[] ids) {
+    return ResponseEntity.ok(studentService.findAllById(ids));
+  }
+
+  @GetMapping(params = "limit")
+  public ResponseEntity<CursorPageResource<StudentResource>> getStudentPage(
+      @RequestParam(value = "limit") int limit,
+      @RequestParam(value = "cursor", required = false) String cursor) {
+    return ResponseEntity.ok(studentService.findPage(cursor, limit));
+  }
+
+  @GetMapping(value = "/search", params = "prefix")
+  public ResponseEntity<List<NameMatchResource>> searchStudents(
+      @RequestParam(value = "prefix") String prefix,
+      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+    return ResponseEntity.ok(studentService.search(prefix, limit));
+  }
+
+  @GetMapping(value = "/search", params = "query")
+  public ResponseEntity<List<NameSimilarityResource>> searchSimilarStudents(
+      @RequestParam(value = "query") String query,
+      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+    return ResponseEntity.ok(studentService.searchSimilar(query, limit));
+  }
+
+  @GetMapping(value = "/{id}/courses")
+  public ResponseEntity<CursorPageResource<CourseResource>> getStudentCourses(
+      @PathVariable(value = "id") long id,
+      @RequestParam(value = "limit", defaultValue = "100") int limit,
+      @RequestParam(value = "cursor", required = false) String cursor) {
+    return ResponseEntity.ok(enrollmentService.findCoursesByStudent(id, cursor, limit));
   }
 
   @DeleteMapping(value = "/{id}")
@@ -0,0 +1,286 @@
+package nl.nn.workshop.events;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.service.EnrollmentEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes every committed enrollment that is created or deleted to the clients subscribed to it, as
+ * server-sent events named {@code created} and {@code deleted} that carry the enrollment. Each event has an
+ * id, and a client that reconnects with the id of the last event it got, as {@code EventSource} does by
+ * itself, is sent what it missed first.
+ *
+ * <p>Publishing never waits for a client. Every subscriber has a ring buffer of
+ * {@code workshop.enrollment-events.buffer} events that a thread of its own empties onto the connection, and
+ * a subscriber whose buffer is full is disconnected instead of holding up the others or being sent a stream
+ * with a gap in it. The last events are kept as well, as many as fit in a buffer, so the disconnected client
+ * resumes where it was as long as it did not fall further behind than that. A client that did, or whose
+ * last event id is from before a restart, gets 410 Gone and starts over with {@code GET /enrollments}.
+ *
+ * <p>The stream follows committed {@link EnrollmentEvent}s, so with several application instances every
+ * instance only streams the enrollments made through itself, and the ids of one instance mean nothing to
+ * another.
+ */
+@Component
+public class EnrollmentEventStream {
+
+  private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+  private final int capacity;
+  private final long timeout;
+  private final Event[] history;
+  private final Set<Subscriber> subscribers = new LinkedHashSet<>();
+  private final ExecutorService senders;
+  private long sequence;
+
+  @Autowired
+  public EnrollmentEventStream(
+      @Value("${workshop.enrollment-events.buffer:1000}") int capacity,
+      @Value("${workshop.enrollment-events.timeout:PT30M}") Duration timeout) {
+    // a sender can be stuck writing to a slow client for a while, so no subscriber waits for a free thread
+    this(capacity, timeout, Executors.newCachedThreadPool(new ThreadFactory() {
+      private final AtomicInteger threads = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "workshop-enrollment-events-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    }));
+  }
+
+  EnrollmentEventStream(int capacity, Duration timeout, ExecutorService senders) {
+    this.capacity = capacity;
+    this.timeout = timeout.toMillis();
+    this.history = new Event[capacity];
+    this.senders = senders;
+  }
+
+  /**
+   * Subscribes a client, first sending it the events after {@code lastEventId} when it has one.
+   *
+   * @throws ResponseStatusException 400 when the id is not one of ours, 410 when the events after it are no
+   *     longer known
+   */
+  public synchronized SseEmitter subscribe(String lastEventId) {
+    List<Event> missed = lastEventId == null || lastEventId.isEmpty() ? List.of() : missedSince(lastEventId);
+    SseEmitter emitter = new SseEmitter(timeout);
+    Subscriber subscriber = new Subscriber(emitter);
+    subscribers.add(subscriber);
+    emitter.onCompletion(() -> unsubscribe(subscriber));
+    // an EventSource reconnects by itself after a timeout, with the id of the last event it got
+    emitter.onTimeout(emitter::complete);
+    emitter.onError(e -> unsubscribe(subscriber));
+    for (Event event : missed) {
+      subscriber.offer(event);
+    }
+    return emitter;
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public synchronized void onEnrollment(EnrollmentEvent event) {
+    String name = event.getType() == EnrollmentEvent.Type.CREATED ? "created" : "deleted";
+    EnrollmentResource enrollment =
+        new EnrollmentResource(event.getStudentId(), event.getCourseId(), event.getEnrollmentDate());
+    Event published = new Event(++sequence, name, enrollment);
+    history[(int) (published.sequence % capacity)] = published;
+    for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+      subscriber.offer(published);
+    }
+  }
+
+  /**
+   * Sends a comment to the subscribers that have nothing else to be sent. It keeps proxies from closing a
+   * quiet connection, and a client that went away is noticed and let go.
+   */
+  @Scheduled(
+      initialDelayString = "${workshop.enrollment-events.heartbeat:PT15S}",
+      fixedDelayString = "${workshop.enrollment-events.heartbeat:PT15S}")
+  public synchronized void heartbeat() {
+    for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+      subscriber.heartbeat();
+    }
+  }
+
+  public synchronized int getSubscriberCount() {
+    return subscribers.size();
+  }
+
+  @PreDestroy
+  public void close() {
+    List<Subscriber> closing;
+    synchronized (this) {
+      closing = new ArrayList<>(subscribers);
+      subscribers.clear();
+    }
+    closing.forEach(Subscriber::disconnect);
+    senders.shutdown();
+  }
+
+  private List<Event> missedSince(String lastEventId) {
+    int separator = lastEventId.lastIndexOf('-');
+    long last;
+    try {
+      last = Long.parseLong(lastEventId.substring(separator + 1));
+    } catch (NumberFormatException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "last event id is not valid");
+    }
+    if (separator < 0 || last < 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "last event id is not valid");
+    }
+    if (!lastEventId.substring(0, separator).equals(epoch) || sequence - last > capacity) {
+      throw new ResponseStatusException(
+          HttpStatus.GONE,
+          "events since the last event id are no longer known, start over with a full download");
+    }
+    if (last > sequence) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "last event id is not valid");
+    }
+    List<Event> missed = new ArrayList<>((int) (sequence - last));
+    for (long missing = last + 1; missing <= sequence; missing++) {
+      missed.add(history[(int) (missing % capacity)]);
+    }
+    return missed;
+  }
+
+  private synchronized void unsubscribe(Subscriber subscriber) {
+    subscribers.remove(subscriber);
+  }
+
+  private static final class Event {
+
+    // sent to an idle subscriber as a comment, it is never part of the history
+    private static final Event HEARTBEAT = new Event(0, null, null);
+    // tells the sender to complete the response once the subscriber is let go
+    private static final Event DISCONNECT = new Event(0, null, null);
+
+    private final long sequence;
+    private final String name;
+    private final EnrollmentResource enrollment;
+
+    private Event(long sequence, String name, EnrollmentResource enrollment) {
+      this.sequence = sequence;
+      this.name = name;
+      this.enrollment = enrollment;
+    }
+
+  }
+
+  private final class Subscriber {
+
+    private final SseEmitter emitter;
+    private final Event[] buffer = new Event[capacity];
+    private int head;
+    private int size;
+    private boolean sending;
+    private boolean disconnected;
+
+    private Subscriber(SseEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    // called with the stream locked, so it only ever touches the buffer and leaves the emitter to the sender
+    private synchronized void offer(Event event) {
+      if (disconnected) {
+        return;
+      }
+      if (size == capacity) {
+        // too slow to keep up, it resumes from its last event id once it reconnects
+        subscribers.remove(this);
+        Arrays.fill(buffer, null);
+        size = 0;
+        disconnect();
+        return;
+      }
+      buffer[(head + size) % capacity] = event;
+      size++;
+      wake();
+    }
+
+    private synchronized void heartbeat() {
+      if (size == 0) {
+        offer(Event.HEARTBEAT);
+      }
+    }
+
+    private synchronized void disconnect() {
+      if (!disconnected) {
+        disconnected = true;
+        wake();
+      }
+    }
+
+    private synchronized Event next() {
+      if (disconnected || size == 0) {
+        sending = false;
+        return disconnected ? Event.DISCONNECT : null;
+      }
+      Event event = buffer[head];
+      buffer[head] = null;
+      head = (head + 1) % capacity;
+      size--;
+      return event;
+    }
+
+    private void wake() {
+      if (!sending) {
+        sending = true;
+        senders.execute(this::send);
+      }
+    }
+
+    private void send() {
+      while (true) {
+        Event event = next();
+        if (event == null) {
+          return;
+        }
+        if (event == Event.DISCONNECT) {
+          // outside the lock, completing runs the callbacks and they lock the stream, which offers with it locked
+          emitter.complete();
+          return;
+        }
+        try {
+          emitter.send(event == Event.HEARTBEAT
+              ? SseEmitter.event().comment("heartbeat")
+              : SseEmitter.event()
+                  .id(epoch + "-" + event.sequence)
+                  .name(event.name)
+                  .data(event.enrollment, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+          // the client went away or the emitter was completed, the container tells the callbacks
+          synchronized (this) {
+            disconnected = true;
+            sending = false;
+            Arrays.fill(buffer, null);
+            size = 0;
+          }
+          unsubscribe(this);
+          return;
+        }
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,180 @@
+package nl.nn.workshop.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.service.EnrollmentEvent;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Enrollments as compressed bitmaps: per course the set of enrolled student ids and per student the set
+ * of course ids. Intersections, unions and differences of those sets run over the bitmap containers
+ * instead of over rows, so set queries across courses answer in microseconds.
+ *
+ * <p>The index is filled from {@link EnrollmentRepository#streamAll()} once the application is ready and
+ * then follows committed {@link EnrollmentEvent}s. Events that arrive while it is still loading are queued
+ * and replayed on top of the loaded state, adds and removes are idempotent so overlap does no harm.
+ */
+@Component
+public class EnrollmentIndex {
+
+  // roaring bitmaps hold unsigned 32 bit values, far beyond what the id sequences reach
+  private static final long MAX_ID = 0xFFFF_FFFFL;
+
+  private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+  private final EnrollmentRepository enrollmentRepository;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Integer, RoaringBitmap> studentsByCourse = new HashMap<>();
+  private final Map<Integer, RoaringBitmap> coursesByStudent = new HashMap<>();
+  private List<EnrollmentEvent> pending = new ArrayList<>();
+
+  public EnrollmentIndex(EnrollmentRepository enrollmentRepository) {
+    this.enrollmentRepository = enrollmentRepository;
+  }
+
+  @Transactional(readOnly = true)
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    Map<Integer, RoaringBitmap> byCourse = new HashMap<>();
+    Map<Integer, RoaringBitmap> byStudent = new HashMap<>();
+    try (Stream<EnrollmentResource> enrollments = enrollmentRepository.streamAll()) {
+      enrollments.forEach(enrollment ->
+          add(byCourse, byStudent, enrollment.getStudentId(), enrollment.getCourseId()));
+    }
+    byCourse.values().forEach(RoaringBitmap::runOptimize);
+    byStudent.values().forEach(RoaringBitmap::runOptimize);
+
+    lock.writeLock().lock();
+    try {
+      studentsByCourse.putAll(byCourse);
+      coursesByStudent.putAll(byStudent);
+      pending.forEach(this::apply);
+      pending = null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEnrollment(EnrollmentEvent event) {
+    lock.writeLock().lock();
+    try {
+      if (pending != null) {
+        pending.add(event);
+      } else {
+        apply(event);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean isLoaded() {
+    lock.readLock().lock();
+    try {
+      return pending == null;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Ids of the students enrolled in every course of {@code all}, in at least one course of {@code any}
+   * and in none of {@code none}, in ascending order. An empty {@code all} or {@code any} does not
+   * restrict, but at least one of them must be given.
+   */
+  public long[] findStudents(long[] all, long[] any, long[] none) {
+    return query(studentsByCourse, all, any, none);
+  }
+
+  /** The same set algebra as {@link #findStudents} for the courses taken by the given students. */
+  public long[] findCourses(long[] all, long[] any, long[] none) {
+    return query(coursesByStudent, all, any, none);
+  }
+
+  private long[] query(Map<Integer, RoaringBitmap> bitmaps, long[] all, long[] any, long[] none) {
+    if (all.length == 0 && any.length == 0) {
+      throw new IllegalArgumentException("at least one of all or any must be given");
+    }
+    lock.readLock().lock();
+    try {
+      RoaringBitmap result = null;
+      if (all.length > 0) {
+        // the aggregation starts from the smallest bitmap, so one rare course keeps the whole query cheap
+        result = FastAggregation.and(bitmaps(bitmaps, all));
+      }
+      if (any.length > 0) {
+        RoaringBitmap union = FastAggregation.or(bitmaps(bitmaps, any));
+        result = result == null ? union : RoaringBitmap.and(result, union);
+      }
+      if (none.length > 0) {
+        result = RoaringBitmap.andNot(result, FastAggregation.or(bitmaps(bitmaps, none)));
+      }
+      // the result may still share containers with the index, so it is read before the lock goes
+      long[] ids = new long[result.getCardinality()];
+      int i = 0;
+      for (int id : result) {
+        ids[i++] = Integer.toUnsignedLong(id);
+      }
+      return ids;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static RoaringBitmap[] bitmaps(Map<Integer, RoaringBitmap> bitmaps, long[] ids) {
+    RoaringBitmap[] found = new RoaringBitmap[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      found[i] = indexable(ids[i]) ? bitmaps.getOrDefault((int) ids[i], EMPTY) : EMPTY;
+    }
+    return found;
+  }
+
+  private void apply(EnrollmentEvent event) {
+    if (event.getType() == EnrollmentEvent.Type.CREATED) {
+      add(studentsByCourse, coursesByStudent, event.getStudentId(), event.getCourseId());
+    } else {
+      remove(studentsByCourse, event.getCourseId(), event.getStudentId());
+      remove(coursesByStudent, event.getStudentId(), event.getCourseId());
+    }
+  }
+
+  private static void add(
+      Map<Integer, RoaringBitmap> byCourse, Map<Integer, RoaringBitmap> byStudent, long studentId, long courseId) {
+    if (indexable(studentId) && indexable(courseId)) {
+      byCourse.computeIfAbsent((int) courseId, id -> new RoaringBitmap()).add((int) studentId);
+      byStudent.computeIfAbsent((int) studentId, id -> new RoaringBitmap()).add((int) courseId);
+    }
+  }
+
+  private static void remove(Map<Integer, RoaringBitmap> bitmaps, long key, long value) {
+    if (!indexable(key) || !indexable(value)) {
+      return;
+    }
+    RoaringBitmap bitmap = bitmaps.get((int) key);
+    if (bitmap != null) {
+      bitmap.remove((int) value);
+      if (bitmap.isEmpty()) {
+        bitmaps.remove((int) key);
+      }
+    }
+  }
+
+  private static boolean indexable(long id) {
+    return id > 0 && id <= MAX_ID;
+  }
+
+}
@@ -0,0 +1,28 @@
+package nl.nn.workshop.mapper;
+
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.resource.CourseResource;
+import nl.nn.workshop.resource.CreateCourseRequestResource;
+import nl.nn.workshop.resource.UpdateCourseRequestResource;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+
+@Mapper(componentModel = "spring")
+public interface CourseMapper {
+
+  CourseResource toResource(Course course);
+
+  @Mapping(target = "id", ignore = true)
+  @Mapping(target = "seatsTaken", ignore = true)
+  @Mapping(target = "version", ignore = true)
+  Course toEntity(CreateCourseRequestResource resource);
+
+  // the capacity is fixed once seats are handed out against it
+  @Mapping(target = "id", ignore = true)
+  @Mapping(target = "capacity", ignore = true)
+  @Mapping(target = "seatsTaken", ignore = true)
+  @Mapping(target = "version", ignore = true)
+  void update(UpdateCourseRequestResource resource, @MappingTarget Course course);
+
+}
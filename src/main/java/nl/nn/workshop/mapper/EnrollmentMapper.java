@@ -0,0 +1,12 @@
+package nl.nn.workshop.mapper;
+
+import nl.nn.workshop.model.Enrollment;
+import nl.nn.workshop.resource.EnrollmentResource;
+import org.mapstruct.Mapper;
+
+@Mapper(componentModel = "spring")
+public interface EnrollmentMapper {
+
+  EnrollmentResource toResource(Enrollment enrollment);
+
+}
@@ -0,0 +1,24 @@
+package nl.nn.workshop.mapper;
+
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.resource.CreateStudentRequestResource;
+import nl.nn.workshop.resource.StudentResource;
+import nl.nn.workshop.resource.UpdateStudentRequestResource;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+
+@Mapper(componentModel = "spring")
+public interface StudentMapper {
+
+  StudentResource toResource(Student student);
+
+  @Mapping(target = "id", ignore = true)
+  @Mapping(target = "version", ignore = true)
+  Student toEntity(CreateStudentRequestResource resource);
+
+  @Mapping(target = "id", ignore = true)
+  @Mapping(target = "version", ignore = true)
+  void update(UpdateStudentRequestResource resource, @MappingTarget Student student);
+
+}
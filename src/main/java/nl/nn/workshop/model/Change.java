@@ -0,0 +1,146 @@
+package nl.nn.workshop.model;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import nl.nn.workshop.changes.ChangeLog;
+import org.springframework.data.domain.Persistable;
+
+/** A change of one student, course or enrollment, a deleted one stays behind as a tombstone. */
+@Entity
+@Table(name = "change_log")
+public class Change implements Persistable<Long> {
+
+  @Id
+  @Column(name = "sequence")
+  private long sequence;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "entity")
+  private ChangeLog.Entity entity;
+
+  // the id of a student or course, the student id of an enrollment
+  @Column(name = "row_id")
+  private long rowId;
+
+  // the course id of an enrollment, 0 for a student or course
+  @Column(name = "course_id")
+  private long courseId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "type")
+  private ChangeLog.Type type;
+
+  // the date of an enrollment, which never changes and so travels with the change itself
+  @Column(name = "enrollment_date")
+  private LocalDateTime enrollmentDate;
+
+  // in UTC, when the transaction took its number, so instances in other time zones compare the same
+  @Column(name = "changed_at")
+  private LocalDateTime changedAt;
+
+  // the sequence number is assigned, not generated, so saving a new change inserts it without a lookup
+  @Transient
+  private boolean stored;
+
+  @Override
+  public Long getId() {
+    return sequence;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public void setSequence(long sequence) {
+    this.sequence = sequence;
+  }
+
+  public ChangeLog.Entity getEntity() {
+    return entity;
+  }
+
+  public void setEntity(ChangeLog.Entity entity) {
+    this.entity = entity;
+  }
+
+  /** The id of a student or course, the student id of an enrollment. */
+  public long getRowId() {
+    return rowId;
+  }
+
+  public void setRowId(long rowId) {
+    this.rowId = rowId;
+  }
+
+  public long getCourseId() {
+    return courseId;
+  }
+
+  public void setCourseId(long courseId) {
+    this.courseId = courseId;
+  }
+
+  public ChangeLog.Type getType() {
+    return type;
+  }
+
+  public void setType(ChangeLog.Type type) {
+    this.type = type;
+  }
+
+  public LocalDateTime getEnrollmentDate() {
+    return enrollmentDate;
+  }
+
+  public void setEnrollmentDate(LocalDateTime enrollmentDate) {
+    this.enrollmentDate = enrollmentDate;
+  }
+
+  public LocalDateTime getChangedAt() {
+    return changedAt;
+  }
+
+  public void setChangedAt(LocalDateTime changedAt) {
+    this.changedAt = changedAt;
+  }
+
+  @Override
+  public boolean isNew() {
+    return !stored;
+  }
+
+  @PostLoad
+  @PostPersist
+  void stored() {
+    stored = true;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    Change that = (Change) o;
+    return sequence == that.sequence && rowId == that.rowId && courseId == that.courseId && entity == that.entity
+        && type == that.type && Objects.equals(enrollmentDate, that.enrollmentDate)
+        && Objects.equals(changedAt, that.changedAt);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(sequence, entity, rowId, courseId, type, enrollmentDate, changedAt);
+  }
+
+}
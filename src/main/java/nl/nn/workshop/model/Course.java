@@ -6,7 +6,9 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
 @Table(name = "course")
@@ -14,7 +16,8 @@ public class Course {
 
   @Id
   @Column(name = "id")
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "course_id_seq")
+  @SequenceGenerator(name = "course_id_seq", sequenceName = "course_id_seq", allocationSize = 50)
   private long id;
 
   @Column(name = "name")
@@ -23,6 +26,18 @@ public class Course {
   @Column(name = "available")
   private boolean available;
 
+  @Column(name = "capacity")
+  private Integer capacity;
+
+  // only ever changed by the seat reservation statements, saving a loaded course must not write it back
+  @Column(name = "seats_taken", insertable = false, updatable = false)
+  private int seatsTaken;
+
+  // moved on by every update that changes the row, the seat reservation statements leave it alone
+  @Version
+  @Column(name = "version")
+  private long version;
+
   public long getId() {
     return id;
   }
@@ -47,6 +62,30 @@ public class Course {
     this.available = available;
   }
 
+  public Integer getCapacity() {
+    return capacity;
+  }
+
+  public void setCapacity(Integer capacity) {
+    this.capacity = capacity;
+  }
+
+  public int getSeatsTaken() {
+    return seatsTaken;
+  }
+
+  public void setSeatsTaken(int seatsTaken) {
+    this.seatsTaken = seatsTaken;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -56,12 +95,14 @@ public class Course {
       return false;
     }
     Course course = (Course) o;
-    return id == course.id && available == course.available && Objects.equals(name, course.name);
+    return id == course.id && available == course.available && seatsTaken == course.seatsTaken
+        && version == course.version && Objects.equals(name, course.name)
+        && Objects.equals(capacity, course.capacity);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(id, name, available);
+    return Objects.hash(id, name, available, capacity, seatsTaken, version);
   }
 
 }
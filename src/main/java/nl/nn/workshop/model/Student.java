@@ -7,7 +7,9 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
 @Table(name = "student")
@@ -15,7 +17,8 @@ public class Student {
 
   @Id
   @Column(name = "id")
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_id_seq")
+  @SequenceGenerator(name = "student_id_seq", sequenceName = "student_id_seq", allocationSize = 50)
   private long id;
 
   @Column(name = "name")
@@ -24,6 +27,11 @@ public class Student {
   @Column(name = "birthday")
   private LocalDate birthday;
 
+  // moved on by every update that changes the row, an update of an outdated copy matches no row
+  @Version
+  @Column(name = "version")
+  private long version;
+
   public long getId() {
     return id;
   }
@@ -48,6 +56,14 @@ public class Student {
     this.birthday = birthday;
   }
 
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -57,13 +73,13 @@ public class Student {
       return false;
     }
     Student student = (Student) o;
-    return id == student.id && Objects.equals(name, student.name) && Objects.equals(birthday,
-        student.birthday);
+    return id == student.id && version == student.version && Objects.equals(name, student.name)
+        && Objects.equals(birthday, student.birthday);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(id, name, birthday);
+    return Objects.hash(id, name, birthday, version);
   }
 
 }
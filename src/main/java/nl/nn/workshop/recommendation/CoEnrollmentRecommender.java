@@ -0,0 +1,381 @@
+package nl.nn.workshop.recommendation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.resource.CourseRecommendationResource;
+import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.service.EnrollmentEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * "Students who took this course also took ..." counts. For every pair of courses it knows how many
+ * students took both, and per course it keeps the {@link #TOP_K} strongest neighbours ready to serve.
+ *
+ * <p>The initial counts are computed on the common fork/join pool: enrollments are sorted by student and
+ * split at student boundaries, every partition counts the course pairs of its own students and the
+ * sorted partial counts are merged on the way back up. Afterwards each committed {@link EnrollmentEvent}
+ * adjusts only the pairs of the student it concerns and republishes the neighbours of the touched courses.
+ * Readers never lock, they get the last published array of a course.
+ */
+@Component
+public class CoEnrollmentRecommender {
+
+  /** Neighbours kept per course, the most one request can ask for. */
+  public static final int TOP_K = 20;
+
+  // pairs of ids are packed into one long, which sorts like the pair as long as both are non-negative ints
+  private static final long MAX_ID = Integer.MAX_VALUE;
+  // below this many enrollments a partition is counted by a single thread
+  private static final int PARTITION_SIZE = 1 << 14;
+  private static final int[] NO_COURSES = {};
+
+  private final EnrollmentRepository enrollmentRepository;
+  private final Map<Integer, int[]> coursesByStudent = new HashMap<>();
+  private final Map<Integer, Neighbours> neighboursByCourse = new HashMap<>();
+  // per course its best neighbours as rank(count, course id), replaced as a whole on every change
+  private final Map<Integer, long[]> topByCourse = new ConcurrentHashMap<>();
+  private List<EnrollmentEvent> pending = new ArrayList<>();
+  private volatile boolean loaded;
+
+  public CoEnrollmentRecommender(EnrollmentRepository enrollmentRepository) {
+    this.enrollmentRepository = enrollmentRepository;
+  }
+
+  @Transactional(readOnly = true)
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    long[] enrollments;
+    try (Stream<EnrollmentResource> stream = enrollmentRepository.streamAll()) {
+      enrollments = stream
+          .filter(enrollment -> packable(enrollment.getStudentId()) && packable(enrollment.getCourseId()))
+          .mapToLong(enrollment -> pack(enrollment.getStudentId(), enrollment.getCourseId()))
+          .toArray();
+    }
+    Arrays.parallelSort(enrollments);
+    PairCounts pairs = ForkJoinPool.commonPool().invoke(new CountTask(enrollments, 0, enrollments.length));
+
+    synchronized (this) {
+      for (int from = 0; from < enrollments.length; ) {
+        int to = endOfStudent(enrollments, from, enrollments.length);
+        int[] courses = new int[to - from];
+        for (int i = from; i < to; i++) {
+          courses[i - from] = (int) low(enrollments[i]);
+        }
+        coursesByStudent.put((int) high(enrollments[from]), courses);
+        from = to;
+      }
+      // the pairs are sorted by course and then neighbour, so every course is one run of sorted neighbours
+      for (int from = 0; from < pairs.size; ) {
+        int course = (int) high(pairs.keys[from]);
+        int to = from;
+        while (to < pairs.size && high(pairs.keys[to]) == course) {
+          to++;
+        }
+        Neighbours neighbours = new Neighbours(to - from);
+        for (int i = from; i < to; i++) {
+          neighbours.ids[i - from] = (int) low(pairs.keys[i]);
+          neighbours.counts[i - from] = pairs.counts[i];
+        }
+        neighbours.size = to - from;
+        neighboursByCourse.put(course, neighbours);
+        topByCourse.put(course, neighbours.top(TOP_K));
+        from = to;
+      }
+      pending.forEach(this::apply);
+      pending = null;
+      loaded = true;
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public synchronized void onEnrollment(EnrollmentEvent event) {
+    if (pending != null) {
+      pending.add(event);
+    } else {
+      apply(event);
+    }
+  }
+
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /** The courses most often taken together with {@code courseId}, strongest first, at most {@code limit}. */
+  public List<CourseRecommendationResource> findRecommendations(long courseId, int limit) {
+    long[] top = packable(courseId) ? topByCourse.get((int) courseId) : null;
+    if (top == null) {
+      return List.of();
+    }
+    List<CourseRecommendationResource> recommendations = new ArrayList<>(Math.min(limit, top.length));
+    for (int i = 0; i < top.length && i < limit; i++) {
+      recommendations.add(new CourseRecommendationResource(rankedId(top[i]), rankedCount(top[i])));
+    }
+    return recommendations;
+  }
+
+  private void apply(EnrollmentEvent event) {
+    if (!packable(event.getStudentId()) || !packable(event.getCourseId())) {
+      return;
+    }
+    int student = (int) event.getStudentId();
+    int course = (int) event.getCourseId();
+    int[] courses = coursesByStudent.getOrDefault(student, NO_COURSES);
+    int index = Arrays.binarySearch(courses, course);
+    boolean created = event.getType() == EnrollmentEvent.Type.CREATED;
+    // a replayed event that the initial load already contained changes nothing
+    if (created == (index >= 0)) {
+      return;
+    }
+
+    int delta = created ? 1 : -1;
+    for (int other : courses) {
+      if (other != course) {
+        count(course, other, delta);
+        count(other, course, delta);
+        publish(other);
+      }
+    }
+    publish(course);
+
+    int[] updated;
+    if (created) {
+      int insertAt = -index - 1;
+      updated = new int[courses.length + 1];
+      System.arraycopy(courses, 0, updated, 0, insertAt);
+      updated[insertAt] = course;
+      System.arraycopy(courses, insertAt, updated, insertAt + 1, courses.length - insertAt);
+    } else {
+      updated = new int[courses.length - 1];
+      System.arraycopy(courses, 0, updated, 0, index);
+      System.arraycopy(courses, index + 1, updated, index, courses.length - index - 1);
+    }
+    if (updated.length == 0) {
+      coursesByStudent.remove(student);
+    } else {
+      coursesByStudent.put(student, updated);
+    }
+  }
+
+  private void count(int course, int neighbour, int delta) {
+    neighboursByCourse.computeIfAbsent(course, id -> new Neighbours(4)).add(neighbour, delta);
+  }
+
+  private void publish(int course) {
+    Neighbours neighbours = neighboursByCourse.get(course);
+    if (neighbours == null || neighbours.size == 0) {
+      neighboursByCourse.remove(course);
+      topByCourse.remove(course);
+    } else {
+      topByCourse.put(course, neighbours.top(TOP_K));
+    }
+  }
+
+  private static boolean packable(long id) {
+    return id > 0 && id <= MAX_ID;
+  }
+
+  private static long pack(long high, long low) {
+    return high << 32 | low;
+  }
+
+  private static long high(long key) {
+    return key >>> 32;
+  }
+
+  private static long low(long key) {
+    return key & 0xFFFF_FFFFL;
+  }
+
+  private static int endOfStudent(long[] enrollments, int from, int to) {
+    long student = high(enrollments[from]);
+    int end = from + 1;
+    while (end < to && high(enrollments[end]) == student) {
+      end++;
+    }
+    return end;
+  }
+
+  // higher counts rank first, equal counts fall back to the lower course id
+  private static long rank(int count, int courseId) {
+    return (long) count << 32 | (MAX_ID - courseId);
+  }
+
+  private static long rankedId(long rank) {
+    return MAX_ID - low(rank);
+  }
+
+  private static int rankedCount(long rank) {
+    return (int) high(rank);
+  }
+
+  /** Co-enrollment counts of one course, as parallel arrays sorted by neighbour id. */
+  private static final class Neighbours {
+
+    int[] ids;
+    int[] counts;
+    int size;
+
+    Neighbours(int capacity) {
+      ids = new int[capacity];
+      counts = new int[capacity];
+    }
+
+    void add(int id, int delta) {
+      int index = Arrays.binarySearch(ids, 0, size, id);
+      if (index >= 0) {
+        counts[index] += delta;
+        if (counts[index] <= 0) {
+          System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+          System.arraycopy(counts, index + 1, counts, index, size - index - 1);
+          size--;
+        }
+        return;
+      }
+      if (delta <= 0) {
+        return;
+      }
+      int insertAt = -index - 1;
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        counts = Arrays.copyOf(counts, size * 2);
+      }
+      System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+      System.arraycopy(counts, insertAt, counts, insertAt + 1, size - insertAt);
+      ids[insertAt] = id;
+      counts[insertAt] = delta;
+      size++;
+    }
+
+    /** The {@code k} best ranks, best first. Insertion into the short result avoids sorting all neighbours. */
+    long[] top(int k) {
+      long[] top = new long[Math.min(k, size)];
+      int filled = 0;
+      for (int i = 0; i < size; i++) {
+        long rank = rank(counts[i], ids[i]);
+        if (filled == top.length && rank <= top[filled - 1]) {
+          continue;
+        }
+        int at = filled == top.length ? filled - 1 : filled++;
+        while (at > 0 && top[at - 1] < rank) {
+          top[at] = top[at - 1];
+          at--;
+        }
+        top[at] = rank;
+      }
+      return top;
+    }
+
+  }
+
+  /** Sorted pair keys with how often each occurred. */
+  private static final class PairCounts {
+
+    final long[] keys;
+    final int[] counts;
+    final int size;
+
+    PairCounts(long[] keys, int[] counts, int size) {
+      this.keys = keys;
+      this.counts = counts;
+      this.size = size;
+    }
+
+    static PairCounts merge(PairCounts left, PairCounts right) {
+      long[] keys = new long[left.size + right.size];
+      int[] counts = new int[keys.length];
+      int size = 0;
+      int l = 0;
+      int r = 0;
+      while (l < left.size || r < right.size) {
+        if (r == right.size || l < left.size && left.keys[l] < right.keys[r]) {
+          keys[size] = left.keys[l];
+          counts[size++] = left.counts[l++];
+        } else if (l == left.size || right.keys[r] < left.keys[l]) {
+          keys[size] = right.keys[r];
+          counts[size++] = right.counts[r++];
+        } else {
+          keys[size] = left.keys[l];
+          counts[size++] = left.counts[l++] + right.counts[r++];
+        }
+      }
+      return new PairCounts(keys, counts, size);
+    }
+
+  }
+
+  /** Counts the course pairs of the students in {@code [from, to)} of the student-sorted enrollments. */
+  private static final class CountTask extends RecursiveTask<PairCounts> {
+
+    private final long[] enrollments;
+    private final int from;
+    private final int to;
+
+    CountTask(long[] enrollments, int from, int to) {
+      this.enrollments = enrollments;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected PairCounts compute() {
+      if (to - from > PARTITION_SIZE) {
+        // split where a student ends, so every student's courses are counted by one partition
+        int middle = endOfStudent(enrollments, (from + to) >>> 1, to);
+        if (middle < to) {
+          CountTask left = new CountTask(enrollments, from, middle);
+          left.fork();
+          PairCounts right = new CountTask(enrollments, middle, to).compute();
+          return PairCounts.merge(left.join(), right);
+        }
+      }
+      return countPairs();
+    }
+
+    private PairCounts countPairs() {
+      long[] pairs = new long[64];
+      int size = 0;
+      for (int start = from; start < to; ) {
+        int end = endOfStudent(enrollments, start, to);
+        for (int i = start; i < end; i++) {
+          for (int j = start; j < end; j++) {
+            if (i != j) {
+              if (size == pairs.length) {
+                pairs = Arrays.copyOf(pairs, size * 2);
+              }
+              pairs[size++] = pack(low(enrollments[i]), low(enrollments[j]));
+            }
+          }
+        }
+        start = end;
+      }
+      Arrays.sort(pairs, 0, size);
+
+      long[] keys = new long[size];
+      int[] counts = new int[size];
+      int distinct = 0;
+      for (int i = 0; i < size; i++) {
+        if (distinct > 0 && keys[distinct - 1] == pairs[i]) {
+          counts[distinct - 1]++;
+        } else {
+          keys[distinct] = pairs[i];
+          counts[distinct++] = 1;
+        }
+      }
+      return new PairCounts(keys, counts, distinct);
+    }
+
+  }
+
+}
@@ -0,0 +1,44 @@
+package nl.nn.workshop.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import nl.nn.workshop.changes.ChangeLog;
+import nl.nn.workshop.model.Change;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ChangeRepository extends org.springframework.data.repository.Repository<Change, Long> {
+
+  // a sequence hands out numbers without a lock, a transaction that rolls back leaves its number unused
+  @Query(nativeQuery = true, value = "SELECT nextval('change_log_seq')")
+  long nextNumber();
+
+  // walks the primary key, a change after a missing number may be followed by one that is still committing
+  @Query("select c from Change c where c.sequence > :after and c.sequence <= :upTo order by c.sequence asc")
+  List<Change> findAfter(@Param("after") long after, @Param("upTo") long upTo, Pageable pageable);
+
+  // walks the entity index down from upTo, only once per application instance
+  @Query("select max(c.sequence) from Change c where c.entity = :entity and c.sequence <= :upTo")
+  Long findLastSequence(@Param("entity") ChangeLog.Entity entity, @Param("upTo") long upTo);
+
+  @Query("select c from Change c order by c.sequence desc")
+  List<Change> findLatest(Pageable pageable);
+
+  // a change with a newer one of the same row that is past the gap timeout as well is read by no one any more
+  @Transactional
+  @Modifying
+  @Query("delete from Change c where c.changedAt <= :before and exists (select n.sequence from Change n"
+      + " where n.entity = c.entity and n.rowId = c.rowId and n.courseId = c.courseId"
+      + " and n.sequence > c.sequence and n.changedAt <= :before)")
+  int deleteSuperseded(@Param("before") LocalDateTime before);
+
+  <S extends Change> List<S> saveAll(Iterable<S> changes);
+
+  void flush();
+
+}
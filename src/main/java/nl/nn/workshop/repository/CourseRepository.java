@@ -1,10 +1,51 @@
 package nl.nn.workshop.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import nl.nn.workshop.model.Course;
+import nl.nn.workshop.resource.NameMatchResource;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface CourseRepository extends CrudRepository<Course, Long> {
 
+  Slice<Course> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  // enough to answer a conditional request, the row itself is only loaded when it has changed
+  @Query("select c.version from Course c where c.id = :id")
+  Optional<Long> findVersionById(@Param("id") long id);
+
+  // writes pending changes, so a saved entity carries the version its update gave it
+  void flush();
+
+  // projected straight into the resource so rows never enter the persistence context
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+  @Query("select new nl.nn.workshop.resource.NameMatchResource(c.id, c.name) from Course c")
+  Stream<NameMatchResource> streamNames();
+
+  // the seat check is re-evaluated against the latest row once a concurrent reservation commits, so the
+  // course can never be over-enrolled; on its own the row lock lasts for this one statement
+  @Transactional
+  @Modifying
+  @Query(nativeQuery = true, value = "UPDATE course SET seats_taken = seats_taken + 1"
+      + " WHERE id = :courseId AND capacity IS NOT NULL AND seats_taken < capacity")
+  int reserveSeat(@Param("courseId") long courseId);
+
+  @Transactional
+  @Modifying
+  @Query(nativeQuery = true, value = "UPDATE course SET seats_taken = seats_taken - 1"
+      + " WHERE id = :courseId AND capacity IS NOT NULL AND seats_taken > 0")
+  int releaseSeat(@Param("courseId") long courseId);
+
 }
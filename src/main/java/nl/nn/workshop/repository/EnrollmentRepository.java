@@ -1,11 +1,117 @@
 package nl.nn.workshop.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import nl.nn.workshop.model.Enrollment;
 import nl.nn.workshop.model.EnrollmentPk;
+import nl.nn.workshop.resource.CourseResource;
+import nl.nn.workshop.resource.CourseStatsResource;
+import nl.nn.workshop.resource.EnrollmentDetailResource;
+import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.resource.StudentResource;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface EnrollmentRepository extends CrudRepository<Enrollment, EnrollmentPk> {
 
+  // the leading range predicate on student_id lets the planner seek on the primary key index
+  @Query("select e from Enrollment e"
+      + " where e.studentId >= :studentId and (e.studentId > :studentId or e.courseId > :courseId)"
+      + " order by e.studentId asc, e.courseId asc")
+  Slice<Enrollment> findAfter(
+      @Param("studentId") long studentId, @Param("courseId") long courseId, Pageable pageable);
+
+  // projected straight into the resource so rows never enter the persistence context
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+  @Query("select new nl.nn.workshop.resource.EnrollmentResource(e.studentId, e.courseId, e.enrollmentDate)"
+      + " from Enrollment e")
+  Stream<EnrollmentResource> streamAll();
+
+  // walks the (course_id, student_id) index and only reads the student columns the resource needs
+  @Query("select new nl.nn.workshop.resource.StudentResource(s.id, s.name, s.birthday, s.version)"
+      + " from Enrollment e, Student s"
+      + " where e.courseId = :courseId and e.studentId > :studentId and s.id = e.studentId"
+      + " order by e.studentId asc")
+  Slice<StudentResource> findStudentsByCourseId(
+      @Param("courseId") long courseId, @Param("studentId") long afterStudentId, Pageable pageable);
+
+  // the primary key already leads with student_id, so this one needs no extra index
+  @Query("select new nl.nn.workshop.resource.CourseResource(c.id, c.name, c.available, c.capacity, c.version)"
+      + " from Enrollment e, Course c"
+      + " where e.studentId = :studentId and e.courseId > :courseId and c.id = e.courseId"
+      + " order by e.courseId asc")
+  Slice<CourseResource> findCoursesByStudentId(
+      @Param("studentId") long studentId, @Param("courseId") long afterCourseId, Pageable pageable);
+
+  // the expanded listings join both sides in the same statement and project the few columns a row needs,
+  // so no entity is hydrated and no follow-up lookup runs per enrollment
+  @Query("select new nl.nn.workshop.resource.EnrollmentDetailResource("
+      + "e.studentId, s.name, e.courseId, c.name, c.available, e.enrollmentDate)"
+      + " from Enrollment e, Student s, Course c"
+      + " where e.studentId >= :studentId and (e.studentId > :studentId or e.courseId > :courseId)"
+      + " and s.id = e.studentId and c.id = e.courseId"
+      + " order by e.studentId asc, e.courseId asc")
+  Slice<EnrollmentDetailResource> findDetailsAfter(
+      @Param("studentId") long studentId, @Param("courseId") long courseId, Pageable pageable);
+
+  @Query("select new nl.nn.workshop.resource.EnrollmentDetailResource("
+      + "e.studentId, s.name, e.courseId, c.name, c.available, e.enrollmentDate)"
+      + " from Enrollment e, Student s, Course c"
+      + " where e.studentId = :studentId and e.courseId > :courseId and s.id = e.studentId and c.id = e.courseId"
+      + " order by e.courseId asc")
+  Slice<EnrollmentDetailResource> findDetailsByStudentId(
+      @Param("studentId") long studentId, @Param("courseId") long afterCourseId, Pageable pageable);
+
+  @Query("select new nl.nn.workshop.resource.EnrollmentDetailResource("
+      + "e.studentId, s.name, e.courseId, c.name, c.available, e.enrollmentDate)"
+      + " from Enrollment e, Student s, Course c"
+      + " where e.courseId = :courseId and e.studentId > :studentId and s.id = e.studentId and c.id = e.courseId"
+      + " order by e.studentId asc")
+  Slice<EnrollmentDetailResource> findDetailsByCourseId(
+      @Param("courseId") long courseId, @Param("studentId") long afterStudentId, Pageable pageable);
+
+  // the left join keeps courses without enrollments, counting e.courseId leaves their missing rows out
+  @Query("select new nl.nn.workshop.resource.CourseStatsResource(c.id, count(e.courseId))"
+      + " from Course c left join Enrollment e on e.courseId = c.id"
+      + " group by c.id")
+  List<CourseStatsResource> countEnrollmentsByCourse();
+
+  // single round trip: the join only yields a row when both student and course exist and the pair is
+  // not enrolled yet, a concurrent insert of the same pair still trips the primary key. A course with a
+  // capacity is refused, its enrollments go through insertIfAbsentOnReservedSeat.
+  @Transactional
+  @Modifying
+  @Query(nativeQuery = true, value = "INSERT INTO enrollment (student_id, course_id, enrollment_date)"
+      + " SELECT s.id, c.id, :enrollmentDate FROM student s, course c"
+      + " WHERE s.id = :studentId AND c.id = :courseId AND c.capacity IS NULL"
+      + " AND NOT EXISTS (SELECT 1 FROM enrollment e WHERE e.student_id = :studentId AND e.course_id = :courseId)")
+  int insertIfAbsent(
+      @Param("studentId") long studentId,
+      @Param("courseId") long courseId,
+      @Param("enrollmentDate") LocalDateTime enrollmentDate);
+
+  // the same insert once CourseRepository#reserveSeat took a seat of the course
+  @Transactional
+  @Modifying
+  @Query(nativeQuery = true, value = "INSERT INTO enrollment (student_id, course_id, enrollment_date)"
+      + " SELECT s.id, c.id, :enrollmentDate FROM student s, course c"
+      + " WHERE s.id = :studentId AND c.id = :courseId"
+      + " AND NOT EXISTS (SELECT 1 FROM enrollment e WHERE e.student_id = :studentId AND e.course_id = :courseId)")
+  int insertIfAbsentOnReservedSeat(
+      @Param("studentId") long studentId,
+      @Param("courseId") long courseId,
+      @Param("enrollmentDate") LocalDateTime enrollmentDate);
+
 }
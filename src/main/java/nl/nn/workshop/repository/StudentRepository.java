@@ -1,10 +1,35 @@
 package nl.nn.workshop.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import nl.nn.workshop.model.Student;
+import nl.nn.workshop.resource.NameMatchResource;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface StudentRepository extends CrudRepository<Student, Long> {
 
+  Slice<Student> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  // enough to answer a conditional request, the row itself is only loaded when it has changed
+  @Query("select s.version from Student s where s.id = :id")
+  Optional<Long> findVersionById(@Param("id") long id);
+
+  // writes pending changes, so a saved entity carries the version its update gave it
+  void flush();
+
+  // projected straight into the resource so rows never enter the persistence context
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+  @Query("select new nl.nn.workshop.resource.NameMatchResource(s.id, s.name) from Student s")
+  Stream<NameMatchResource> streamNames();
+
 }
@@ -0,0 +1,115 @@
+package nl.nn.workshop.repository.memory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import nl.nn.workshop.changes.ChangeLog;
+import nl.nn.workshop.model.Change;
+import nl.nn.workshop.repository.ChangeRepository;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * The change log of the in-memory storage engine. Its numbers are handed out like those of the database
+ * sequence, and a transaction's changes are stored right before it commits, so a number can be missing
+ * for a moment here as well.
+ */
+public class InMemoryChangeRepository implements ChangeRepository {
+
+  private final InMemoryDatabase database;
+
+  public InMemoryChangeRepository(InMemoryDatabase database) {
+    this.database = database;
+  }
+
+  @Override
+  public long nextNumber() {
+    return database.write(database::nextChangeNumber);
+  }
+
+  @Override
+  public List<Change> findAfter(long after, long upTo, Pageable pageable) {
+    return database.read(() -> page(database.changes.subMap(after, false, upTo, true).values(), pageable));
+  }
+
+  @Override
+  public Long findLastSequence(ChangeLog.Entity entity, long upTo) {
+    return database.read(() -> {
+      for (Change change : database.changes.headMap(upTo, true).descendingMap().values()) {
+        if (change.getEntity() == entity) {
+          return change.getSequence();
+        }
+      }
+      return null;
+    });
+  }
+
+  @Override
+  public List<Change> findLatest(Pageable pageable) {
+    return database.read(() -> page(database.changes.descendingMap().values(), pageable));
+  }
+
+  @Override
+  public int deleteSuperseded(LocalDateTime before) {
+    return database.write(() -> {
+      List<Long> superseded = new ArrayList<>();
+      // newest first, so the newest change of a row is met before the ones it superseded
+      Map<ChangeLog.Key, Change> newest = new HashMap<>();
+      for (Change change : database.changes.descendingMap().values()) {
+        Change newer = newest.putIfAbsent(ChangeLog.Key.of(change), change);
+        if (newer != null && !newer.getChangedAt().isAfter(before) && !change.getChangedAt().isAfter(before)) {
+          superseded.add(change.getSequence());
+        }
+      }
+      superseded.forEach(database::removeChange);
+      return superseded.size();
+    });
+  }
+
+  @Override
+  public <S extends Change> List<S> saveAll(Iterable<S> changes) {
+    List<S> saved = new ArrayList<>();
+    database.update(() -> {
+      for (S change : changes) {
+        database.putChange(copy(change));
+        saved.add(change);
+      }
+    });
+    return saved;
+  }
+
+  @Override
+  public void flush() {
+    // every call is written through already
+  }
+
+  private static List<Change> page(Iterable<Change> changes, Pageable pageable) {
+    List<Change> found = new ArrayList<>();
+    long skipped = 0;
+    for (Change change : changes) {
+      if (pageable.isPaged() && skipped < pageable.getOffset()) {
+        skipped++;
+        continue;
+      }
+      if (pageable.isPaged() && found.size() == pageable.getPageSize()) {
+        break;
+      }
+      found.add(copy(change));
+    }
+    return found;
+  }
+
+  private static Change copy(Change change) {
+    Change copy = new Change();
+    copy.setSequence(change.getSequence());
+    copy.setEntity(change.getEntity());
+    copy.setRowId(change.getRowId());
+    copy.setCourseId(change.getCourseId());
+    copy.setType(change.getType());
+    copy.setEnrollmentDate(change.getEnrollmentDate());
+    copy.setChangedAt(change.getChangedAt());
+    return copy;
+  }
+
+}
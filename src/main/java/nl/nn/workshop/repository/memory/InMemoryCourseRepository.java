@@ -0,0 +1,131 @@
+package nl.nn.workshop.repository.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.resource.NameMatchResource;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+public class InMemoryCourseRepository extends InMemoryCrudRepository<Course> implements CourseRepository {
+
+  public InMemoryCourseRepository(InMemoryDatabase database) {
+    super(database, database.courses, "course");
+  }
+
+  @Override
+  public Slice<Course> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable) {
+    return findByIdGreaterThan(id, pageable);
+  }
+
+  @Override
+  public Stream<NameMatchResource> streamNames() {
+    // a snapshot keeps the lock from being held while the caller works through the names
+    List<NameMatchResource> all = database.read(() -> {
+      List<NameMatchResource> names = new ArrayList<>(database.courses.size());
+      for (int i = 0; i < database.courses.size(); i++) {
+        Course course = database.courses.valueAt(i);
+        names.add(new NameMatchResource(course.getId(), course.getName()));
+      }
+      return names;
+    });
+    return all.stream();
+  }
+
+  @Override
+  public int reserveSeat(long courseId) {
+    return database.write(() -> {
+      Course course = database.courses.get(courseId);
+      if (course == null || course.getCapacity() == null || course.getSeatsTaken() >= course.getCapacity()) {
+        return 0;
+      }
+      database.putCourse(withSeatsTaken(course, course.getSeatsTaken() + 1));
+      return 1;
+    });
+  }
+
+  @Override
+  public int releaseSeat(long courseId) {
+    return database.write(() -> {
+      Course course = database.courses.get(courseId);
+      if (course == null || course.getCapacity() == null || course.getSeatsTaken() == 0) {
+        return 0;
+      }
+      database.putCourse(withSeatsTaken(course, course.getSeatsTaken() - 1));
+      return 1;
+    });
+  }
+
+  @Override
+  long idOf(Course entity) {
+    return entity.getId();
+  }
+
+  @Override
+  void assignId(Course entity, long id) {
+    entity.setId(id);
+  }
+
+  @Override
+  long versionOf(Course entity) {
+    return entity.getVersion();
+  }
+
+  @Override
+  void assignVersion(Course entity, long version) {
+    entity.setVersion(version);
+  }
+
+  // seats taken are not written by a save, so they do not count as a change either
+  @Override
+  boolean changed(Course stored, Course entity) {
+    return !Objects.equals(stored.getName(), entity.getName()) || stored.isAvailable() != entity.isAvailable()
+        || !Objects.equals(stored.getCapacity(), entity.getCapacity());
+  }
+
+  @Override
+  Course copy(Course entity) {
+    Course copy = new Course();
+    copy.setId(entity.getId());
+    copy.setName(entity.getName());
+    copy.setAvailable(entity.isAvailable());
+    copy.setCapacity(entity.getCapacity());
+    copy.setSeatsTaken(entity.getSeatsTaken());
+    copy.setVersion(entity.getVersion());
+    return copy;
+  }
+
+  @Override
+  long nextId() {
+    return database.nextCourseId();
+  }
+
+  @Override
+  boolean isReferenced(long id) {
+    return database.hasEnrollmentsForCourse(id);
+  }
+
+  @Override
+  void store(Course row) {
+    // like the column, seats taken are left to reserveSeat and releaseSeat when a course is saved
+    Course stored = database.courses.get(row.getId());
+    row.setSeatsTaken(stored == null ? 0 : stored.getSeatsTaken());
+    database.putCourse(row);
+  }
+
+  @Override
+  void erase(long id) {
+    database.removeCourse(id);
+  }
+
+  // the changed row goes through putCourse like any save, so it reaches the write-ahead log
+  private Course withSeatsTaken(Course course, int seatsTaken) {
+    Course changed = copy(course);
+    changed.setSeatsTaken(seatsTaken);
+    return changed;
+  }
+
+}
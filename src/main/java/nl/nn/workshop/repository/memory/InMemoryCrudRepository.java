@@ -0,0 +1,208 @@
+package nl.nn.workshop.repository.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.util.Assert;
+
+/**
+ * {@link CrudRepository} over a {@link LongTable} of sequence-keyed entities. Rows are copied on the way
+ * in and out, so callers get detached instances like they would from a finished JPA transaction, and
+ * mirror the errors the database would raise for missing rows and dangling references. Versions follow
+ * {@code @Version}: a save of an outdated copy fails, and only a save that changes the row moves it on.
+ */
+abstract class InMemoryCrudRepository<T> implements CrudRepository<T, Long> {
+
+  protected final InMemoryDatabase database;
+  private final LongTable<T> table;
+  private final String entityName;
+
+  InMemoryCrudRepository(InMemoryDatabase database, LongTable<T> table, String entityName) {
+    this.database = database;
+    this.table = table;
+    this.entityName = entityName;
+  }
+
+  abstract long idOf(T entity);
+
+  abstract void assignId(T entity, long id);
+
+  abstract long versionOf(T entity);
+
+  abstract void assignVersion(T entity, long version);
+
+  // whether the save changes a column the entity writes, which is when the persistence provider bumps the version
+  abstract boolean changed(T stored, T entity);
+
+  abstract T copy(T entity);
+
+  abstract long nextId();
+
+  abstract boolean isReferenced(long id);
+
+  abstract void store(T row);
+
+  abstract void erase(long id);
+
+  @Override
+  public <S extends T> S save(S entity) {
+    Assert.notNull(entity, "Entity must not be null.");
+    return database.write(() -> insertOrReplace(entity));
+  }
+
+  @Override
+  public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+    Assert.notNull(entities, "Entities must not be null!");
+    return database.write(() -> {
+      List<S> saved = new ArrayList<>();
+      for (S entity : entities) {
+        saved.add(insertOrReplace(entity));
+      }
+      return saved;
+    });
+  }
+
+  // saves are applied right away, there is nothing left to flush
+  public void flush() {
+  }
+
+  public Optional<Long> findVersionById(long id) {
+    return database.read(() -> Optional.ofNullable(table.get(id)).map(this::versionOf));
+  }
+
+  @Override
+  public Optional<T> findById(Long id) {
+    Assert.notNull(id, "The given id must not be null!");
+    return database.read(() -> Optional.ofNullable(table.get(id)).map(this::copy));
+  }
+
+  @Override
+  public boolean existsById(Long id) {
+    Assert.notNull(id, "The given id must not be null!");
+    return database.read(() -> table.containsKey(id));
+  }
+
+  @Override
+  public Iterable<T> findAll() {
+    return database.read(() -> {
+      List<T> all = new ArrayList<>(table.size());
+      for (int i = 0; i < table.size(); i++) {
+        all.add(copy(table.valueAt(i)));
+      }
+      return all;
+    });
+  }
+
+  @Override
+  public Iterable<T> findAllById(Iterable<Long> ids) {
+    Assert.notNull(ids, "Ids must not be null!");
+    return database.read(() -> {
+      List<T> found = new ArrayList<>();
+      for (Long id : ids) {
+        T row = table.get(id);
+        if (row != null) {
+          found.add(copy(row));
+        }
+      }
+      return found;
+    });
+  }
+
+  @Override
+  public long count() {
+    return database.read(table::size);
+  }
+
+  @Override
+  public void deleteById(Long id) {
+    Assert.notNull(id, "The given id must not be null!");
+    database.update(() -> {
+      if (!table.containsKey(id)) {
+        throw new EmptyResultDataAccessException(
+            String.format("No %s entity with id %d exists!", entityName, id), 1);
+      }
+      remove(id);
+    });
+  }
+
+  @Override
+  public void delete(T entity) {
+    Assert.notNull(entity, "Entity must not be null!");
+    database.update(() -> {
+      if (table.containsKey(idOf(entity))) {
+        remove(idOf(entity));
+      }
+    });
+  }
+
+  @Override
+  public void deleteAllById(Iterable<? extends Long> ids) {
+    Assert.notNull(ids, "Ids must not be null!");
+    database.update(() -> ids.forEach(id -> {
+      if (table.containsKey(id)) {
+        remove(id);
+      }
+    }));
+  }
+
+  @Override
+  public void deleteAll(Iterable<? extends T> entities) {
+    Assert.notNull(entities, "Entities must not be null!");
+    database.update(() -> entities.forEach(entity -> {
+      if (table.containsKey(idOf(entity))) {
+        remove(idOf(entity));
+      }
+    }));
+  }
+
+  @Override
+  public void deleteAll() {
+    database.update(() -> {
+      for (int i = 0; i < table.size(); i++) {
+        checkUnreferenced(table.keyAt(i));
+      }
+      while (table.size() > 0) {
+        erase(table.keyAt(table.size() - 1));
+      }
+    });
+  }
+
+  Slice<T> findByIdGreaterThan(long id, Pageable pageable) {
+    return database.read(() ->
+        InMemoryDatabase.slice(table, table.indexAfter(id), Long.MAX_VALUE, pageable, i -> copy(table.valueAt(i))));
+  }
+
+  private <S extends T> S insertOrReplace(S entity) {
+    // like a merge with a generated id: new entities (id 0) and unknown ids get the next sequence value
+    T stored = table.get(idOf(entity));
+    if (stored == null) {
+      assignId(entity, nextId());
+      assignVersion(entity, 0);
+    } else if (versionOf(entity) != versionOf(stored)) {
+      throw new ObjectOptimisticLockingFailureException(entityName, idOf(entity));
+    } else if (changed(stored, entity)) {
+      assignVersion(entity, versionOf(stored) + 1);
+    }
+    store(copy(entity));
+    return entity;
+  }
+
+  private void remove(long id) {
+    checkUnreferenced(id);
+    erase(id);
+  }
+
+  private void checkUnreferenced(long id) {
+    if (isReferenced(id)) {
+      throw new DataIntegrityViolationException(
+          String.format("%s with id %d is still referenced from enrollment", entityName, id));
+    }
+  }
+
+}
@@ -0,0 +1,410 @@
+package nl.nn.workshop.repository.memory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import nl.nn.workshop.changes.ChangeLog;
+import nl.nn.workshop.model.Change;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Enrollment;
+import nl.nn.workshop.model.Student;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+/**
+ * Tables of the in-memory storage engine. Enrollments are keyed by {@code (studentId, courseId)} packed
+ * into one long, with a second table keyed by {@code (courseId, studentId)} for the course side, so both
+ * directions are range scans over sorted primitive keys. A single read-write lock makes every repository
+ * call atomic, including the ones that check references across tables.
+ *
+ * <p>A database opened with {@link #durable(Path, Duration)} also appends every mutation to a
+ * {@link WriteAheadLog} and acknowledges a write only once its records are on disk. Periodic
+ * {@link SnapshotFile snapshots} compact the log, and opening the same directory again rebuilds the tables
+ * from the latest snapshot plus the log written after it.
+ */
+public class InMemoryDatabase implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(InMemoryDatabase.class);
+
+  /** Largest id that still packs into the high or low half of a non-negative long. */
+  static final long MAX_ID = Integer.MAX_VALUE;
+
+  final LongTable<Student> students = new LongTable<>();
+  final LongTable<Course> courses = new LongTable<>();
+  final LongTable<Enrollment> enrollments = new LongTable<>();
+  final LongTable<Enrollment> enrollmentsByCourse = new LongTable<>();
+  final TreeMap<Long, Change> changes = new TreeMap<>();
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private long studentSequence;
+  private long courseSequence;
+  private long changeNumber;
+
+  private Path directory;
+  private WriteAheadLog log;
+  private ScheduledExecutorService snapshots;
+
+  /**
+   * Opens a database that survives restarts in {@code directory}, snapshotting every
+   * {@code snapshotInterval}.
+   */
+  public static InMemoryDatabase durable(Path directory, Duration snapshotInterval) throws IOException {
+    InMemoryDatabase database = new InMemoryDatabase();
+    database.recover(directory);
+    database.snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "workshop-snapshot");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long interval = snapshotInterval.toMillis();
+    database.snapshots.scheduleWithFixedDelay(
+        database::scheduledSnapshot, interval, interval, TimeUnit.MILLISECONDS);
+    return database;
+  }
+
+  /**
+   * Writes a snapshot of all tables and drops the log segments it covers. Writers are only held up while
+   * the log is rotated and the row references are copied, the file itself is written outside the lock.
+   */
+  public synchronized void snapshot() throws IOException {
+    if (log == null) {
+      return;
+    }
+    SnapshotFile.Image image;
+    lock.writeLock().lock();
+    try {
+      // rows are copied whenever they enter or leave a table, so sharing the references is safe
+      image = new SnapshotFile.Image(log.rotate(), studentSequence, courseSequence,
+          values(students), values(courses), values(enrollments), new ArrayList<>(changes.values()));
+    } finally {
+      lock.writeLock().unlock();
+    }
+    SnapshotFile.write(directory, image);
+    WriteAheadLog.deleteSegmentsBefore(directory, image.generation);
+  }
+
+  /** Takes a last snapshot, so the next start has no log to replay, and closes the log. */
+  @Override
+  public void close() throws IOException {
+    if (log == null) {
+      return;
+    }
+    snapshots.shutdown();
+    try {
+      snapshots.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      snapshot();
+    } finally {
+      WriteAheadLog closing = log;
+      update(() -> log = null);
+      closing.close();
+    }
+  }
+
+  /**
+   * Empties every table. The id sequences and change log keep counting, like database
+   * sequences do across a rollback.
+   */
+  public void clear() {
+    update(() -> {
+      applyClear();
+      append(RowCodec.CLEAR, 0, buffer -> { });
+    });
+  }
+
+  void putStudent(Student student) {
+    applyPut(student);
+    append(RowCodec.PUT_STUDENT, RowCodec.size(student), buffer -> RowCodec.write(buffer, student));
+  }
+
+  void removeStudent(long id) {
+    students.remove(id);
+    append(RowCodec.REMOVE_STUDENT, Long.BYTES, buffer -> buffer.putLong(id));
+  }
+
+  void putCourse(Course course) {
+    applyPut(course);
+    append(RowCodec.PUT_COURSE, RowCodec.size(course), buffer -> RowCodec.write(buffer, course));
+  }
+
+  void removeCourse(long id) {
+    courses.remove(id);
+    append(RowCodec.REMOVE_COURSE, Long.BYTES, buffer -> buffer.putLong(id));
+  }
+
+  void putEnrollment(Enrollment enrollment) {
+    applyPut(enrollment);
+    append(RowCodec.PUT_ENROLLMENT, RowCodec.ENROLLMENT_SIZE, buffer -> RowCodec.write(buffer, enrollment));
+  }
+
+  void removeEnrollment(long studentId, long courseId) {
+    applyRemoveEnrollment(studentId, courseId);
+    append(RowCodec.REMOVE_ENROLLMENT, RowCodec.ENROLLMENT_KEY_SIZE, buffer -> {
+      buffer.putLong(studentId);
+      buffer.putLong(courseId);
+    });
+  }
+
+  void putChange(Change change) {
+    applyPut(change);
+    append(RowCodec.PUT_CHANGE, RowCodec.CHANGE_SIZE, buffer -> RowCodec.write(buffer, change));
+  }
+
+  void removeChange(long sequence) {
+    changes.remove(sequence);
+    append(RowCodec.REMOVE_CHANGE, Long.BYTES, buffer -> buffer.putLong(sequence));
+  }
+
+  /** Numbers the changes of one transaction, like the {@code change_log_seq} sequence does. */
+  long nextChangeNumber() {
+    return ++changeNumber;
+  }
+
+  long nextStudentId() {
+    return studentSequence = next(studentSequence);
+  }
+
+  long nextCourseId() {
+    return courseSequence = next(courseSequence);
+  }
+
+  boolean hasEnrollmentsForStudent(long studentId) {
+    return hasKeysWithHigh(enrollments, studentId);
+  }
+
+  boolean hasEnrollmentsForCourse(long courseId) {
+    return hasKeysWithHigh(enrollmentsByCourse, courseId);
+  }
+
+  <T> T read(Supplier<T> action) {
+    lock.readLock().lock();
+    try {
+      return action.get();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Runs a mutation under the write lock and, when durable, returns once its log records are synced. */
+  <T> T write(Supplier<T> action) {
+    T result;
+    WriteAheadLog journal;
+    lock.writeLock().lock();
+    try {
+      result = action.get();
+      journal = log;
+    } finally {
+      lock.writeLock().unlock();
+    }
+    // waiting outside the lock lets the writers that queue up meanwhile share the next sync
+    if (journal != null) {
+      journal.awaitDurable(journal.position());
+    }
+    return result;
+  }
+
+  void update(Runnable action) {
+    write(() -> {
+      action.run();
+      return null;
+    });
+  }
+
+  static boolean packable(long id) {
+    return id > 0 && id <= MAX_ID;
+  }
+
+  static long pack(long high, long low) {
+    return high << 32 | low;
+  }
+
+  static long high(long key) {
+    return key >>> 32;
+  }
+
+  static long low(long key) {
+    return key & 0xFFFF_FFFFL;
+  }
+
+  /**
+   * Index of the first packed key that sorts after {@code (high, low)}. Unpackable bounds, such as the
+   * {@code Long.MIN_VALUE} start of a keyset walk, are clamped to the ends of the key space.
+   */
+  static int indexAfter(LongTable<?> table, long high, long low) {
+    if (high <= 0) {
+      return 0;
+    }
+    if (high > MAX_ID) {
+      return table.size();
+    }
+    if (low <= 0) {
+      return table.indexAfter(pack(high, 0));
+    }
+    return table.indexAfter(pack(high, Math.min(low, MAX_ID)));
+  }
+
+  /**
+   * Reads one page of rows starting at {@code from} while the keys stay at or below {@code lastKey}. One row
+   * past the page is peeked to tell whether there is a next slice.
+   */
+  static <T> Slice<T> slice(
+      LongTable<?> table, int from, long lastKey, Pageable pageable, IntFunction<T> row) {
+    int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+    long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+    int index = (int) Math.min(from + offset, table.size());
+    List<T> content = new ArrayList<>(Math.min(limit, table.size() - index));
+    while (index < table.size() && table.keyAt(index) <= lastKey && content.size() < limit) {
+      content.add(row.apply(index++));
+    }
+    boolean hasNext = index < table.size() && table.keyAt(index) <= lastKey;
+    return new SliceImpl<>(content, pageable, hasNext);
+  }
+
+  private void recover(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    SnapshotFile.Image image = SnapshotFile.read(directory);
+    long generation = 0;
+    if (image != null) {
+      generation = image.generation;
+      studentSequence = image.studentSequence;
+      courseSequence = image.courseSequence;
+      image.students.forEach(this::applyPut);
+      image.courses.forEach(this::applyPut);
+      image.enrollments.forEach(this::applyPut);
+      image.changes.forEach(this::applyPut);
+    }
+    // segments older than the snapshot are leftovers of a crash between writing it and cleaning up
+    WriteAheadLog.deleteSegmentsBefore(directory, generation);
+    for (Path segment : WriteAheadLog.segments(directory)) {
+      WriteAheadLog.replay(segment, this::apply);
+      generation = Math.max(generation, WriteAheadLog.generationOf(segment) + 1);
+    }
+    this.directory = directory;
+    this.log = new WriteAheadLog(directory, generation);
+  }
+
+  private void apply(byte type, ByteBuffer body) {
+    switch (type) {
+      case RowCodec.PUT_STUDENT:
+        applyPut(RowCodec.readStudent(body));
+        break;
+      case RowCodec.REMOVE_STUDENT:
+        students.remove(body.getLong());
+        break;
+      case RowCodec.PUT_COURSE:
+        applyPut(RowCodec.readCourse(body));
+        break;
+      case RowCodec.REMOVE_COURSE:
+        courses.remove(body.getLong());
+        break;
+      case RowCodec.PUT_ENROLLMENT:
+        applyPut(RowCodec.readEnrollment(body));
+        break;
+      case RowCodec.REMOVE_ENROLLMENT:
+        applyRemoveEnrollment(body.getLong(), body.getLong());
+        break;
+      case RowCodec.CLEAR:
+        applyClear();
+        break;
+      case RowCodec.PUT_CHANGE:
+        applyPut(RowCodec.readChange(body));
+        break;
+      case RowCodec.REMOVE_CHANGE:
+        changes.remove(body.getLong());
+        break;
+      default:
+        throw new IllegalStateException(String.format("unknown log record type %d", type));
+    }
+  }
+
+  private void applyPut(Student student) {
+    students.put(student.getId(), student);
+    studentSequence = Math.max(studentSequence, student.getId());
+  }
+
+  private void applyPut(Course course) {
+    courses.put(course.getId(), course);
+    courseSequence = Math.max(courseSequence, course.getId());
+  }
+
+  private void applyPut(Enrollment enrollment) {
+    enrollments.put(pack(enrollment.getStudentId(), enrollment.getCourseId()), enrollment);
+    enrollmentsByCourse.put(pack(enrollment.getCourseId(), enrollment.getStudentId()), enrollment);
+  }
+
+  private void applyPut(Change change) {
+    changes.put(change.getSequence(), change);
+    changeNumber = Math.max(changeNumber, change.getSequence() / ChangeLog.CHANGES_PER_NUMBER);
+  }
+
+  private void applyRemoveEnrollment(long studentId, long courseId) {
+    enrollments.remove(pack(studentId, courseId));
+    enrollmentsByCourse.remove(pack(courseId, studentId));
+  }
+
+  private void applyClear() {
+    students.clear();
+    courses.clear();
+    enrollments.clear();
+    enrollmentsByCourse.clear();
+  }
+
+  private void append(byte type, int bodySize, Consumer<ByteBuffer> body) {
+    if (log != null) {
+      log.append(type, bodySize, body);
+    }
+  }
+
+  private void scheduledSnapshot() {
+    try {
+      snapshot();
+    } catch (IOException | RuntimeException e) {
+      // the log still holds everything, the next run tries again
+      LOGGER.warn("snapshot of the in-memory database failed", e);
+    }
+  }
+
+  private static <T> List<T> values(LongTable<T> table) {
+    List<T> values = new ArrayList<>(table.size());
+    for (int i = 0; i < table.size(); i++) {
+      values.add(table.valueAt(i));
+    }
+    return values;
+  }
+
+  private static boolean hasKeysWithHigh(LongTable<?> table, long high) {
+    if (!packable(high)) {
+      return false;
+    }
+    int index = table.indexAfter(pack(high, 0));
+    return index < table.size() && high(table.keyAt(index)) == high;
+  }
+
+  private static long next(long sequence) {
+    if (sequence == MAX_ID) {
+      throw new IllegalStateException("in-memory id sequence exhausted");
+    }
+    return sequence + 1;
+  }
+
+}
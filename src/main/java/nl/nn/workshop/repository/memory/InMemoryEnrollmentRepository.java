@@ -0,0 +1,302 @@
+package nl.nn.workshop.repository.memory;
+
+import static nl.nn.workshop.repository.memory.InMemoryDatabase.MAX_ID;
+import static nl.nn.workshop.repository.memory.InMemoryDatabase.high;
+import static nl.nn.workshop.repository.memory.InMemoryDatabase.indexAfter;
+import static nl.nn.workshop.repository.memory.InMemoryDatabase.low;
+import static nl.nn.workshop.repository.memory.InMemoryDatabase.pack;
+import static nl.nn.workshop.repository.memory.InMemoryDatabase.packable;
+import static nl.nn.workshop.repository.memory.InMemoryDatabase.slice;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Enrollment;
+import nl.nn.workshop.model.EnrollmentPk;
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.resource.CourseResource;
+import nl.nn.workshop.resource.CourseStatsResource;
+import nl.nn.workshop.resource.EnrollmentDetailResource;
+import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.resource.StudentResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.util.Assert;
+
+/**
+ * Enrollments keyed by {@code (studentId, courseId)} packed into one long. Ordering by the packed key is
+ * ordering by student and then course, which is exactly the keyset order of the JPA queries, and the
+ * mirrored {@code (courseId, studentId)} table plays the part of the course side index.
+ */
+public class InMemoryEnrollmentRepository implements EnrollmentRepository {
+
+  private final InMemoryDatabase database;
+
+  public InMemoryEnrollmentRepository(InMemoryDatabase database) {
+    this.database = database;
+  }
+
+  @Override
+  public Slice<Enrollment> findAfter(long studentId, long courseId, Pageable pageable) {
+    return database.read(() -> slice(
+        database.enrollments, indexAfter(database.enrollments, studentId, courseId), Long.MAX_VALUE, pageable,
+        i -> copy(database.enrollments.valueAt(i))));
+  }
+
+  @Override
+  public Stream<EnrollmentResource> streamAll() {
+    // a snapshot keeps the lock from being held while the caller writes the stream to a slow client
+    List<EnrollmentResource> all = database.read(() -> {
+      List<EnrollmentResource> resources = new ArrayList<>(database.enrollments.size());
+      for (int i = 0; i < database.enrollments.size(); i++) {
+        Enrollment enrollment = database.enrollments.valueAt(i);
+        resources.add(new EnrollmentResource(
+            enrollment.getStudentId(), enrollment.getCourseId(), enrollment.getEnrollmentDate()));
+      }
+      return resources;
+    });
+    return all.stream();
+  }
+
+  @Override
+  public List<CourseStatsResource> countEnrollmentsByCourse() {
+    return database.read(() -> {
+      // the enrollments of a course are one run of the course side table, two binary searches measure it
+      LongTable<Enrollment> byCourse = database.enrollmentsByCourse;
+      List<CourseStatsResource> counts = new ArrayList<>(database.courses.size());
+      for (int i = 0; i < database.courses.size(); i++) {
+        long courseId = database.courses.keyAt(i);
+        int enrollments = indexAfter(byCourse, courseId, MAX_ID) - indexAfter(byCourse, courseId, 0);
+        counts.add(new CourseStatsResource(courseId, enrollments));
+      }
+      return counts;
+    });
+  }
+
+  @Override
+  public int insertIfAbsent(long studentId, long courseId, LocalDateTime enrollmentDate) {
+    return database.write(() -> {
+      Course course = database.courses.get(courseId);
+      return course == null || course.getCapacity() != null ? 0 : insert(studentId, courseId, enrollmentDate);
+    });
+  }
+
+  @Override
+  public int insertIfAbsentOnReservedSeat(long studentId, long courseId, LocalDateTime enrollmentDate) {
+    return database.write(
+        () -> database.courses.containsKey(courseId) ? insert(studentId, courseId, enrollmentDate) : 0);
+  }
+
+  @Override
+  public Slice<StudentResource> findStudentsByCourseId(long courseId, long afterStudentId, Pageable pageable) {
+    return database.read(() -> {
+      LongTable<Enrollment> byCourse = database.enrollmentsByCourse;
+      long lastKey = packable(courseId) ? pack(courseId, MAX_ID) : -1;
+      return slice(byCourse, indexAfter(byCourse, courseId, afterStudentId), lastKey, pageable, i -> {
+        Student student = database.students.get(low(byCourse.keyAt(i)));
+        return new StudentResource(
+            student.getId(), student.getName(), student.getBirthday(), student.getVersion());
+      });
+    });
+  }
+
+  @Override
+  public Slice<CourseResource> findCoursesByStudentId(long studentId, long afterCourseId, Pageable pageable) {
+    return database.read(() -> {
+      LongTable<Enrollment> byStudent = database.enrollments;
+      long lastKey = packable(studentId) ? pack(studentId, MAX_ID) : -1;
+      return slice(byStudent, indexAfter(byStudent, studentId, afterCourseId), lastKey, pageable, i -> {
+        Course course = database.courses.get(low(byStudent.keyAt(i)));
+        return new CourseResource(
+            course.getId(), course.getName(), course.isAvailable(), course.getCapacity(), course.getVersion());
+      });
+    });
+  }
+
+  @Override
+  public Slice<EnrollmentDetailResource> findDetailsAfter(long studentId, long courseId, Pageable pageable) {
+    return database.read(() -> slice(
+        database.enrollments, indexAfter(database.enrollments, studentId, courseId), Long.MAX_VALUE, pageable,
+        i -> detail(database.enrollments.valueAt(i))));
+  }
+
+  @Override
+  public Slice<EnrollmentDetailResource> findDetailsByStudentId(
+      long studentId, long afterCourseId, Pageable pageable) {
+    return database.read(() -> {
+      LongTable<Enrollment> byStudent = database.enrollments;
+      long lastKey = packable(studentId) ? pack(studentId, MAX_ID) : -1;
+      return slice(byStudent, indexAfter(byStudent, studentId, afterCourseId), lastKey, pageable,
+          i -> detail(byStudent.valueAt(i)));
+    });
+  }
+
+  @Override
+  public Slice<EnrollmentDetailResource> findDetailsByCourseId(
+      long courseId, long afterStudentId, Pageable pageable) {
+    return database.read(() -> {
+      LongTable<Enrollment> byCourse = database.enrollmentsByCourse;
+      long lastKey = packable(courseId) ? pack(courseId, MAX_ID) : -1;
+      return slice(byCourse, indexAfter(byCourse, courseId, afterStudentId), lastKey, pageable,
+          i -> detail(byCourse.valueAt(i)));
+    });
+  }
+
+  @Override
+  public <S extends Enrollment> S save(S entity) {
+    Assert.notNull(entity, "Entity must not be null.");
+    return database.write(() -> insertOrReplace(entity));
+  }
+
+  @Override
+  public <S extends Enrollment> Iterable<S> saveAll(Iterable<S> entities) {
+    Assert.notNull(entities, "Entities must not be null!");
+    return database.write(() -> {
+      List<S> saved = new ArrayList<>();
+      for (S entity : entities) {
+        saved.add(insertOrReplace(entity));
+      }
+      return saved;
+    });
+  }
+
+  @Override
+  public Optional<Enrollment> findById(EnrollmentPk id) {
+    Assert.notNull(id, "The given id must not be null!");
+    return database.read(() -> Optional.ofNullable(get(id)).map(this::copy));
+  }
+
+  @Override
+  public boolean existsById(EnrollmentPk id) {
+    Assert.notNull(id, "The given id must not be null!");
+    return database.read(() -> get(id) != null);
+  }
+
+  @Override
+  public Iterable<Enrollment> findAll() {
+    return database.read(() -> {
+      List<Enrollment> all = new ArrayList<>(database.enrollments.size());
+      for (int i = 0; i < database.enrollments.size(); i++) {
+        all.add(copy(database.enrollments.valueAt(i)));
+      }
+      return all;
+    });
+  }
+
+  @Override
+  public Iterable<Enrollment> findAllById(Iterable<EnrollmentPk> ids) {
+    Assert.notNull(ids, "Ids must not be null!");
+    return database.read(() -> {
+      List<Enrollment> found = new ArrayList<>();
+      for (EnrollmentPk id : ids) {
+        Enrollment enrollment = get(id);
+        if (enrollment != null) {
+          found.add(copy(enrollment));
+        }
+      }
+      return found;
+    });
+  }
+
+  @Override
+  public long count() {
+    return database.read(database.enrollments::size);
+  }
+
+  @Override
+  public void deleteById(EnrollmentPk id) {
+    Assert.notNull(id, "The given id must not be null!");
+    database.update(() -> {
+      if (get(id) == null) {
+        throw new EmptyResultDataAccessException(
+            String.format("No enrollment entity with id %d/%d exists!", id.getStudentId(), id.getCourseId()), 1);
+      }
+      remove(id.getStudentId(), id.getCourseId());
+    });
+  }
+
+  @Override
+  public void delete(Enrollment entity) {
+    Assert.notNull(entity, "Entity must not be null!");
+    database.update(() -> remove(entity.getStudentId(), entity.getCourseId()));
+  }
+
+  @Override
+  public void deleteAllById(Iterable<? extends EnrollmentPk> ids) {
+    Assert.notNull(ids, "Ids must not be null!");
+    database.update(() -> ids.forEach(id -> remove(id.getStudentId(), id.getCourseId())));
+  }
+
+  @Override
+  public void deleteAll(Iterable<? extends Enrollment> entities) {
+    Assert.notNull(entities, "Entities must not be null!");
+    database.update(() -> entities.forEach(entity -> remove(entity.getStudentId(), entity.getCourseId())));
+  }
+
+  @Override
+  public void deleteAll() {
+    database.update(() -> {
+      while (database.enrollments.size() > 0) {
+        long key = database.enrollments.keyAt(database.enrollments.size() - 1);
+        database.removeEnrollment(high(key), low(key));
+      }
+    });
+  }
+
+  private int insert(long studentId, long courseId, LocalDateTime enrollmentDate) {
+    if (!database.students.containsKey(studentId) || database.enrollments.containsKey(pack(studentId, courseId))) {
+      return 0;
+    }
+    Enrollment enrollment = new Enrollment();
+    enrollment.setStudentId(studentId);
+    enrollment.setCourseId(courseId);
+    enrollment.setEnrollmentDate(enrollmentDate);
+    database.putEnrollment(enrollment);
+    return 1;
+  }
+
+  private Enrollment get(EnrollmentPk id) {
+    if (!packable(id.getStudentId()) || !packable(id.getCourseId())) {
+      return null;
+    }
+    return database.enrollments.get(pack(id.getStudentId(), id.getCourseId()));
+  }
+
+  private <S extends Enrollment> S insertOrReplace(S entity) {
+    // the foreign keys of the enrollment table
+    if (!database.students.containsKey(entity.getStudentId()) || !database.courses.containsKey(entity.getCourseId())) {
+      throw new DataIntegrityViolationException(String.format(
+          "enrollment references missing student %d or course %d", entity.getStudentId(), entity.getCourseId()));
+    }
+    database.putEnrollment(copy(entity));
+    return entity;
+  }
+
+  private void remove(long studentId, long courseId) {
+    if (packable(studentId) && packable(courseId) && database.enrollments.containsKey(pack(studentId, courseId))) {
+      database.removeEnrollment(studentId, courseId);
+    }
+  }
+
+  private EnrollmentDetailResource detail(Enrollment enrollment) {
+    Student student = database.students.get(enrollment.getStudentId());
+    Course course = database.courses.get(enrollment.getCourseId());
+    return new EnrollmentDetailResource(enrollment.getStudentId(), student.getName(),
+        enrollment.getCourseId(), course.getName(), course.isAvailable(), enrollment.getEnrollmentDate());
+  }
+
+  private Enrollment copy(Enrollment enrollment) {
+    Enrollment copy = new Enrollment();
+    copy.setStudentId(enrollment.getStudentId());
+    copy.setCourseId(enrollment.getCourseId());
+    copy.setEnrollmentDate(enrollment.getEnrollmentDate());
+    return copy;
+  }
+
+}
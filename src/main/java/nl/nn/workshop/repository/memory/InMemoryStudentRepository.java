@@ -0,0 +1,94 @@
+package nl.nn.workshop.repository.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.NameMatchResource;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+public class InMemoryStudentRepository extends InMemoryCrudRepository<Student> implements StudentRepository {
+
+  public InMemoryStudentRepository(InMemoryDatabase database) {
+    super(database, database.students, "student");
+  }
+
+  @Override
+  public Slice<Student> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable) {
+    return findByIdGreaterThan(id, pageable);
+  }
+
+  @Override
+  public Stream<NameMatchResource> streamNames() {
+    // a snapshot keeps the lock from being held while the caller works through the names
+    List<NameMatchResource> all = database.read(() -> {
+      List<NameMatchResource> names = new ArrayList<>(database.students.size());
+      for (int i = 0; i < database.students.size(); i++) {
+        Student student = database.students.valueAt(i);
+        names.add(new NameMatchResource(student.getId(), student.getName()));
+      }
+      return names;
+    });
+    return all.stream();
+  }
+
+  @Override
+  long idOf(Student entity) {
+    return entity.getId();
+  }
+
+  @Override
+  void assignId(Student entity, long id) {
+    entity.setId(id);
+  }
+
+  @Override
+  long versionOf(Student entity) {
+    return entity.getVersion();
+  }
+
+  @Override
+  void assignVersion(Student entity, long version) {
+    entity.setVersion(version);
+  }
+
+  @Override
+  boolean changed(Student stored, Student entity) {
+    return !Objects.equals(stored.getName(), entity.getName())
+        || !Objects.equals(stored.getBirthday(), entity.getBirthday());
+  }
+
+  @Override
+  Student copy(Student entity) {
+    Student copy = new Student();
+    copy.setId(entity.getId());
+    copy.setName(entity.getName());
+    copy.setBirthday(entity.getBirthday());
+    copy.setVersion(entity.getVersion());
+    return copy;
+  }
+
+  @Override
+  long nextId() {
+    return database.nextStudentId();
+  }
+
+  @Override
+  boolean isReferenced(long id) {
+    return database.hasEnrollmentsForStudent(id);
+  }
+
+  @Override
+  void store(Student row) {
+    database.putStudent(row);
+  }
+
+  @Override
+  void erase(long id) {
+    database.removeStudent(id);
+  }
+
+}
@@ -0,0 +1,68 @@
+package nl.nn.workshop.repository.memory;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Transaction manager for the in-memory storage engine. It only demarcates transactions, so
+ * {@code @Transactional} services, synchronizations and transactional tests behave as usual, while each
+ * repository call stays atomic on its own. There is nothing to roll back: writes are applied when the
+ * repository call returns.
+ */
+public class InMemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+  @Override
+  protected Object doGetTransaction() {
+    return new InMemoryTransaction(TransactionSynchronizationManager.hasResource(this));
+  }
+
+  @Override
+  protected boolean isExistingTransaction(Object transaction) {
+    return ((InMemoryTransaction) transaction).existing;
+  }
+
+  @Override
+  protected void doBegin(Object transaction, TransactionDefinition definition) {
+    TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+  }
+
+  @Override
+  protected Object doSuspend(Object transaction) {
+    return TransactionSynchronizationManager.unbindResource(this);
+  }
+
+  @Override
+  protected void doResume(Object transaction, Object suspendedResources) {
+    TransactionSynchronizationManager.bindResource(this, suspendedResources);
+  }
+
+  @Override
+  protected void doCommit(DefaultTransactionStatus status) {
+  }
+
+  @Override
+  protected void doRollback(DefaultTransactionStatus status) {
+  }
+
+  @Override
+  protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+  }
+
+  @Override
+  protected void doCleanupAfterCompletion(Object transaction) {
+    TransactionSynchronizationManager.unbindResourceIfPossible(this);
+  }
+
+  private static final class InMemoryTransaction {
+
+    private final boolean existing;
+
+    private InMemoryTransaction(boolean existing) {
+      this.existing = existing;
+    }
+
+  }
+
+}
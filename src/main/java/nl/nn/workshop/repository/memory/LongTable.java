@@ -0,0 +1,129 @@
+package nl.nn.workshop.repository.memory;
+
+/**
+ * Rows keyed by a primitive long. Point lookups go through an open addressing hash index with linear
+ * probing, ordered scans through the chunked {@link SortedLongs} copy of the keys, so neither path boxes a
+ * key and a key that lands in the middle costs no more than one at the end. Key {@code 0} marks a free slot
+ * and can not be stored. Not thread safe, {@link InMemoryDatabase} guards every access.
+ */
+final class LongTable<V> {
+
+  private static final long FREE = 0L;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private long[] slots = new long[INITIAL_CAPACITY];
+  private Object[] values = new Object[INITIAL_CAPACITY];
+  private final SortedLongs sorted = new SortedLongs();
+  private int size;
+
+  int size() {
+    return size;
+  }
+
+  boolean containsKey(long key) {
+    return key != FREE && slots[slotOf(key)] == key;
+  }
+
+  @SuppressWarnings("unchecked")
+  V get(long key) {
+    return key == FREE ? null : (V) values[slotOf(key)];
+  }
+
+  @SuppressWarnings("unchecked")
+  V put(long key, V value) {
+    if (key == FREE) {
+      throw new IllegalArgumentException("key 0 is reserved");
+    }
+    int slot = slotOf(key);
+    if (slots[slot] == key) {
+      V previous = (V) values[slot];
+      values[slot] = value;
+      return previous;
+    }
+    slots[slot] = key;
+    values[slot] = value;
+    sorted.add(key);
+    if (++size > slots.length >>> 1) {
+      rehash(slots.length << 1);
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  V remove(long key) {
+    if (key == FREE) {
+      return null;
+    }
+    int mask = slots.length - 1;
+    int gap = slotOf(key);
+    if (slots[gap] != key) {
+      return null;
+    }
+    V previous = (V) values[gap];
+    // backward shift deletion: pull later entries of the probe run into the gap so lookups never need
+    // tombstones
+    for (int i = (gap + 1) & mask; slots[i] != FREE; i = (i + 1) & mask) {
+      int home = home(slots[i], mask);
+      if (((i - home) & mask) >= ((i - gap) & mask)) {
+        slots[gap] = slots[i];
+        values[gap] = values[i];
+        gap = i;
+      }
+    }
+    slots[gap] = FREE;
+    values[gap] = null;
+    sorted.remove(key);
+    size--;
+    return previous;
+  }
+
+  void clear() {
+    slots = new long[INITIAL_CAPACITY];
+    values = new Object[INITIAL_CAPACITY];
+    sorted.clear();
+    size = 0;
+  }
+
+  /** Key at {@code index} in ascending key order. */
+  long keyAt(int index) {
+    return sorted.get(index);
+  }
+
+  V valueAt(int index) {
+    return get(sorted.get(index));
+  }
+
+  /** Index of the first key in ascending order that is greater than {@code key}. */
+  int indexAfter(long key) {
+    return sorted.indexAfter(key);
+  }
+
+  private int slotOf(long key) {
+    int mask = slots.length - 1;
+    int slot = home(key, mask);
+    while (slots[slot] != FREE && slots[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private static int home(long key, int mask) {
+    // fibonacci hashing spreads sequential ids over the whole table
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldSlots = slots;
+    Object[] oldValues = values;
+    slots = new long[capacity];
+    values = new Object[capacity];
+    for (int i = 0; i < oldSlots.length; i++) {
+      if (oldSlots[i] != FREE) {
+        int slot = slotOf(oldSlots[i]);
+        slots[slot] = oldSlots[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+}
@@ -0,0 +1,199 @@
+package nl.nn.workshop.repository.memory;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import nl.nn.workshop.changes.ChangeLog;
+import nl.nn.workshop.model.Change;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Enrollment;
+import nl.nn.workshop.model.Student;
+
+/**
+ * Binary layout of rows and mutations, shared by the write-ahead log and the snapshots. Sizes are computed
+ * up front so records can be framed and snapshots mapped without encoding anything twice.
+ */
+final class RowCodec {
+
+  static final byte PUT_STUDENT = 1;
+  static final byte REMOVE_STUDENT = 2;
+  static final byte PUT_COURSE = 3;
+  static final byte REMOVE_COURSE = 4;
+  static final byte PUT_ENROLLMENT = 5;
+  static final byte REMOVE_ENROLLMENT = 6;
+  static final byte CLEAR = 7;
+  static final byte PUT_CHANGE = 8;
+  static final byte REMOVE_CHANGE = 9;
+
+  static final int ENROLLMENT_SIZE = Long.BYTES * 3 + Integer.BYTES;
+  static final int ENROLLMENT_KEY_SIZE = Long.BYTES * 2;
+  static final int CHANGE_SIZE = 2 + Long.BYTES * 5 + Integer.BYTES * 2;
+  /** The id and name length a student or course starts with, enough to tell the size of the whole row. */
+  static final int PREFIX_SIZE = Long.BYTES + Integer.BYTES;
+
+  private static final int STUDENT_FIXED_SIZE = Long.BYTES * 3;
+  private static final int COURSE_FIXED_SIZE = Long.BYTES * 2 + 1 + Integer.BYTES * 2;
+
+  private static final long NULL_MARKER = Long.MIN_VALUE;
+
+  private RowCodec() {
+  }
+
+  static int size(Student student) {
+    return STUDENT_FIXED_SIZE + size(student.getName());
+  }
+
+  /** Size of the student at the position of {@code buffer}, which holds at least its prefix. */
+  static int studentSize(ByteBuffer buffer) {
+    return STUDENT_FIXED_SIZE + stringSizeAt(buffer, buffer.position() + Long.BYTES);
+  }
+
+  static void write(ByteBuffer buffer, Student student) {
+    buffer.putLong(student.getId());
+    write(buffer, student.getName());
+    buffer.putLong(student.getBirthday() == null ? NULL_MARKER : student.getBirthday().toEpochDay());
+    buffer.putLong(student.getVersion());
+  }
+
+  static Student readStudent(ByteBuffer buffer) {
+    Student student = new Student();
+    student.setId(buffer.getLong());
+    student.setName(readString(buffer));
+    long birthday = buffer.getLong();
+    student.setBirthday(birthday == NULL_MARKER ? null : LocalDate.ofEpochDay(birthday));
+    student.setVersion(buffer.getLong());
+    return student;
+  }
+
+  static int size(Course course) {
+    return COURSE_FIXED_SIZE + size(course.getName());
+  }
+
+  /** Size of the course at the position of {@code buffer}, which holds at least its prefix. */
+  static int courseSize(ByteBuffer buffer) {
+    return COURSE_FIXED_SIZE + stringSizeAt(buffer, buffer.position() + Long.BYTES);
+  }
+
+  static void write(ByteBuffer buffer, Course course) {
+    buffer.putLong(course.getId());
+    write(buffer, course.getName());
+    buffer.put((byte) (course.isAvailable() ? 1 : 0));
+    buffer.putInt(course.getCapacity() == null ? -1 : course.getCapacity());
+    buffer.putInt(course.getSeatsTaken());
+    buffer.putLong(course.getVersion());
+  }
+
+  static Course readCourse(ByteBuffer buffer) {
+    Course course = new Course();
+    course.setId(buffer.getLong());
+    course.setName(readString(buffer));
+    course.setAvailable(buffer.get() != 0);
+    int capacity = buffer.getInt();
+    course.setCapacity(capacity < 0 ? null : capacity);
+    course.setSeatsTaken(buffer.getInt());
+    course.setVersion(buffer.getLong());
+    return course;
+  }
+
+  static void write(ByteBuffer buffer, Enrollment enrollment) {
+    buffer.putLong(enrollment.getStudentId());
+    buffer.putLong(enrollment.getCourseId());
+    LocalDateTime date = enrollment.getEnrollmentDate();
+    buffer.putLong(date == null ? NULL_MARKER : date.toEpochSecond(ZoneOffset.UTC));
+    buffer.putInt(date == null ? 0 : date.getNano());
+  }
+
+  static Enrollment readEnrollment(ByteBuffer buffer) {
+    Enrollment enrollment = new Enrollment();
+    enrollment.setStudentId(buffer.getLong());
+    enrollment.setCourseId(buffer.getLong());
+    long seconds = buffer.getLong();
+    int nanos = buffer.getInt();
+    enrollment.setEnrollmentDate(
+        seconds == NULL_MARKER ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+    return enrollment;
+  }
+
+  static void write(ByteBuffer buffer, Change change) {
+    buffer.put((byte) change.getEntity().ordinal());
+    buffer.putLong(change.getRowId());
+    buffer.putLong(change.getCourseId());
+    buffer.put((byte) change.getType().ordinal());
+    LocalDateTime date = change.getEnrollmentDate();
+    buffer.putLong(date == null ? NULL_MARKER : date.toEpochSecond(ZoneOffset.UTC));
+    buffer.putInt(date == null ? 0 : date.getNano());
+    buffer.putLong(change.getSequence());
+    buffer.putLong(change.getChangedAt().toEpochSecond(ZoneOffset.UTC));
+    buffer.putInt(change.getChangedAt().getNano());
+  }
+
+  static Change readChange(ByteBuffer buffer) {
+    Change change = new Change();
+    change.setEntity(ChangeLog.Entity.values()[buffer.get()]);
+    change.setRowId(buffer.getLong());
+    change.setCourseId(buffer.getLong());
+    change.setType(ChangeLog.Type.values()[buffer.get()]);
+    long seconds = buffer.getLong();
+    int nanos = buffer.getInt();
+    change.setEnrollmentDate(
+        seconds == NULL_MARKER ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+    change.setSequence(buffer.getLong());
+    seconds = buffer.getLong();
+    change.setChangedAt(LocalDateTime.ofEpochSecond(seconds, buffer.getInt(), ZoneOffset.UTC));
+    return change;
+  }
+
+  private static int size(String value) {
+    return Integer.BYTES + (value == null ? 0 : utf8Length(value));
+  }
+
+  private static int stringSizeAt(ByteBuffer buffer, int index) {
+    return Integer.BYTES + Math.max(buffer.getInt(index), 0);
+  }
+
+  private static void write(ByteBuffer buffer, String value) {
+    if (value == null) {
+      buffer.putInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(UTF_8);
+    buffer.putInt(bytes.length);
+    buffer.put(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  // matches String.getBytes(UTF_8), which replaces an unpaired surrogate with a single '?'
+  private static int utf8Length(String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length += 1;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+          && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else if (Character.isSurrogate(c)) {
+        length += 1;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+}
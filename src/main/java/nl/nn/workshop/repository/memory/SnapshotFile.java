@@ -0,0 +1,238 @@
+package nl.nn.workshop.repository.memory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import nl.nn.workshop.model.Change;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Enrollment;
+import nl.nn.workshop.model.Student;
+
+/**
+ * Compact image of all tables, written through memory mappings of up to {@value #WINDOW_SIZE} bytes each
+ * into a temporary file that atomically replaces the previous snapshot once it is forced to disk. A row is
+ * never split over two mappings, so the image is not limited to what one mapping can hold. The header
+ * records the first log segment the image does not cover, so recovery is this image plus the segments from
+ * that generation on.
+ */
+final class SnapshotFile {
+
+  static final String NAME = "snapshot.bin";
+
+  private static final int MAGIC = 0x57534E50;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES * 3;
+  private static final int WINDOW_SIZE = 1 << 30;
+
+  static final class Image {
+
+    final long generation;
+    final long studentSequence;
+    final long courseSequence;
+    final List<Student> students;
+    final List<Course> courses;
+    final List<Enrollment> enrollments;
+    final List<Change> changes;
+
+    Image(long generation, long studentSequence, long courseSequence, List<Student> students,
+        List<Course> courses, List<Enrollment> enrollments, List<Change> changes) {
+      this.generation = generation;
+      this.studentSequence = studentSequence;
+      this.courseSequence = courseSequence;
+      this.students = students;
+      this.courses = courses;
+      this.enrollments = enrollments;
+      this.changes = changes;
+    }
+
+  }
+
+  private SnapshotFile() {
+  }
+
+  static void write(Path directory, Image image) throws IOException {
+    write(directory, image, WINDOW_SIZE);
+  }
+
+  static void write(Path directory, Image image, int windowSize) throws IOException {
+    long size = HEADER_SIZE + Integer.BYTES * 4L + Integer.BYTES
+        + (long) image.enrollments.size() * RowCodec.ENROLLMENT_SIZE
+        + (long) image.changes.size() * RowCodec.CHANGE_SIZE;
+    for (Student student : image.students) {
+      size += RowCodec.size(student);
+    }
+    for (Course course : image.courses) {
+      size += RowCodec.size(course);
+    }
+
+    Path temporary = directory.resolve(NAME + ".tmp");
+    try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      Windows windows = new Windows(file, FileChannel.MapMode.READ_WRITE, size, windowSize);
+      ByteBuffer header = windows.next(HEADER_SIZE);
+      header.putInt(MAGIC);
+      header.putInt(VERSION);
+      header.putLong(image.generation);
+      header.putLong(image.studentSequence);
+      header.putLong(image.courseSequence);
+      windows.next(Integer.BYTES).putInt(image.students.size());
+      for (Student student : image.students) {
+        RowCodec.write(windows.next(RowCodec.size(student)), student);
+      }
+      windows.next(Integer.BYTES).putInt(image.courses.size());
+      for (Course course : image.courses) {
+        RowCodec.write(windows.next(RowCodec.size(course)), course);
+      }
+      windows.next(Integer.BYTES).putInt(image.enrollments.size());
+      for (Enrollment enrollment : image.enrollments) {
+        RowCodec.write(windows.next(RowCodec.ENROLLMENT_SIZE), enrollment);
+      }
+      windows.next(Integer.BYTES).putInt(image.changes.size());
+      for (Change change : image.changes) {
+        RowCodec.write(windows.next(RowCodec.CHANGE_SIZE), change);
+      }
+      ByteBuffer trailer = windows.next(Integer.BYTES);
+      int checksum = (int) windows.checksum();
+      trailer.putInt(checksum);
+      windows.close();
+    }
+    Files.move(temporary, directory.resolve(NAME), StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+    forceDirectory(directory);
+  }
+
+  /** Reads the latest snapshot, or returns {@code null} when none was written yet. */
+  static Image read(Path directory) throws IOException {
+    return read(directory, WINDOW_SIZE);
+  }
+
+  static Image read(Path directory, int windowSize) throws IOException {
+    Path path = directory.resolve(NAME);
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+      long end = file.size() - Integer.BYTES;
+      Windows windows = new Windows(file, FileChannel.MapMode.READ_ONLY, end, windowSize);
+      // the whole image is checked before anything is decoded, a torn write never yields rows
+      if (end < HEADER_SIZE || file.map(FileChannel.MapMode.READ_ONLY, end, Integer.BYTES).getInt()
+          != (int) checksum(file, end, windowSize)) {
+        throw new IOException(String.format("%s is not a valid snapshot", path));
+      }
+      ByteBuffer header = windows.next(HEADER_SIZE);
+      if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+        throw new IOException(String.format("%s is not a valid snapshot", path));
+      }
+      long generation = header.getLong();
+      long studentSequence = header.getLong();
+      long courseSequence = header.getLong();
+      int count = windows.next(Integer.BYTES).getInt();
+      List<Student> students = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        students.add(RowCodec.readStudent(windows.next(RowCodec.studentSize(windows.next(RowCodec.PREFIX_SIZE)))));
+      }
+      count = windows.next(Integer.BYTES).getInt();
+      List<Course> courses = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        courses.add(RowCodec.readCourse(windows.next(RowCodec.courseSize(windows.next(RowCodec.PREFIX_SIZE)))));
+      }
+      count = windows.next(Integer.BYTES).getInt();
+      List<Enrollment> enrollments = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        enrollments.add(RowCodec.readEnrollment(windows.next(RowCodec.ENROLLMENT_SIZE)));
+      }
+      count = windows.next(Integer.BYTES).getInt();
+      List<Change> changes = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        changes.add(RowCodec.readChange(windows.next(RowCodec.CHANGE_SIZE)));
+      }
+      return new Image(generation, studentSequence, courseSequence, students, courses, enrollments, changes);
+    }
+  }
+
+  private static long checksum(FileChannel file, long end, int windowSize) throws IOException {
+    CRC32 checksum = new CRC32();
+    for (long offset = 0; offset < end; offset += windowSize) {
+      checksum.update(file.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, end - offset)));
+    }
+    return checksum.getValue();
+  }
+
+  // makes the rename itself durable, not every platform lets a directory be opened for that
+  private static void forceDirectory(Path directory) {
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // best effort
+    }
+  }
+
+  /**
+   * The part of a file that is mapped, which moves on to a new mapping at the current position when the
+   * next row does not fit in the rest of it. A written mapping is checksummed and forced to disk when it is
+   * left behind.
+   */
+  private static final class Windows {
+
+    private final FileChannel file;
+    private final FileChannel.MapMode mode;
+    private final long size;
+    private final int windowSize;
+    private final CRC32 checksum = new CRC32();
+    private MappedByteBuffer window;
+    private long windowStart;
+    // how much of the current window went into the checksum already
+    private int checked;
+
+    private Windows(FileChannel file, FileChannel.MapMode mode, long size, int windowSize) {
+      this.file = file;
+      this.mode = mode;
+      this.size = size;
+      this.windowSize = windowSize;
+    }
+
+    /** The mapping, positioned at the next {@code bytes} bytes of the file. */
+    ByteBuffer next(int bytes) throws IOException {
+      if (window != null && window.remaining() >= bytes) {
+        return window;
+      }
+      long position = window == null ? 0 : windowStart + window.position();
+      close();
+      long length = Math.min(Math.max(windowSize, bytes), size - position);
+      if (length < bytes) {
+        throw new IOException(String.format("row of %d bytes at %d runs past the end of the snapshot", bytes,
+            position));
+      }
+      window = file.map(mode, position, length);
+      windowStart = position;
+      checked = 0;
+      return window;
+    }
+
+    /** The checksum of everything written up to the current position. */
+    long checksum() {
+      if (window != null) {
+        checksum.update(window.duplicate().position(checked).limit(window.position()));
+        checked = window.position();
+      }
+      return checksum.getValue();
+    }
+
+    void close() {
+      if (window != null && mode == FileChannel.MapMode.READ_WRITE) {
+        checksum();
+        window.force();
+      }
+    }
+
+  }
+
+}
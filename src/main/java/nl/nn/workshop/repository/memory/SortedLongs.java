@@ -0,0 +1,197 @@
+package nl.nn.workshop.repository.memory;
+
+import java.util.Arrays;
+
+/**
+ * Distinct longs in ascending order, addressable by their position. The keys are kept in chunks of at most
+ * {@value #CHUNK_SIZE} sorted keys with a Fenwick tree over the chunk sizes, so adding or removing a key
+ * only moves the keys of its own chunk, and finding the chunk of a key or a position takes O(log n) steps.
+ * One sorted array would move half of all keys for a key that lands in the middle. Not thread safe.
+ */
+final class SortedLongs {
+
+  private static final int CHUNK_SIZE = 1024;
+  private static final int INITIAL_CHUNKS = 4;
+
+  private long[][] chunks = new long[INITIAL_CHUNKS][];
+  private int[] sizes = new int[INITIAL_CHUNKS];
+  private int chunkCount;
+  // 1-based Fenwick tree over sizes, tree[i] holds the sum of the sizes of the chunks (i - (i & -i), i]
+  private int[] tree = new int[INITIAL_CHUNKS + 1];
+  private int size;
+
+  SortedLongs() {
+    clear();
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    chunks = new long[INITIAL_CHUNKS][];
+    sizes = new int[INITIAL_CHUNKS];
+    chunks[0] = new long[CHUNK_SIZE];
+    chunkCount = 1;
+    tree = new int[INITIAL_CHUNKS + 1];
+    size = 0;
+  }
+
+  /** Adds {@code key}, which must not be present yet. */
+  void add(long key) {
+    int chunk = chunkOf(key);
+    if (sizes[chunk] == CHUNK_SIZE) {
+      if (chunk == chunkCount - 1 && key > chunks[chunk][CHUNK_SIZE - 1]) {
+        // ids come from sequences, a key past the end starts a new chunk so the full ones stay full
+        insertChunk(chunk + 1, new long[CHUNK_SIZE], 0);
+        chunk++;
+      } else {
+        split(chunk);
+        if (key > chunks[chunk][sizes[chunk] - 1]) {
+          chunk++;
+        }
+      }
+    }
+    long[] keys = chunks[chunk];
+    int count = sizes[chunk];
+    int position = count == 0 || keys[count - 1] < key ? count : positionAfter(keys, count, key);
+    System.arraycopy(keys, position, keys, position + 1, count - position);
+    keys[position] = key;
+    sizes[chunk]++;
+    addToTree(chunk, 1);
+    size++;
+  }
+
+  /** Removes {@code key} and tells whether it was present. */
+  boolean remove(long key) {
+    int chunk = chunkOf(key);
+    long[] keys = chunks[chunk];
+    int count = sizes[chunk];
+    int position = Arrays.binarySearch(keys, 0, count, key);
+    if (position < 0) {
+      return false;
+    }
+    System.arraycopy(keys, position + 1, keys, position, count - position - 1);
+    sizes[chunk]--;
+    addToTree(chunk, -1);
+    size--;
+    // merging chunks that fit in half a chunk together keeps them from thinning out after many removes, an
+    // empty chunk is merged away whatever its neighbour holds
+    boolean empty = sizes[chunk] == 0;
+    if (chunk + 1 < chunkCount && (empty || sizes[chunk] + sizes[chunk + 1] <= CHUNK_SIZE / 2)) {
+      merge(chunk);
+    } else if (chunk > 0 && (empty || sizes[chunk - 1] + sizes[chunk] <= CHUNK_SIZE / 2)) {
+      merge(chunk - 1);
+    }
+    return true;
+  }
+
+  /** Key at {@code index} in ascending order. */
+  long get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index " + index + " of " + size);
+    }
+    // descend the Fenwick tree to the chunk that holds the index
+    int chunk = 0;
+    int remaining = index;
+    for (int step = Integer.highestOneBit(chunkCount); step > 0; step >>>= 1) {
+      int next = chunk + step;
+      if (next <= chunkCount && tree[next] <= remaining) {
+        chunk = next;
+        remaining -= tree[next];
+      }
+    }
+    return chunks[chunk][remaining];
+  }
+
+  /** Index of the first key that is greater than {@code key}. */
+  int indexAfter(long key) {
+    int chunk = chunkOf(key);
+    return countBefore(chunk) + positionAfter(chunks[chunk], sizes[chunk], key);
+  }
+
+  // the first chunk whose last key is not smaller than key, or the last chunk
+  private int chunkOf(long key) {
+    int low = 0;
+    int high = chunkCount - 1;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (chunks[middle][sizes[middle] - 1] < key) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static int positionAfter(long[] keys, int count, long key) {
+    int position = Arrays.binarySearch(keys, 0, count, key);
+    return position >= 0 ? position + 1 : -position - 1;
+  }
+
+  private int countBefore(int chunk) {
+    int count = 0;
+    for (int i = chunk; i > 0; i -= i & -i) {
+      count += tree[i];
+    }
+    return count;
+  }
+
+  private void addToTree(int chunk, int delta) {
+    for (int i = chunk + 1; i <= chunkCount; i += i & -i) {
+      tree[i] += delta;
+    }
+  }
+
+  private void split(int chunk) {
+    long[] keys = chunks[chunk];
+    int half = sizes[chunk] >>> 1;
+    long[] upper = new long[CHUNK_SIZE];
+    System.arraycopy(keys, half, upper, 0, sizes[chunk] - half);
+    int upperSize = sizes[chunk] - half;
+    sizes[chunk] = half;
+    insertChunk(chunk + 1, upper, upperSize);
+  }
+
+  private void merge(int chunk) {
+    System.arraycopy(chunks[chunk + 1], 0, chunks[chunk], sizes[chunk], sizes[chunk + 1]);
+    sizes[chunk] += sizes[chunk + 1];
+    System.arraycopy(chunks, chunk + 2, chunks, chunk + 1, chunkCount - chunk - 2);
+    System.arraycopy(sizes, chunk + 2, sizes, chunk + 1, chunkCount - chunk - 2);
+    chunkCount--;
+    chunks[chunkCount] = null;
+    sizes[chunkCount] = 0;
+    rebuildTree();
+  }
+
+  private void insertChunk(int chunk, long[] keys, int count) {
+    if (chunkCount == chunks.length) {
+      chunks = Arrays.copyOf(chunks, chunkCount << 1);
+      sizes = Arrays.copyOf(sizes, chunkCount << 1);
+    }
+    System.arraycopy(chunks, chunk, chunks, chunk + 1, chunkCount - chunk);
+    System.arraycopy(sizes, chunk, sizes, chunk + 1, chunkCount - chunk);
+    chunks[chunk] = keys;
+    sizes[chunk] = count;
+    chunkCount++;
+    rebuildTree();
+  }
+
+  // only when the chunks change, which takes at least half a chunk of adds or removes
+  private void rebuildTree() {
+    if (tree.length < chunks.length + 1) {
+      tree = new int[chunks.length + 1];
+    } else {
+      Arrays.fill(tree, 0);
+    }
+    for (int i = 1; i <= chunkCount; i++) {
+      tree[i] += sizes[i - 1];
+      int parent = i + (i & -i);
+      if (parent <= chunkCount) {
+        tree[parent] += tree[i];
+      }
+    }
+  }
+
+}
@@ -0,0 +1,253 @@
+package nl.nn.workshop.repository.memory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+/**
+ * Append-only log of table mutations, split into numbered segment files. Records are framed as
+ * {@code [length][crc32][type][body]}, so recovery stops cleanly at a record torn by a crash. Appending
+ * only copies into a buffer: a single flusher thread writes whatever accumulated while its previous
+ * fsync ran and forces it in one go, so concurrent writers share the cost of a sync (group commit).
+ */
+final class WriteAheadLog implements Closeable {
+
+  interface RecordHandler {
+
+    void apply(byte type, ByteBuffer body);
+
+  }
+
+  private static final String SEGMENT_PREFIX = "wal-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  private static final int HEADER_SIZE = Integer.BYTES * 2;
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+  private final Path directory;
+  private final Object monitor = new Object();
+  private final CRC32 checksum = new CRC32();
+  private final Thread flusher;
+
+  // all guarded by monitor
+  private FileChannel channel;
+  private long generation;
+  private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+  private ByteBuffer flushing = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+  private long appended;
+  private long durable;
+  private IOException failure;
+  private boolean closed;
+
+  WriteAheadLog(Path directory, long generation) throws IOException {
+    this.directory = directory;
+    this.generation = generation;
+    this.channel = openSegment(directory, generation);
+    this.flusher = new Thread(this::flush, "workshop-wal-flusher");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Buffers one record and returns the log position that has to become durable before the mutation it
+   * describes may be acknowledged.
+   */
+  long append(byte type, int bodySize, Consumer<ByteBuffer> body) {
+    synchronized (monitor) {
+      if (failure != null || closed) {
+        throw new DataAccessResourceFailureException("write-ahead log is not writable", failure);
+      }
+      int size = HEADER_SIZE + 1 + bodySize;
+      if (pending.remaining() < size) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + size));
+        pending.flip();
+        pending = grown.put(pending);
+      }
+      int start = pending.position();
+      pending.position(start + HEADER_SIZE);
+      pending.put(type);
+      body.accept(pending);
+      checksum.reset();
+      checksum.update(pending.duplicate().position(start + HEADER_SIZE).limit(pending.position()));
+      pending.putInt(start, size - HEADER_SIZE);
+      pending.putInt(start + Integer.BYTES, (int) checksum.getValue());
+      appended += size;
+      monitor.notifyAll();
+      return appended;
+    }
+  }
+
+  long position() {
+    synchronized (monitor) {
+      return appended;
+    }
+  }
+
+  void awaitDurable(long position) {
+    synchronized (monitor) {
+      while (durable < position) {
+        if (failure != null) {
+          throw new DataAccessResourceFailureException("write-ahead log failed", failure);
+        }
+        try {
+          monitor.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new DataAccessResourceFailureException("interrupted while waiting for the write-ahead log", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Starts a new segment and returns its generation, every record appended before the call is durable
+   * in an older segment by then. The caller has to keep appends out while this runs.
+   */
+  long rotate() throws IOException {
+    awaitDurable(position());
+    synchronized (monitor) {
+      channel.close();
+      channel = openSegment(directory, ++generation);
+      return generation;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (monitor) {
+      closed = true;
+      monitor.notifyAll();
+    }
+    try {
+      flusher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (monitor) {
+      channel.close();
+    }
+  }
+
+  static List<Path> segments(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+          .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+          .sorted((left, right) -> Long.compare(generationOf(left), generationOf(right)))
+          .collect(Collectors.toList());
+    }
+  }
+
+  static long generationOf(Path segment) {
+    String name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /**
+   * Hands every intact record of a segment to the handler. A torn or corrupt record can only be the tail
+   * of the segment that was being written when the process died, it was never acknowledged, so it is cut
+   * off together with anything after it.
+   */
+  static void replay(Path segment, RecordHandler handler) throws IOException {
+    long valid;
+    long size;
+    try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ)) {
+      size = file.size();
+      MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      CRC32 checksum = new CRC32();
+      while (buffer.remaining() >= HEADER_SIZE) {
+        int length = buffer.getInt(buffer.position());
+        int crc = buffer.getInt(buffer.position() + Integer.BYTES);
+        if (length <= 0 || length > buffer.remaining() - HEADER_SIZE) {
+          break;
+        }
+        ByteBuffer record = buffer.duplicate();
+        record.position(buffer.position() + HEADER_SIZE).limit(buffer.position() + HEADER_SIZE + length);
+        checksum.reset();
+        checksum.update(record.duplicate());
+        if ((int) checksum.getValue() != crc) {
+          break;
+        }
+        handler.apply(record.get(), record);
+        buffer.position(record.limit());
+      }
+      valid = buffer.position();
+    }
+    if (valid < size) {
+      try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+        file.truncate(valid);
+        file.force(true);
+      }
+    }
+  }
+
+  static void deleteSegmentsBefore(Path directory, long generation) throws IOException {
+    for (Path segment : segments(directory)) {
+      if (generationOf(segment) < generation) {
+        Files.delete(segment);
+      }
+    }
+  }
+
+  private void flush() {
+    while (true) {
+      ByteBuffer batch;
+      FileChannel target;
+      long upTo;
+      synchronized (monitor) {
+        while (pending.position() == 0 && !closed) {
+          try {
+            monitor.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+        if (pending.position() == 0) {
+          return;
+        }
+        // swap buffers so writers keep appending while this batch goes to disk
+        batch = pending;
+        pending = flushing;
+        flushing = batch;
+        target = channel;
+        upTo = appended;
+      }
+      try {
+        batch.flip();
+        while (batch.hasRemaining()) {
+          target.write(batch);
+        }
+        target.force(false);
+      } catch (IOException e) {
+        synchronized (monitor) {
+          failure = e;
+          monitor.notifyAll();
+        }
+        return;
+      } finally {
+        batch.clear();
+      }
+      synchronized (monitor) {
+        durable = upTo;
+        monitor.notifyAll();
+      }
+    }
+  }
+
+  private static FileChannel openSegment(Path directory, long generation) throws IOException {
+    Path segment = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX));
+    return FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+}
@@ -0,0 +1,66 @@
+package nl.nn.workshop.resource;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The changes after a token, oldest first, and the token to ask for the changes after these. While
+ * {@code more} is set the client should ask again right away.
+ */
+public class ChangeFeedResource {
+
+  private List<ChangeResource> changes;
+  private String token;
+  private boolean more;
+
+  public ChangeFeedResource() {
+  }
+
+  public ChangeFeedResource(List<ChangeResource> changes, String token, boolean more) {
+    this.changes = changes;
+    this.token = token;
+    this.more = more;
+  }
+
+  public List<ChangeResource> getChanges() {
+    return changes;
+  }
+
+  public void setChanges(List<ChangeResource> changes) {
+    this.changes = changes;
+  }
+
+  public String getToken() {
+    return token;
+  }
+
+  public void setToken(String token) {
+    this.token = token;
+  }
+
+  public boolean isMore() {
+    return more;
+  }
+
+  public void setMore(boolean more) {
+    this.more = more;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ChangeFeedResource that = (ChangeFeedResource) o;
+    return more == that.more && Objects.equals(changes, that.changes) && Objects.equals(token, that.token);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(changes, token, more);
+  }
+
+}
@@ -0,0 +1,110 @@
+package nl.nn.workshop.resource;
+
+import java.util.Objects;
+
+/**
+ * One changed row. Students and courses are identified by {@code id} and come along in full when they were
+ * saved, a deleted one is only its id. An enrollment is its own identity and comes along either way.
+ */
+public class ChangeResource {
+
+  private long sequence;
+  private String entity;
+  private String type;
+  private Long id;
+  private StudentResource student;
+  private CourseResource course;
+  private EnrollmentResource enrollment;
+
+  public ChangeResource() {
+  }
+
+  public ChangeResource(
+      long sequence, String entity, String type, Long id,
+      StudentResource student, CourseResource course, EnrollmentResource enrollment) {
+    this.sequence = sequence;
+    this.entity = entity;
+    this.type = type;
+    this.id = id;
+    this.student = student;
+    this.course = course;
+    this.enrollment = enrollment;
+  }
+
+  public long getSequence() {
+    return sequence;
+  }
+
+  public void setSequence(long sequence) {
+    this.sequence = sequence;
+  }
+
+  public String getEntity() {
+    return entity;
+  }
+
+  public void setEntity(String entity) {
+    this.entity = entity;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public void setType(String type) {
+    this.type = type;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(Long id) {
+    this.id = id;
+  }
+
+  public StudentResource getStudent() {
+    return student;
+  }
+
+  public void setStudent(StudentResource student) {
+    this.student = student;
+  }
+
+  public CourseResource getCourse() {
+    return course;
+  }
+
+  public void setCourse(CourseResource course) {
+    this.course = course;
+  }
+
+  public EnrollmentResource getEnrollment() {
+    return enrollment;
+  }
+
+  public void setEnrollment(EnrollmentResource enrollment) {
+    this.enrollment = enrollment;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ChangeResource that = (ChangeResource) o;
+    return sequence == that.sequence && Objects.equals(entity, that.entity)
+        && Objects.equals(type, that.type) && Objects.equals(id, that.id)
+        && Objects.equals(student, that.student) && Objects.equals(course, that.course)
+        && Objects.equals(enrollment, that.enrollment);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(sequence, entity, type, id, student, course, enrollment);
+  }
+
+}
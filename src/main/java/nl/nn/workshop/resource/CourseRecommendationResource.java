@@ -0,0 +1,51 @@
+package nl.nn.workshop.resource;
+
+import java.util.Objects;
+
+public class CourseRecommendationResource {
+
+  private long courseId;
+  private int sharedStudents;
+
+  public CourseRecommendationResource() {
+  }
+
+  public CourseRecommendationResource(long courseId, int sharedStudents) {
+    this.courseId = courseId;
+    this.sharedStudents = sharedStudents;
+  }
+
+  public long getCourseId() {
+    return courseId;
+  }
+
+  public void setCourseId(long courseId) {
+    this.courseId = courseId;
+  }
+
+  public int getSharedStudents() {
+    return sharedStudents;
+  }
+
+  public void setSharedStudents(int sharedStudents) {
+    this.sharedStudents = sharedStudents;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    CourseRecommendationResource that = (CourseRecommendationResource) o;
+    return courseId == that.courseId && sharedStudents == that.sharedStudents;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(courseId, sharedStudents);
+  }
+
+}
@@ -7,6 +7,27 @@ public class CourseResource {
   private long id;
   private String name;
   private boolean available;
+  private Integer capacity;
+  private long version;
+
+  public CourseResource() {
+  }
+
+  public CourseResource(long id, String name, boolean available) {
+    this(id, name, available, null);
+  }
+
+  public CourseResource(long id, String name, boolean available, Integer capacity) {
+    this(id, name, available, capacity, 0);
+  }
+
+  public CourseResource(long id, String name, boolean available, Integer capacity, long version) {
+    this.id = id;
+    this.name = name;
+    this.available = available;
+    this.capacity = capacity;
+    this.version = version;
+  }
 
   public long getId() {
     return id;
@@ -32,6 +53,22 @@ public class CourseResource {
     this.available = available;
   }
 
+  public Integer getCapacity() {
+    return capacity;
+  }
+
+  public void setCapacity(Integer capacity) {
+    this.capacity = capacity;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -41,12 +78,13 @@ public class CourseResource {
       return false;
     }
     CourseResource that = (CourseResource) o;
-    return id == that.id && available == that.available && Objects.equals(name, that.name);
+    return id == that.id && available == that.available && version == that.version
+        && Objects.equals(name, that.name) && Objects.equals(capacity, that.capacity);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(id, name, available);
+    return Objects.hash(id, name, available, capacity, version);
   }
 
 }
@@ -0,0 +1,51 @@
+package nl.nn.workshop.resource;
+
+import java.util.Objects;
+
+public class CourseStatsResource {
+
+  private long courseId;
+  private long enrollments;
+
+  public CourseStatsResource() {
+  }
+
+  public CourseStatsResource(long courseId, long enrollments) {
+    this.courseId = courseId;
+    this.enrollments = enrollments;
+  }
+
+  public long getCourseId() {
+    return courseId;
+  }
+
+  public void setCourseId(long courseId) {
+    this.courseId = courseId;
+  }
+
+  public long getEnrollments() {
+    return enrollments;
+  }
+
+  public void setEnrollments(long enrollments) {
+    this.enrollments = enrollments;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    CourseStatsResource that = (CourseStatsResource) o;
+    return courseId == that.courseId && enrollments == that.enrollments;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(courseId, enrollments);
+  }
+
+}
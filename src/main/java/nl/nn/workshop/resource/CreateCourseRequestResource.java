@@ -6,6 +6,7 @@ public class CreateCourseRequestResource {
 
   private String name;
   private boolean available;
+  private Integer capacity;
 
   public String getName() {
     return name;
@@ -23,6 +24,14 @@ public class CreateCourseRequestResource {
     this.available = available;
   }
 
+  public Integer getCapacity() {
+    return capacity;
+  }
+
+  public void setCapacity(Integer capacity) {
+    this.capacity = capacity;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -32,12 +41,13 @@ public class CreateCourseRequestResource {
       return false;
     }
     CreateCourseRequestResource resource = (CreateCourseRequestResource) o;
-    return available == resource.available && Objects.equals(name, resource.name);
+    return available == resource.available && Objects.equals(name, resource.name)
+        && Objects.equals(capacity, resource.capacity);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(name, available);
+    return Objects.hash(name, available, capacity);
   }
 
 }
@@ -0,0 +1,52 @@
+package nl.nn.workshop.resource;
+
+import java.util.List;
+import java.util.Objects;
+
+public class CursorPageResource<T> {
+
+  private List<T> items;
+  private String nextCursor;
+
+  public CursorPageResource() {
+  }
+
+  public CursorPageResource(List<T> items, String nextCursor) {
+    this.items = items;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<T> getItems() {
+    return items;
+  }
+
+  public void setItems(List<T> items) {
+    this.items = items;
+  }
+
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    CursorPageResource<?> that = (CursorPageResource<?>) o;
+    return Objects.equals(items, that.items) && Objects.equals(nextCursor, that.nextCursor);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(items, nextCursor);
+  }
+
+}
@@ -0,0 +1,100 @@
+package nl.nn.workshop.resource;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public class EnrollmentDetailResource {
+
+  private long studentId;
+  private String studentName;
+  private long courseId;
+  private String courseName;
+  private boolean courseAvailable;
+  private LocalDateTime enrollmentDate;
+
+  public EnrollmentDetailResource() {
+  }
+
+  public EnrollmentDetailResource(
+      long studentId,
+      String studentName,
+      long courseId,
+      String courseName,
+      boolean courseAvailable,
+      LocalDateTime enrollmentDate) {
+    this.studentId = studentId;
+    this.studentName = studentName;
+    this.courseId = courseId;
+    this.courseName = courseName;
+    this.courseAvailable = courseAvailable;
+    this.enrollmentDate = enrollmentDate;
+  }
+
+  public long getStudentId() {
+    return studentId;
+  }
+
+  public void setStudentId(long studentId) {
+    this.studentId = studentId;
+  }
+
+  public String getStudentName() {
+    return studentName;
+  }
+
+  public void setStudentName(String studentName) {
+    this.studentName = studentName;
+  }
+
+  public long getCourseId() {
+    return courseId;
+  }
+
+  public void setCourseId(long courseId) {
+    this.courseId = courseId;
+  }
+
+  public String getCourseName() {
+    return courseName;
+  }
+
+  public void setCourseName(String courseName) {
+    this.courseName = courseName;
+  }
+
+  public boolean isCourseAvailable() {
+    return courseAvailable;
+  }
+
+  public void setCourseAvailable(boolean courseAvailable) {
+    this.courseAvailable = courseAvailable;
+  }
+
+  public LocalDateTime getEnrollmentDate() {
+    return enrollmentDate;
+  }
+
+  public void setEnrollmentDate(LocalDateTime enrollmentDate) {
+    this.enrollmentDate = enrollmentDate;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    EnrollmentDetailResource that = (EnrollmentDetailResource) o;
+    return studentId == that.studentId && courseId == that.courseId && courseAvailable == that.courseAvailable
+        && Objects.equals(studentName, that.studentName) && Objects.equals(courseName, that.courseName)
+        && Objects.equals(enrollmentDate, that.enrollmentDate);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(studentId, studentName, courseId, courseName, courseAvailable, enrollmentDate);
+  }
+
+}
@@ -9,6 +9,15 @@ public class EnrollmentResource {
   private long courseId;
   private LocalDateTime enrollmentDate;
 
+  public EnrollmentResource() {
+  }
+
+  public EnrollmentResource(long studentId, long courseId, LocalDateTime enrollmentDate) {
+    this.studentId = studentId;
+    this.courseId = courseId;
+    this.enrollmentDate = enrollmentDate;
+  }
+
   public long getStudentId() {
     return studentId;
   }
@@ -0,0 +1,51 @@
+package nl.nn.workshop.resource;
+
+import java.util.Arrays;
+
+public class IdSetResource {
+
+  private int count;
+  private long[] ids;
+
+  public IdSetResource() {
+  }
+
+  public IdSetResource(long[] ids) {
+    this.count = ids.length;
+    this.ids = ids;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public void setCount(int count) {
+    this.count = count;
+  }
+
+  public long[] getIds() {
+    return ids;
+  }
+
+  public void setIds(long[] ids) {
+    this.ids = ids;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    IdSetResource that = (IdSetResource) o;
+    return count == that.count && Arrays.equals(ids, that.ids);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * count + Arrays.hashCode(ids);
+  }
+
+}
@@ -0,0 +1,53 @@
+package nl.nn.workshop.resource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+public class MultiGetResource<T> {
+
+  private List<T> items;
+  private long[] missingIds;
+
+  public MultiGetResource() {
+  }
+
+  public MultiGetResource(List<T> items, long[] missingIds) {
+    this.items = items;
+    this.missingIds = missingIds;
+  }
+
+  public List<T> getItems() {
+    return items;
+  }
+
+  public void setItems(List<T> items) {
+    this.items = items;
+  }
+
+  public long[] getMissingIds() {
+    return missingIds;
+  }
+
+  public void setMissingIds(long[] missingIds) {
+    this.missingIds = missingIds;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    MultiGetResource<?> that = (MultiGetResource<?>) o;
+    return Objects.equals(items, that.items) && Arrays.equals(missingIds, that.missingIds);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Objects.hash(items) + Arrays.hashCode(missingIds);
+  }
+
+}
@@ -0,0 +1,51 @@
+package nl.nn.workshop.resource;
+
+import java.util.Objects;
+
+public class NameMatchResource {
+
+  private long id;
+  private String name;
+
+  public NameMatchResource() {
+  }
+
+  public NameMatchResource(long id, String name) {
+    this.id = id;
+    this.name = name;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    NameMatchResource that = (NameMatchResource) o;
+    return id == that.id && Objects.equals(name, that.name);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, name);
+  }
+
+}
@@ -0,0 +1,61 @@
+package nl.nn.workshop.resource;
+
+import java.util.Objects;
+
+public class NameSimilarityResource {
+
+  private long id;
+  private String name;
+  private double similarity;
+
+  public NameSimilarityResource() {
+  }
+
+  public NameSimilarityResource(long id, String name, double similarity) {
+    this.id = id;
+    this.name = name;
+    this.similarity = similarity;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public double getSimilarity() {
+    return similarity;
+  }
+
+  public void setSimilarity(double similarity) {
+    this.similarity = similarity;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    NameSimilarityResource that = (NameSimilarityResource) o;
+    return id == that.id && Double.compare(that.similarity, similarity) == 0 && Objects.equals(name, that.name);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, name, similarity);
+  }
+
+}
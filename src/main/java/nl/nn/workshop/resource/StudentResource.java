@@ -8,6 +8,21 @@ public class StudentResource {
   private long id;
   private String name;
   private LocalDate birthday;
+  private long version;
+
+  public StudentResource() {
+  }
+
+  public StudentResource(long id, String name, LocalDate birthday) {
+    this(id, name, birthday, 0);
+  }
+
+  public StudentResource(long id, String name, LocalDate birthday, long version) {
+    this.id = id;
+    this.name = name;
+    this.birthday = birthday;
+    this.version = version;
+  }
 
   public long getId() {
     return id;
@@ -33,6 +48,14 @@ public class StudentResource {
     this.birthday = birthday;
   }
 
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -42,13 +65,13 @@ public class StudentResource {
       return false;
     }
     StudentResource that = (StudentResource) o;
-    return id == that.id && Objects.equals(name, that.name) && Objects.equals(birthday,
-        that.birthday);
+    return id == that.id && version == that.version && Objects.equals(name, that.name)
+        && Objects.equals(birthday, that.birthday);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(id, name, birthday);
+    return Objects.hash(id, name, birthday, version);
   }
 
 }
@@ -0,0 +1,20 @@
+package nl.nn.workshop.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/** Brings names and queries to the form the indexes compare: trimmed, lower case and without accents. */
+final class NameNormalizer {
+
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+  private NameNormalizer() {
+  }
+
+  static String normalize(String name) {
+    String decomposed = Normalizer.normalize(name.strip(), Normalizer.Form.NFD);
+    return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+  }
+
+}
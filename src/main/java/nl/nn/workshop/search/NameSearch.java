@@ -0,0 +1,107 @@
+package nl.nn.workshop.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.NameMatchResource;
+import nl.nn.workshop.resource.NameSimilarityResource;
+import nl.nn.workshop.service.EntityEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Autocompletion and fuzzy search over student and course names, answered from a {@link PrefixIndex} and a
+ * {@link TrigramIndex} per entity instead of downloading the full lists or scanning them with {@code LIKE}.
+ *
+ * <p>The indexes are filled from the repositories once the application is ready and then follow committed
+ * {@link EntityEvent}s. Events that arrive while they are still loading are queued and replayed on top of
+ * the loaded names, a save replaces the name of its id and a delete of a missing id does nothing, so
+ * overlap does no harm.
+ */
+@Component
+public class NameSearch {
+
+  public static final int MAX_LIMIT = 100;
+
+  private final StudentRepository studentRepository;
+  private final CourseRepository courseRepository;
+  private final PrefixIndex students = new PrefixIndex();
+  private final PrefixIndex courses = new PrefixIndex();
+  private final TrigramIndex studentTrigrams = new TrigramIndex();
+  private final TrigramIndex courseTrigrams = new TrigramIndex();
+  private List<EntityEvent> pending = new ArrayList<>();
+  private volatile boolean loaded;
+
+  public NameSearch(StudentRepository studentRepository, CourseRepository courseRepository) {
+    this.studentRepository = studentRepository;
+    this.courseRepository = courseRepository;
+  }
+
+  @Transactional(readOnly = true)
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    try (Stream<NameMatchResource> names = studentRepository.streamNames()) {
+      names.forEach(name -> put(students, studentTrigrams, name.getId(), name.getName()));
+    }
+    try (Stream<NameMatchResource> names = courseRepository.streamNames()) {
+      names.forEach(name -> put(courses, courseTrigrams, name.getId(), name.getName()));
+    }
+    synchronized (this) {
+      pending.forEach(this::apply);
+      pending = null;
+      loaded = true;
+    }
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public synchronized void onEntity(EntityEvent event) {
+    if (pending != null) {
+      pending.add(event);
+    } else {
+      apply(event);
+    }
+  }
+
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  public List<NameMatchResource> findStudents(String prefix, int limit) {
+    return students.find(prefix, limit);
+  }
+
+  public List<NameMatchResource> findCourses(String prefix, int limit) {
+    return courses.find(prefix, limit);
+  }
+
+  public List<NameSimilarityResource> findSimilarStudents(String query, int limit) {
+    return studentTrigrams.find(query, limit);
+  }
+
+  public List<NameSimilarityResource> findSimilarCourses(String query, int limit) {
+    return courseTrigrams.find(query, limit);
+  }
+
+  private void apply(EntityEvent event) {
+    boolean student = event.getEntity() == EntityEvent.Entity.STUDENT;
+    PrefixIndex prefixes = student ? students : courses;
+    TrigramIndex trigrams = student ? studentTrigrams : courseTrigrams;
+    if (event.getType() == EntityEvent.Type.SAVED) {
+      put(prefixes, trigrams, event.getId(), event.getName());
+    } else {
+      prefixes.remove(event.getId());
+      trigrams.remove(event.getId());
+    }
+  }
+
+  private static void put(PrefixIndex prefixes, TrigramIndex trigrams, long id, String name) {
+    prefixes.put(id, name);
+    trigrams.put(id, name);
+  }
+
+}
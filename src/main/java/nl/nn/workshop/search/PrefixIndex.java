@@ -0,0 +1,90 @@
+package nl.nn.workshop.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import nl.nn.workshop.resource.NameMatchResource;
+
+/**
+ * Names kept sorted by their normalized form, so all names starting with a prefix sit next to each other.
+ * A lookup descends the skip list to the first candidate in O(log n) and walks on until the prefix stops
+ * matching or the limit is reached, a single name is added or removed the same way without copying the
+ * rest. Reads never lock, concurrent changes of the same id are serialized per id.
+ *
+ * <p>Names are compared case-insensitively and without accents, "jose" finds "Jos&eacute;".
+ */
+public class PrefixIndex {
+
+  private final ConcurrentSkipListMap<Key, String> names = new ConcurrentSkipListMap<>();
+  private final Map<Long, Key> keys = new ConcurrentHashMap<>();
+
+  public void put(long id, String name) {
+    if (name == null) {
+      remove(id);
+      return;
+    }
+    Key key = new Key(NameNormalizer.normalize(name), id);
+    keys.compute(id, (ignored, previous) -> {
+      if (previous != null) {
+        names.remove(previous);
+      }
+      names.put(key, name);
+      return key;
+    });
+  }
+
+  public void remove(long id) {
+    keys.computeIfPresent(id, (ignored, previous) -> {
+      names.remove(previous);
+      return null;
+    });
+  }
+
+  public int size() {
+    return keys.size();
+  }
+
+  /** At most {@code limit} names starting with {@code prefix}, ordered by name and then by id. */
+  public List<NameMatchResource> find(String prefix, int limit) {
+    String normalized = NameNormalizer.normalize(prefix);
+    List<NameMatchResource> matches = new ArrayList<>(Math.min(limit, 16));
+    for (Map.Entry<Key, String> entry : names.tailMap(new Key(normalized, Long.MIN_VALUE)).entrySet()) {
+      if (matches.size() == limit || !entry.getKey().name.startsWith(normalized)) {
+        break;
+      }
+      matches.add(new NameMatchResource(entry.getKey().id, entry.getValue()));
+    }
+    return matches;
+  }
+
+  private static final class Key implements Comparable<Key> {
+
+    final String name;
+    final long id;
+
+    Key(String name, long id) {
+      this.name = name;
+      this.id = id;
+    }
+
+    @Override
+    public int compareTo(Key other) {
+      int byName = name.compareTo(other.name);
+      return byName != 0 ? byName : Long.compare(id, other.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && compareTo((Key) o) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+      return name.hashCode() * 31 + Long.hashCode(id);
+    }
+
+  }
+
+}
@@ -0,0 +1,300 @@
+package nl.nn.workshop.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import nl.nn.workshop.resource.NameSimilarityResource;
+
+/**
+ * Inverted index from the trigrams of names to the ids of the names containing them, for searching
+ * fragments from the middle of a name and misspelled names. Like {@code pg_trgm} every word is padded with
+ * two leading blanks and one trailing blank before it is cut into trigrams, so word starts weigh in.
+ *
+ * <p>A posting list is a sorted {@code int[]} with spare room at the end. Ids come from a sequence, so a
+ * new name is nearly always appended. A search merges the posting lists of the query trigrams in one pass
+ * and counts per id how many of them it shares with the query, skipping over the long lists of common
+ * trigrams where it can. The similarity is the share of the query trigrams found in the name, ties go to
+ * the name closest in size to the query and then to the oldest id.
+ */
+public class TrigramIndex {
+
+  /** Names sharing less than this share of the query trigrams are not considered a match. */
+  public static final double MIN_SIMILARITY = 0.3;
+
+  private static final Postings EMPTY = new Postings();
+  private static final int PAGE_BITS = 12;
+  private static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, Postings> postings = new HashMap<>();
+  private final Map<Integer, String> names = new HashMap<>();
+  // trigram count per id, read for every candidate, so kept in pages of primitives that sparse ids do not
+  // have to fill up
+  private int[][] trigramCounts = new int[0][];
+
+  public void put(long id, String name) {
+    if (!indexable(id)) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      removeLocked((int) id);
+      if (name == null) {
+        return;
+      }
+      long[] trigrams = trigrams(name);
+      for (long trigram : trigrams) {
+        postings.computeIfAbsent(trigram, ignored -> new Postings()).add((int) id);
+      }
+      names.put((int) id, name);
+      setTrigramCount((int) id, trigrams.length);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(long id) {
+    if (!indexable(id)) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      removeLocked((int) id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * The {@code limit} names most similar to {@code query}, most similar first. Returns nothing for a query
+   * without letters or digits.
+   */
+  public List<NameSimilarityResource> find(String query, int limit) {
+    long[] queryTrigrams = trigrams(query);
+    if (queryTrigrams.length == 0) {
+      return List.of();
+    }
+    int required = (int) Math.ceil(MIN_SIMILARITY * queryTrigrams.length);
+    // the worst of the best matches so far on top
+    PriorityQueue<Match> best = new PriorityQueue<>(Comparator.reverseOrder());
+    lock.readLock().lock();
+    try {
+      Postings[] lists = new Postings[queryTrigrams.length];
+      for (int i = 0; i < queryTrigrams.length; i++) {
+        lists[i] = postings.getOrDefault(queryTrigrams[i], EMPTY);
+      }
+      Arrays.sort(lists, Comparator.comparingInt((Postings list) -> list.size));
+      // a name sharing the required number of trigrams is in at least one of the shortest
+      // length - required + 1 lists, so only those are merged and the long lists of common trigrams are
+      // just probed for the candidates found
+      int merged = lists.length - required + 1;
+      int[] positions = new int[lists.length];
+      while (true) {
+        int id = Integer.MAX_VALUE;
+        for (int i = 0; i < merged; i++) {
+          if (positions[i] < lists[i].size && lists[i].ids[positions[i]] < id) {
+            id = lists[i].ids[positions[i]];
+          }
+        }
+        if (id == Integer.MAX_VALUE) {
+          break;
+        }
+        int shared = 0;
+        for (int i = 0; i < merged; i++) {
+          if (positions[i] < lists[i].size && lists[i].ids[positions[i]] == id) {
+            positions[i]++;
+            shared++;
+          }
+        }
+        for (int i = merged; i < lists.length && shared + lists.length - i >= required; i++) {
+          // candidates ascend, so each probe continues where the previous one ended
+          positions[i] = lists[i].seek(positions[i], id);
+          if (positions[i] < lists[i].size && lists[i].ids[positions[i]] == id) {
+            positions[i]++;
+            shared++;
+          }
+        }
+        if (shared < required) {
+          continue;
+        }
+        if (best.size() == limit && shared < best.peek().shared) {
+          continue;
+        }
+        Match match = new Match(id, shared,
+            (double) shared / (queryTrigrams.length + trigramCount(id) - shared));
+        // a later id loses a tie, so a match no better than the worst kept one is dropped right away
+        if (best.size() < limit) {
+          best.add(match);
+        } else if (match.compareTo(best.peek()) < 0) {
+          best.poll();
+          best.add(match);
+        }
+        if (best.size() == limit && best.peek().shared > required) {
+          // from here on a name has to share at least as much as the worst kept match, fewer lists to merge
+          required = best.peek().shared;
+          merged = lists.length - required + 1;
+        }
+      }
+      List<Match> ranked = new ArrayList<>(best);
+      ranked.sort(null);
+      List<NameSimilarityResource> matches = new ArrayList<>(ranked.size());
+      for (Match match : ranked) {
+        double similarity = (double) match.shared / queryTrigrams.length;
+        matches.add(new NameSimilarityResource(match.id, names.get(match.id), similarity));
+      }
+      return matches;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void removeLocked(int id) {
+    String previous = names.remove(id);
+    if (previous == null) {
+      return;
+    }
+    setTrigramCount(id, 0);
+    for (long trigram : trigrams(previous)) {
+      Postings found = postings.get(trigram);
+      if (found != null && found.remove(id) && found.size == 0) {
+        postings.remove(trigram);
+      }
+    }
+  }
+
+  private int trigramCount(int id) {
+    int page = id >>> PAGE_BITS;
+    return page < trigramCounts.length && trigramCounts[page] != null ? trigramCounts[page][id & PAGE_MASK] : 0;
+  }
+
+  private void setTrigramCount(int id, int count) {
+    int page = id >>> PAGE_BITS;
+    if (page >= trigramCounts.length) {
+      trigramCounts = Arrays.copyOf(trigramCounts, Math.max(page + 1, trigramCounts.length * 2));
+    }
+    if (trigramCounts[page] == null) {
+      trigramCounts[page] = new int[1 << PAGE_BITS];
+    }
+    trigramCounts[page][id & PAGE_MASK] = count;
+  }
+
+  // the distinct trigrams of the normalized words, three 16 bit chars packed into a long
+  private static long[] trigrams(String name) {
+    String normalized = NameNormalizer.normalize(name);
+    long[] trigrams = new long[normalized.length() * 2 + 2];
+    int count = 0;
+    int start = -1;
+    for (int i = 0; i <= normalized.length(); i++) {
+      boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        String padded = "  " + normalized.substring(start, i) + " ";
+        for (int j = 0; j + 3 <= padded.length(); j++) {
+          if (count == trigrams.length) {
+            trigrams = Arrays.copyOf(trigrams, count * 2);
+          }
+          trigrams[count++] = pack(padded.charAt(j), padded.charAt(j + 1), padded.charAt(j + 2));
+        }
+        start = -1;
+      }
+    }
+    long[] sorted = Arrays.copyOf(trigrams, count);
+    Arrays.sort(sorted);
+    int distinct = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[distinct++] = sorted[i];
+      }
+    }
+    return Arrays.copyOf(sorted, distinct);
+  }
+
+  private static long pack(char first, char second, char third) {
+    return ((long) first << 32) | ((long) second << 16) | third;
+  }
+
+  private static boolean indexable(long id) {
+    return id > 0 && id <= Integer.MAX_VALUE;
+  }
+
+  private static final class Postings {
+
+    int[] ids = new int[4];
+    int size;
+
+    void add(int id) {
+      // appending is the common case, a binary search is only needed for an id below the last one
+      int at = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+      if (at >= 0) {
+        return;
+      }
+      int insertAt = -at - 1;
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+      ids[insertAt] = id;
+      size++;
+    }
+
+    // the first position from {@code from} on holding an id of at least {@code id}, galloping ahead
+    // before the binary search since consecutive candidates tend to lie close together
+    int seek(int from, int id) {
+      int step = 1;
+      int low = from;
+      int high = from;
+      while (high < size && ids[high] < id) {
+        low = high + 1;
+        high = from + step;
+        step <<= 1;
+      }
+      int at = Arrays.binarySearch(ids, low, Math.min(high, size), id);
+      return at < 0 ? -at - 1 : at;
+    }
+
+    boolean remove(int id) {
+      int at = Arrays.binarySearch(ids, 0, size, id);
+      if (at < 0) {
+        return false;
+      }
+      System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+      size--;
+      return true;
+    }
+
+  }
+
+  // ordered best first: most shared trigrams, then most overlapping, then the lowest id
+  private static final class Match implements Comparable<Match> {
+
+    final int id;
+    final int shared;
+    final double overlap;
+
+    Match(int id, int shared, double overlap) {
+      this.id = id;
+      this.shared = shared;
+      this.overlap = overlap;
+    }
+
+    @Override
+    public int compareTo(Match other) {
+      if (shared != other.shared) {
+        return shared > other.shared ? -1 : 1;
+      }
+      if (overlap != other.overlap) {
+        return overlap > other.overlap ? -1 : 1;
+      }
+      return Integer.compare(id, other.id);
+    }
+
+  }
+
+}
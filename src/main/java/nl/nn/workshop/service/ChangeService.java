@@ -0,0 +1,170 @@
+package nl.nn.workshop.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import nl.nn.workshop.changes.ChangeLog;
+import nl.nn.workshop.mapper.CourseMapper;
+import nl.nn.workshop.mapper.StudentMapper;
+import nl.nn.workshop.model.Change;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.ChangeFeedResource;
+import nl.nn.workshop.resource.ChangeResource;
+import nl.nn.workshop.resource.CourseResource;
+import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.resource.StudentResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Lets a client that downloaded everything once keep up by asking what changed since its token, at a cost
+ * that follows the number of changed rows. A client without a token asks for one first, then downloads
+ * everything and from then on asks for the changes after its latest token. A token is a sequence number of
+ * the {@link ChangeLog}, which is kept in the database, so it stays valid across restarts and on every
+ * application instance.
+ *
+ * <p>A page is built in memory rather than streamed: it ends at a token the client resumes from, so a
+ * client that fell far behind catches up in pages of at most {@link #MAX_LIMIT} changes, each with its
+ * students and courses looked up in a few batches.
+ */
+@Service
+public class ChangeService {
+
+  public static final int MAX_LIMIT = 1000;
+
+  private final ChangeLog changeLog;
+  private final StudentRepository studentRepository;
+  private final CourseRepository courseRepository;
+  private final StudentMapper studentMapper;
+  private final CourseMapper courseMapper;
+
+  public ChangeService(
+      ChangeLog changeLog,
+      StudentRepository studentRepository,
+      CourseRepository courseRepository,
+      StudentMapper studentMapper,
+      CourseMapper courseMapper) {
+    this.changeLog = changeLog;
+    this.studentRepository = studentRepository;
+    this.courseRepository = courseRepository;
+    this.studentMapper = studentMapper;
+    this.courseMapper = courseMapper;
+  }
+
+  // enrollments travel with the log, only saved students and courses are looked up, each batch on its own
+  @Transactional(readOnly = true)
+  public ChangeFeedResource findChanges(String token, int limit) {
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, String.format("limit must be between 1 and %d", MAX_LIMIT));
+    }
+    // every change up to it has committed, a later one may still be committing and is left for the next request
+    long upTo = changeLog.getSequence();
+    if (token == null) {
+      return new ChangeFeedResource(List.of(), token(upTo), false);
+    }
+    long after = decode(token);
+    // one more than asked for tells whether there are more, the rows are read after the log so they are
+    // at least as new as their change
+    List<Change> changes = changeLog.read(after, upTo, limit + 1);
+    boolean more = changes.size() > limit;
+    if (more) {
+      changes = changes.subList(0, limit);
+    }
+    // a row changed again within the page only needs its latest change
+    Map<ChangeLog.Key, Change> latest = new LinkedHashMap<>();
+    for (Change change : changes) {
+      latest.remove(ChangeLog.Key.of(change));
+      latest.put(ChangeLog.Key.of(change), change);
+    }
+    long last = changes.isEmpty() ? after : changes.get(changes.size() - 1).getSequence();
+    changes = new ArrayList<>(latest.values());
+    Map<Long, StudentResource> students = findSaved(changes, ChangeLog.Entity.STUDENT,
+        studentRepository::findAllById, Student::getId, studentMapper::toResource);
+    Map<Long, CourseResource> courses = findSaved(changes, ChangeLog.Entity.COURSE,
+        courseRepository::findAllById, Course::getId, courseMapper::toResource);
+    List<ChangeResource> resources = new ArrayList<>(changes.size());
+    for (Change change : changes) {
+      ChangeResource resource = toResource(change, students, courses);
+      // a saved row that is gone by now was deleted since, its tombstone comes after this change
+      if (resource != null) {
+        resources.add(resource);
+      }
+    }
+    return new ChangeFeedResource(resources, token(last), more);
+  }
+
+  private static String token(long sequence) {
+    return Long.toString(sequence);
+  }
+
+  // a token ahead of this instance's committed sequence came from an instance that is further, and is
+  // answered with no changes until this one catches up
+  private static long decode(String token) {
+    long sequence;
+    try {
+      sequence = Long.parseLong(token);
+    } catch (NumberFormatException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "token is not valid");
+    }
+    if (sequence < 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "token is not valid");
+    }
+    return sequence;
+  }
+
+  private static <E, R> Map<Long, R> findSaved(
+      List<Change> changes,
+      ChangeLog.Entity entity,
+      Function<Iterable<Long>, Iterable<E>> findAllById,
+      ToLongFunction<E> idOf,
+      Function<E, R> toResource) {
+    List<Long> ids = new ArrayList<>();
+    for (Change change : changes) {
+      if (change.getEntity() == entity && change.getType() == ChangeLog.Type.SAVED) {
+        ids.add(change.getRowId());
+      }
+    }
+    Map<Long, R> found = new HashMap<>();
+    // batches as large as a multi-get, so the padded IN lists stay the statements that are already cached
+    for (int from = 0; from < ids.size(); from += MultiGet.MAX_IDS) {
+      for (E row : findAllById.apply(ids.subList(from, Math.min(ids.size(), from + MultiGet.MAX_IDS)))) {
+        found.put(idOf.applyAsLong(row), toResource.apply(row));
+      }
+    }
+    return found;
+  }
+
+  private static ChangeResource toResource(
+      Change change, Map<Long, StudentResource> students, Map<Long, CourseResource> courses) {
+    String entity = change.getEntity().name();
+    String type = change.getType().name();
+    boolean saved = change.getType() == ChangeLog.Type.SAVED;
+    switch (change.getEntity()) {
+      case STUDENT:
+        StudentResource student = students.get(change.getRowId());
+        return saved && student == null
+            ? null
+            : new ChangeResource(change.getSequence(), entity, type, change.getRowId(), student, null, null);
+      case COURSE:
+        CourseResource course = courses.get(change.getRowId());
+        return saved && course == null
+            ? null
+            : new ChangeResource(change.getSequence(), entity, type, change.getRowId(), null, course, null);
+      default:
+        EnrollmentResource enrollment =
+            new EnrollmentResource(change.getRowId(), change.getCourseId(), change.getEnrollmentDate());
+        return new ChangeResource(change.getSequence(), entity, type, null, null, null, enrollment);
+    }
+  }
+
+}
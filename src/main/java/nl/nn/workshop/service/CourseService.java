@@ -1,65 +1,236 @@
 package nl.nn.workshop.service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
-import ma.glasnost.orika.MapperFacade;
+import nl.nn.workshop.configuration.CacheConfiguration;
+import nl.nn.workshop.mapper.CourseMapper;
 import nl.nn.workshop.model.Course;
+import nl.nn.workshop.recommendation.CoEnrollmentRecommender;
 import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.resource.CourseRecommendationResource;
 import nl.nn.workshop.resource.CourseResource;
+import nl.nn.workshop.resource.CourseStatsResource;
 import nl.nn.workshop.resource.CreateCourseRequestResource;
+import nl.nn.workshop.resource.CursorPageResource;
+import nl.nn.workshop.resource.MultiGetResource;
+import nl.nn.workshop.resource.NameMatchResource;
+import nl.nn.workshop.resource.NameSimilarityResource;
 import nl.nn.workshop.resource.UpdateCourseRequestResource;
+import nl.nn.workshop.search.NameSearch;
+import nl.nn.workshop.stats.CourseEnrollmentCounters;
+import nl.nn.workshop.version.CollectionVersions;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
+@Transactional(readOnly = true)
 public class CourseService {
 
   private final CourseRepository courseRepository;
-  private final MapperFacade mapperFacade;
+  private final CourseMapper courseMapper;
+  private final CoEnrollmentRecommender recommender;
+  private final CourseEnrollmentCounters enrollmentCounters;
+  private final NameSearch nameSearch;
+  private final CollectionVersions collectionVersions;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public CourseService(CourseRepository courseRepository, MapperFacade mapperFacade) {
+  public CourseService(
+      CourseRepository courseRepository,
+      CourseMapper courseMapper,
+      CoEnrollmentRecommender recommender,
+      CourseEnrollmentCounters enrollmentCounters,
+      NameSearch nameSearch,
+      CollectionVersions collectionVersions,
+      ApplicationEventPublisher eventPublisher) {
     this.courseRepository = courseRepository;
-    this.mapperFacade = mapperFacade;
+    this.courseMapper = courseMapper;
+    this.recommender = recommender;
+    this.enrollmentCounters = enrollmentCounters;
+    this.nameSearch = nameSearch;
+    this.collectionVersions = collectionVersions;
+    this.eventPublisher = eventPublisher;
   }
 
+  @Transactional
   public CourseResource create(CreateCourseRequestResource resource) {
-    Course saved = courseRepository.save(mapperFacade.map(resource, Course.class));
-    return mapperFacade.map(saved, CourseResource.class);
+    checkCapacity(resource);
+    Course saved = courseRepository.save(courseMapper.toEntity(resource));
+    publishSaved(saved);
+    return courseMapper.toResource(saved);
   }
 
-  public CourseResource update(long id, UpdateCourseRequestResource resource) {
-    return courseRepository.findById(id)
-        .map(found -> {
-          found.setName(resource.getName());
-          found.setAvailable(resource.isAvailable());
-          Course saved = courseRepository.save(found);
-          return mapperFacade.map(saved, CourseResource.class);
-        })
-        .orElseThrow(() -> new ResponseStatusException(
-            HttpStatus.NOT_FOUND, String.format("course with id %d not found", id)));
+  @Transactional
+  public List<Long> createAll(List<CreateCourseRequestResource> resources) {
+    resources.forEach(CourseService::checkCapacity);
+    List<Course> courses = resources.stream()
+        .map(courseMapper::toEntity)
+        .collect(Collectors.toList());
+    // ids come from the pooled sequence, so saveAll goes out as JDBC batches within one transaction
+    List<Long> ids = new ArrayList<>(courses.size());
+    for (Course saved : courseRepository.saveAll(courses)) {
+      publishSaved(saved);
+      ids.add(saved.getId());
+    }
+    return ids;
+  }
+
+  @Transactional
+  @CachePut(cacheNames = CacheConfiguration.COURSES, key = "#id")
+  public CourseResource update(long id, UpdateCourseRequestResource resource, Long expectedVersion) {
+    Course found = courseRepository.findById(id).orElseThrow(() -> Rejection.courseNotFound(id));
+    if (expectedVersion != null && found.getVersion() != expectedVersion) {
+      throw Rejection.courseChanged(id, true);
+    }
+    courseMapper.update(resource, found);
+    Course saved;
+    try {
+      saved = courseRepository.save(found);
+      // the version only moves on when the update is written, the response has to carry the new one
+      courseRepository.flush();
+    } catch (ObjectOptimisticLockingFailureException e) {
+      throw Rejection.courseChanged(id, expectedVersion != null);
+    }
+    publishSaved(saved);
+    return courseMapper.toResource(saved);
+  }
+
+  /** The version of a course, which is all a conditional request needs to find out it is up to date. */
+  public long findVersion(long id) {
+    return courseRepository.findVersionById(id).orElseThrow(() -> Rejection.courseNotFound(id));
   }
 
+  // a single primary key lookup, a list request that turns out to be up to date reads nothing else
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public long findCollectionVersion() {
+    return collectionVersions.current(CollectionVersions.Collection.COURSES);
+  }
+
+  @Cacheable(cacheNames = CacheConfiguration.COURSES, key = "#id")
   public CourseResource findById(long id) {
     return courseRepository.findById(id)
-        .map(found -> mapperFacade.map(found, CourseResource.class))
-        .orElseThrow(() -> new ResponseStatusException(
-            HttpStatus.NOT_FOUND, String.format("course with id %d not found", id)));
+        .map(courseMapper::toResource)
+        .orElseThrow(() -> Rejection.courseNotFound(id));
   }
 
   public List<CourseResource> findAll() {
     return StreamSupport.stream(courseRepository.findAll().spliterator(), false)
-        .map(course -> mapperFacade.map(course, CourseResource.class))
+        .map(courseMapper::toResource)
         .collect(Collectors.toList());
   }
 
+  public MultiGetResource<CourseResource> findAllById(long[] ids) {
+    return MultiGet.resolve(ids, courseRepository::findAllById, Course::getId, courseMapper::toResource);
+  }
+
+  public CursorPageResource<CourseResource> findPage(String cursor, int limit) {
+    long afterId = KeysetCursor.decode(cursor, 1)[0];
+    Slice<Course> slice = courseRepository.findByIdGreaterThanOrderByIdAsc(afterId, KeysetCursor.firstRows(limit));
+    List<CourseResource> items = slice.getContent().stream()
+        .map(courseMapper::toResource)
+        .collect(Collectors.toList());
+    String nextCursor = slice.hasNext() ? KeysetCursor.encode(items.get(items.size() - 1).getId()) : null;
+    return new CursorPageResource<>(items, nextCursor);
+  }
+
+  // served from memory, only an empty answer needs the database to tell an unknown course apart
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public List<CourseRecommendationResource> findRecommendations(long id, int limit) {
+    if (limit < 1 || limit > CoEnrollmentRecommender.TOP_K) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          String.format("limit must be between 1 and %d", CoEnrollmentRecommender.TOP_K));
+    }
+    if (!recommender.isLoaded()) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "recommendations are still loading");
+    }
+    List<CourseRecommendationResource> recommendations = recommender.findRecommendations(id, limit);
+    if (recommendations.isEmpty() && !courseRepository.existsById(id)) {
+      throw Rejection.courseNotFound(id);
+    }
+    return recommendations;
+  }
+
+  // counted in memory, the database is only asked about a course the counters have not seen yet
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public CourseStatsResource findStats(long id) {
+    checkStatsLoaded();
+    CourseStatsResource stats = enrollmentCounters.find(id);
+    if (stats != null) {
+      return stats;
+    }
+    if (!courseRepository.existsById(id)) {
+      throw Rejection.courseNotFound(id);
+    }
+    return enrollmentCounters.track(id);
+  }
+
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public List<CourseStatsResource> findAllStats() {
+    checkStatsLoaded();
+    return enrollmentCounters.findAll();
+  }
+
+  // served from memory, the whole list never has to leave the database for an autocompletion
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public List<NameMatchResource> search(String prefix, int limit) {
+    checkSearch("prefix", prefix, limit);
+    return nameSearch.findCourses(prefix, limit);
+  }
+
+  // fragments and misspellings would otherwise take a LIKE '%...%' scan over the unindexed name column
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public List<NameSimilarityResource> searchSimilar(String query, int limit) {
+    checkSearch("query", query, limit);
+    return nameSearch.findSimilarCourses(query, limit);
+  }
+
+  @Transactional
+  @CacheEvict(cacheNames = CacheConfiguration.COURSES, key = "#id")
   public void delete(long id) {
     if (!courseRepository.existsById(id)) {
-      throw new ResponseStatusException(
-          HttpStatus.NOT_FOUND, String.format("course with id %d not found", id));
+      throw Rejection.courseNotFound(id);
     }
     courseRepository.deleteById(id);
+    eventPublisher.publishEvent(EntityEvent.deleted(EntityEvent.Entity.COURSE, id));
+  }
+
+  private static void checkCapacity(CreateCourseRequestResource resource) {
+    if (resource.getCapacity() != null && resource.getCapacity() < 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "capacity must not be negative");
+    }
+  }
+
+  private void checkStatsLoaded() {
+    if (!enrollmentCounters.isLoaded()) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "course stats are still loading");
+    }
+  }
+
+  private void checkSearch(String parameter, String value, int limit) {
+    if (value == null || value.isBlank()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("%s must not be blank", parameter));
+    }
+    if (limit < 1 || limit > NameSearch.MAX_LIMIT) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          String.format("limit must be between 1 and %d", NameSearch.MAX_LIMIT));
+    }
+    if (!nameSearch.isLoaded()) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "course search is still loading");
+    }
+  }
+
+  private void publishSaved(Course saved) {
+    eventPublisher.publishEvent(EntityEvent.saved(EntityEvent.Entity.COURSE, saved.getId(), saved.getName()));
   }
 
 }
@@ -0,0 +1,57 @@
+package nl.nn.workshop.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by {@link EnrollmentService} for every enrollment it creates or deletes. Listeners that keep
+ * derived state should use a transactional event listener, so they only see changes that were committed.
+ */
+public final class EnrollmentEvent {
+
+  public enum Type {
+    CREATED,
+    DELETED
+  }
+
+  private final Type type;
+  private final long studentId;
+  private final long courseId;
+  private final LocalDateTime enrollmentDate;
+
+  private EnrollmentEvent(Type type, long studentId, long courseId, LocalDateTime enrollmentDate) {
+    this.type = type;
+    this.studentId = studentId;
+    this.courseId = courseId;
+    this.enrollmentDate = enrollmentDate;
+  }
+
+  public static EnrollmentEvent created(long studentId, long courseId, LocalDateTime enrollmentDate) {
+    return new EnrollmentEvent(Type.CREATED, studentId, courseId, enrollmentDate);
+  }
+
+  public static EnrollmentEvent deleted(long studentId, long courseId, LocalDateTime enrollmentDate) {
+    return new EnrollmentEvent(Type.DELETED, studentId, courseId, enrollmentDate);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public long getStudentId() {
+    return studentId;
+  }
+
+  public long getCourseId() {
+    return courseId;
+  }
+
+  public LocalDateTime getEnrollmentDate() {
+    return enrollmentDate;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s %d/%d", type, studentId, courseId);
+  }
+
+}
@@ -0,0 +1,46 @@
+package nl.nn.workshop.service;
+
+import java.time.LocalDateTime;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The conditional inserts behind {@link EnrollmentService#create}, each in a short transaction of its own
+ * that also publishes the {@link EnrollmentEvent}, so what is written along with a new enrollment commits
+ * together with it. A lost race fails the insert with a constraint violation that rolls just this
+ * transaction back, the lookups that explain the rejection run after it instead of in a postgres
+ * transaction the violation aborted. A caller's transaction is joined.
+ */
+@Component
+public class EnrollmentInserts {
+
+  private final EnrollmentRepository enrollmentRepository;
+  private final ApplicationEventPublisher eventPublisher;
+
+  public EnrollmentInserts(EnrollmentRepository enrollmentRepository, ApplicationEventPublisher eventPublisher) {
+    this.enrollmentRepository = enrollmentRepository;
+    this.eventPublisher = eventPublisher;
+  }
+
+  @Transactional
+  public boolean insert(long studentId, long courseId, LocalDateTime enrollmentDate) {
+    return published(enrollmentRepository.insertIfAbsent(studentId, courseId, enrollmentDate) == 1,
+        studentId, courseId, enrollmentDate);
+  }
+
+  @Transactional
+  public boolean insertOnReservedSeat(long studentId, long courseId, LocalDateTime enrollmentDate) {
+    return published(enrollmentRepository.insertIfAbsentOnReservedSeat(studentId, courseId, enrollmentDate) == 1,
+        studentId, courseId, enrollmentDate);
+  }
+
+  private boolean published(boolean inserted, long studentId, long courseId, LocalDateTime enrollmentDate) {
+    if (inserted) {
+      eventPublisher.publishEvent(EnrollmentEvent.created(studentId, courseId, enrollmentDate));
+    }
+    return inserted;
+  }
+
+}
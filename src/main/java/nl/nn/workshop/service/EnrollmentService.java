@@ -2,78 +2,260 @@ package nl.nn.workshop.service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
-import ma.glasnost.orika.MapperFacade;
+import nl.nn.workshop.capacity.CourseSeats;
+import nl.nn.workshop.index.EnrollmentIndex;
+import nl.nn.workshop.mapper.EnrollmentMapper;
 import nl.nn.workshop.model.Enrollment;
 import nl.nn.workshop.model.EnrollmentPk;
 import nl.nn.workshop.repository.CourseRepository;
 import nl.nn.workshop.repository.EnrollmentRepository;
 import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.CourseResource;
+import nl.nn.workshop.resource.CursorPageResource;
+import nl.nn.workshop.resource.EnrollmentDetailResource;
 import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.resource.IdSetResource;
+import nl.nn.workshop.resource.StudentResource;
+import nl.nn.workshop.version.CollectionVersions;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
+@Transactional(readOnly = true)
 public class EnrollmentService {
 
   private final EnrollmentRepository enrollmentRepository;
   private final StudentRepository studentRepository;
   private final CourseRepository courseRepository;
-  private final MapperFacade mapperFacade;
+  private final EnrollmentMapper enrollmentMapper;
+  private final EnrollmentIndex enrollmentIndex;
+  private final CourseSeats courseSeats;
+  private final EnrollmentInserts enrollmentInserts;
+  private final CollectionVersions collectionVersions;
+  private final ApplicationEventPublisher eventPublisher;
 
   public EnrollmentService(
       EnrollmentRepository enrollmentRepository,
       StudentRepository studentRepository,
       CourseRepository courseRepository,
-      MapperFacade mapperFacade) {
+      EnrollmentMapper enrollmentMapper,
+      EnrollmentIndex enrollmentIndex,
+      CourseSeats courseSeats,
+      EnrollmentInserts enrollmentInserts,
+      CollectionVersions collectionVersions,
+      ApplicationEventPublisher eventPublisher) {
     this.enrollmentRepository = enrollmentRepository;
     this.studentRepository = studentRepository;
     this.courseRepository = courseRepository;
-    this.mapperFacade = mapperFacade;
+    this.enrollmentMapper = enrollmentMapper;
+    this.enrollmentIndex = enrollmentIndex;
+    this.courseSeats = courseSeats;
+    this.enrollmentInserts = enrollmentInserts;
+    this.collectionVersions = collectionVersions;
+    this.eventPublisher = eventPublisher;
   }
 
+  // deliberately without a service transaction of its own: the conditional insert gets a short one from
+  // EnrollmentInserts, and a primary key violation from a lost race only rolls that back, before the lookups
+  // that explain the rejection run. A caller's transaction is still joined, so the insert sees the rows that
+  // caller wrote.
+  @Transactional(propagation = Propagation.SUPPORTS)
   public EnrollmentResource create(long studentId, long courseId) {
-    if (!studentRepository.existsById(studentId)) {
-      throw new ResponseStatusException(
-          HttpStatus.NOT_FOUND, String.format("student with id %d not found", studentId));
-    }
-    if (!courseRepository.existsById(courseId)) {
-      throw new ResponseStatusException(
-          HttpStatus.NOT_FOUND, String.format("course with id %d not found", courseId));
+    if (courseSeats.hasCapacity(courseId)) {
+      return createOnSeat(studentId, courseId);
     }
-    if (enrollmentRepository.existsById(new EnrollmentPk(studentId, courseId))) {
-      throw new ResponseStatusException(
-          HttpStatus.CONFLICT, String.format("student %d is already enrolled in the course %d", studentId, courseId));
+    LocalDateTime enrollmentDate = LocalDateTime.now();
+    if (!insert(() -> enrollmentInserts.insert(studentId, courseId, enrollmentDate))) {
+      // the plain insert refuses courses with a capacity, the first enrollment into one ends up here
+      if (courseSeats.discover(courseId)) {
+        return createOnSeat(studentId, courseId);
+      }
+      throw rejectedEnrollment(studentId, courseId);
     }
-    Enrollment enrollment = new Enrollment();
-    enrollment.setEnrollmentDate(LocalDateTime.now());
-    enrollment.setStudentId(studentId);
-    enrollment.setCourseId(courseId);
-    return mapperFacade.map(enrollmentRepository.save(enrollment), EnrollmentResource.class);
+    return new EnrollmentResource(studentId, courseId, enrollmentDate);
   }
 
   public EnrollmentResource findById(long studentId, long courseId) {
     return enrollmentRepository
         .findById(new EnrollmentPk(studentId, courseId))
-        .map(found -> mapperFacade.map(found, EnrollmentResource.class))
-        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-            String.format("enrollment for user with id %d and course with id %d not found", studentId, courseId)));
+        .map(enrollmentMapper::toResource)
+        .orElseThrow(() -> Rejection.enrollmentNotFound(studentId, courseId));
+  }
+
+  // a single primary key lookup, a list request that turns out to be up to date reads nothing else
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public long findCollectionVersion() {
+    return collectionVersions.current(CollectionVersions.Collection.ENROLLMENTS);
   }
 
   public List<EnrollmentResource> findAll() {
     return StreamSupport.stream(enrollmentRepository.findAll().spliterator(), false)
-        .map(course -> mapperFacade.map(course, EnrollmentResource.class))
+        .map(enrollmentMapper::toResource)
+        .collect(Collectors.toList());
+  }
+
+  public void exportAll(Consumer<EnrollmentResource> consumer) {
+    try (Stream<EnrollmentResource> enrollments = enrollmentRepository.streamAll()) {
+      enrollments.forEach(consumer);
+    }
+  }
+
+  public CursorPageResource<EnrollmentResource> findPage(String cursor, int limit) {
+    long[] after = KeysetCursor.decode(cursor, 2);
+    Slice<Enrollment> slice = enrollmentRepository.findAfter(after[0], after[1], KeysetCursor.firstRows(limit));
+    List<EnrollmentResource> items = slice.getContent().stream()
+        .map(enrollmentMapper::toResource)
         .collect(Collectors.toList());
+    String nextCursor = null;
+    if (slice.hasNext()) {
+      EnrollmentResource last = items.get(items.size() - 1);
+      nextCursor = KeysetCursor.encode(last.getStudentId(), last.getCourseId());
+    }
+    return new CursorPageResource<>(items, nextCursor);
+  }
+
+  public CursorPageResource<StudentResource> findStudentsByCourse(long courseId, String cursor, int limit) {
+    long after = KeysetCursor.decode(cursor, 1)[0];
+    Slice<StudentResource> slice =
+        enrollmentRepository.findStudentsByCourseId(courseId, after, KeysetCursor.firstRows(limit));
+    // only an empty page can hide a missing course, every returned row proves it exists
+    if (!slice.hasContent() && !courseRepository.existsById(courseId)) {
+      throw Rejection.courseNotFound(courseId);
+    }
+    List<StudentResource> items = slice.getContent();
+    String nextCursor = slice.hasNext() ? KeysetCursor.encode(items.get(items.size() - 1).getId()) : null;
+    return new CursorPageResource<>(items, nextCursor);
+  }
+
+  public CursorPageResource<CourseResource> findCoursesByStudent(long studentId, String cursor, int limit) {
+    long after = KeysetCursor.decode(cursor, 1)[0];
+    Slice<CourseResource> slice =
+        enrollmentRepository.findCoursesByStudentId(studentId, after, KeysetCursor.firstRows(limit));
+    if (!slice.hasContent() && !studentRepository.existsById(studentId)) {
+      throw Rejection.studentNotFound(studentId);
+    }
+    List<CourseResource> items = slice.getContent();
+    String nextCursor = slice.hasNext() ? KeysetCursor.encode(items.get(items.size() - 1).getId()) : null;
+    return new CursorPageResource<>(items, nextCursor);
+  }
+
+  /**
+   * Enrollments with the names of their student and course, optionally limited to one student or one course.
+   * The cursor of the unfiltered listing holds both ids of the last enrollment, a filtered one only the id
+   * that is not fixed by the filter.
+   */
+  public CursorPageResource<EnrollmentDetailResource> findDetailsPage(
+      Long studentId, Long courseId, String cursor, int limit) {
+    if (studentId != null && courseId != null) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "at most one of studentId or courseId can be given");
+    }
+    Slice<EnrollmentDetailResource> slice;
+    if (studentId != null) {
+      long after = KeysetCursor.decode(cursor, 1)[0];
+      slice = enrollmentRepository.findDetailsByStudentId(studentId, after, KeysetCursor.firstRows(limit));
+      if (!slice.hasContent() && !studentRepository.existsById(studentId)) {
+        throw Rejection.studentNotFound(studentId);
+      }
+    } else if (courseId != null) {
+      long after = KeysetCursor.decode(cursor, 1)[0];
+      slice = enrollmentRepository.findDetailsByCourseId(courseId, after, KeysetCursor.firstRows(limit));
+      if (!slice.hasContent() && !courseRepository.existsById(courseId)) {
+        throw Rejection.courseNotFound(courseId);
+      }
+    } else {
+      long[] after = KeysetCursor.decode(cursor, 2);
+      slice = enrollmentRepository.findDetailsAfter(after[0], after[1], KeysetCursor.firstRows(limit));
+    }
+    List<EnrollmentDetailResource> items = slice.getContent();
+    String nextCursor = null;
+    if (slice.hasNext()) {
+      EnrollmentDetailResource last = items.get(items.size() - 1);
+      if (studentId != null) {
+        nextCursor = KeysetCursor.encode(last.getCourseId());
+      } else if (courseId != null) {
+        nextCursor = KeysetCursor.encode(last.getStudentId());
+      } else {
+        nextCursor = KeysetCursor.encode(last.getStudentId(), last.getCourseId());
+      }
+    }
+    return new CursorPageResource<>(items, nextCursor);
   }
 
+  @Transactional
   public void delete(long studentId, long courseId) {
     Enrollment found = enrollmentRepository
         .findById(new EnrollmentPk(studentId, courseId))
-        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
-            String.format("enrollment for user with id %d and course with id %d not found", studentId, courseId)));
+        .orElseThrow(() -> Rejection.enrollmentNotFound(studentId, courseId));
     enrollmentRepository.delete(found);
+    courseRepository.releaseSeat(courseId);
+    eventPublisher.publishEvent(EnrollmentEvent.deleted(studentId, courseId, found.getEnrollmentDate()));
+  }
+
+  // answered from memory, so there is no reason to open a transaction and borrow a connection for it
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public IdSetResource findStudentIdsByCourses(long[] all, long[] any, long[] none) {
+    checkSetQuery(all, any);
+    return new IdSetResource(enrollmentIndex.findStudents(all, any, none));
+  }
+
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public IdSetResource findCourseIdsByStudents(long[] all, long[] any, long[] none) {
+    checkSetQuery(all, any);
+    return new IdSetResource(enrollmentIndex.findCourses(all, any, none));
+  }
+
+  private void checkSetQuery(long[] all, long[] any) {
+    if (all.length == 0 && any.length == 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "at least one of all or any is required");
+    }
+    if (!enrollmentIndex.isLoaded()) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "enrollment index is still loading");
+    }
+  }
+
+  // the seat is reserved by a statement of its own, so the course row stays locked for just that statement
+  // instead of for a whole transaction; a crash before the insert leaves a seat unused, never one too many
+  private EnrollmentResource createOnSeat(long studentId, long courseId) {
+    if (!courseSeats.reserve(courseId)) {
+      throw Rejection.courseFull(courseId);
+    }
+    LocalDateTime enrollmentDate = LocalDateTime.now();
+    if (!insert(() -> enrollmentInserts.insertOnReservedSeat(studentId, courseId, enrollmentDate))) {
+      courseSeats.cancel(courseId);
+      throw rejectedEnrollment(studentId, courseId);
+    }
+    return new EnrollmentResource(studentId, courseId, enrollmentDate);
+  }
+
+  private static boolean insert(BooleanSupplier insert) {
+    try {
+      return insert.getAsBoolean();
+    } catch (DataIntegrityViolationException e) {
+      // lost the race against a concurrent insert (or delete) touching the same pair
+      return false;
+    }
+  }
+
+  // only reached when the insert was refused, so the happy path never pays for these lookups
+  private ResponseStatusException rejectedEnrollment(long studentId, long courseId) {
+    if (!studentRepository.existsById(studentId)) {
+      return Rejection.studentNotFound(studentId);
+    }
+    if (!courseRepository.existsById(courseId)) {
+      return Rejection.courseNotFound(courseId);
+    }
+    return Rejection.alreadyEnrolled(studentId, courseId);
   }
 
 }
@@ -0,0 +1,62 @@
+package nl.nn.workshop.service;
+
+/**
+ * Published by {@link StudentService} and {@link CourseService} for every student or course they save or
+ * delete. Like {@link EnrollmentEvent} it is meant for transactional event listeners that keep derived
+ * state, so they only see changes that were committed.
+ */
+public final class EntityEvent {
+
+  public enum Entity {
+    STUDENT,
+    COURSE
+  }
+
+  public enum Type {
+    SAVED,
+    DELETED
+  }
+
+  private final Entity entity;
+  private final Type type;
+  private final long id;
+  private final String name;
+
+  private EntityEvent(Entity entity, Type type, long id, String name) {
+    this.entity = entity;
+    this.type = type;
+    this.id = id;
+    this.name = name;
+  }
+
+  public static EntityEvent saved(Entity entity, long id, String name) {
+    return new EntityEvent(entity, Type.SAVED, id, name);
+  }
+
+  public static EntityEvent deleted(Entity entity, long id) {
+    return new EntityEvent(entity, Type.DELETED, id, null);
+  }
+
+  public Entity getEntity() {
+    return entity;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  /** The name as saved, {@code null} for a deletion. */
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s %s %d", type, entity, id);
+  }
+
+}
@@ -0,0 +1,65 @@
+package nl.nn.workshop.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Opaque continuation token for keyset pagination. The token is the url-safe base64 encoding of the
+ * sort key of the last row of a page, so the next page can seek straight past it instead of skipping
+ * an offset.
+ */
+final class KeysetCursor {
+
+  static final int MAX_LIMIT = 1000;
+
+  private KeysetCursor() {
+  }
+
+  static String encode(long... keys) {
+    ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES * keys.length);
+    for (long key : keys) {
+      buffer.putLong(key);
+    }
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+  }
+
+  static long[] decode(String cursor, int arity) {
+    long[] keys = new long[arity];
+    if (cursor == null || cursor.isEmpty()) {
+      Arrays.fill(keys, Long.MIN_VALUE);
+      return keys;
+    }
+    byte[] bytes;
+    try {
+      bytes = Base64.getUrlDecoder().decode(cursor);
+    } catch (IllegalArgumentException e) {
+      throw invalid(cursor);
+    }
+    if (bytes.length != Long.BYTES * arity) {
+      throw invalid(cursor);
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    for (int i = 0; i < arity; i++) {
+      keys[i] = buffer.getLong();
+    }
+    return keys;
+  }
+
+  static Pageable firstRows(int limit) {
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, String.format("limit must be between 1 and %d", MAX_LIMIT));
+    }
+    return PageRequest.of(0, limit);
+  }
+
+  private static ResponseStatusException invalid(String cursor) {
+    return new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("invalid cursor %s", cursor));
+  }
+
+}
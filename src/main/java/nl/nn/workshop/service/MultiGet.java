@@ -0,0 +1,62 @@
+package nl.nn.workshop.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import nl.nn.workshop.resource.MultiGetResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Resolves a list of ids with a single {@code findAllById}, so a client rendering rows that reference
+ * students or courses does not have to fetch them one request at a time. The database returns rows in
+ * whatever order it likes, the items are put back in the requested order with repeated ids answered once,
+ * and the ids that were not found are reported instead of failing the whole request.
+ */
+final class MultiGet {
+
+  static final int MAX_IDS = 100;
+
+  private MultiGet() {
+  }
+
+  static <E, R> MultiGetResource<R> resolve(
+      long[] ids,
+      Function<Iterable<Long>, Iterable<E>> findAllById,
+      ToLongFunction<E> idOf,
+      Function<E, R> toResource) {
+    if (ids.length == 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids must not be empty");
+    }
+    if (ids.length > MAX_IDS) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, String.format("at most %d ids can be requested at once", MAX_IDS));
+    }
+    Set<Long> distinct = new LinkedHashSet<>();
+    Arrays.stream(ids).forEach(distinct::add);
+    List<Long> requested = new ArrayList<>(distinct);
+    Map<Long, E> found = new HashMap<>();
+    for (E entity : findAllById.apply(requested)) {
+      found.put(idOf.applyAsLong(entity), entity);
+    }
+    List<R> items = new ArrayList<>(found.size());
+    long[] missingIds = new long[requested.size() - found.size()];
+    int missing = 0;
+    for (Long id : requested) {
+      E entity = found.get(id);
+      if (entity != null) {
+        items.add(toResource.apply(entity));
+      } else {
+        missingIds[missing++] = id;
+      }
+    }
+    return new MultiGetResource<>(items, missingIds);
+  }
+
+}
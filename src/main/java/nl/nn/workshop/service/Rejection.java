@@ -0,0 +1,95 @@
+package nl.nn.workshop.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The 404, 409 and 412 outcomes clients run into on purpose, such as probing for ids that do not exist. They stay
+ * {@link ResponseStatusException}s, so they reach the client as the same error response as before, but they
+ * skip what only helps with unexpected failures: no stack trace is captured, and the reason is only put
+ * together from its preallocated parts when the error response asks for it.
+ */
+final class Rejection extends ResponseStatusException {
+
+  private static final String[] STUDENT_NOT_FOUND = {"student with id ", " not found"};
+  private static final String[] COURSE_NOT_FOUND = {"course with id ", " not found"};
+  private static final String[] ENROLLMENT_NOT_FOUND =
+      {"enrollment for user with id ", " and course with id ", " not found"};
+  private static final String[] COURSE_FULL = {"course ", " is full"};
+  private static final String[] ALREADY_ENROLLED = {"student ", " is already enrolled in the course ", ""};
+  private static final String[] STUDENT_CHANGED = {"student with id ", " has been changed"};
+  private static final String[] COURSE_CHANGED = {"course with id ", " has been changed"};
+
+  private final String[] parts;
+  private final long first;
+  private final long second;
+  private String reason;
+
+  private Rejection(HttpStatus status, String[] parts, long first, long second) {
+    super(status);
+    this.parts = parts;
+    this.first = first;
+    this.second = second;
+  }
+
+  static Rejection studentNotFound(long studentId) {
+    return new Rejection(HttpStatus.NOT_FOUND, STUDENT_NOT_FOUND, studentId, 0);
+  }
+
+  static Rejection courseNotFound(long courseId) {
+    return new Rejection(HttpStatus.NOT_FOUND, COURSE_NOT_FOUND, courseId, 0);
+  }
+
+  static Rejection enrollmentNotFound(long studentId, long courseId) {
+    return new Rejection(HttpStatus.NOT_FOUND, ENROLLMENT_NOT_FOUND, studentId, courseId);
+  }
+
+  static Rejection courseFull(long courseId) {
+    return new Rejection(HttpStatus.CONFLICT, COURSE_FULL, courseId, 0);
+  }
+
+  static Rejection alreadyEnrolled(long studentId, long courseId) {
+    return new Rejection(HttpStatus.CONFLICT, ALREADY_ENROLLED, studentId, courseId);
+  }
+
+  /**
+   * An update based on an outdated version: 412 when the client stated the version it expected with
+   * {@code If-Match}, 409 when it lost the race to a concurrent update without stating one.
+   */
+  static Rejection studentChanged(long studentId, boolean conditional) {
+    return new Rejection(changedStatus(conditional), STUDENT_CHANGED, studentId, 0);
+  }
+
+  static Rejection courseChanged(long courseId, boolean conditional) {
+    return new Rejection(changedStatus(conditional), COURSE_CHANGED, courseId, 0);
+  }
+
+  private static HttpStatus changedStatus(boolean conditional) {
+    return conditional ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT;
+  }
+
+  @Override
+  public String getReason() {
+    // racy but idempotent, two threads asking at once just build equal strings
+    if (reason == null) {
+      StringBuilder builder = new StringBuilder(64).append(parts[0]).append(first).append(parts[1]);
+      if (parts.length > 2) {
+        builder.append(second).append(parts[2]);
+      }
+      reason = builder.toString();
+    }
+    return reason;
+  }
+
+  @Override
+  public String getMessage() {
+    return getStatus() + " \"" + getReason() + "\"";
+  }
+
+  // nobody reads the stack of an outcome the client asked for, and walking it is most of the cost of a throw
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return this;
+  }
+
+}
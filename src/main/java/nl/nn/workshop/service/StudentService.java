@@ -1,65 +1,175 @@
 package nl.nn.workshop.service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
-import ma.glasnost.orika.MapperFacade;
+import nl.nn.workshop.configuration.CacheConfiguration;
+import nl.nn.workshop.mapper.StudentMapper;
 import nl.nn.workshop.model.Student;
 import nl.nn.workshop.repository.StudentRepository;
 import nl.nn.workshop.resource.CreateStudentRequestResource;
+import nl.nn.workshop.resource.CursorPageResource;
+import nl.nn.workshop.resource.MultiGetResource;
+import nl.nn.workshop.resource.NameMatchResource;
+import nl.nn.workshop.resource.NameSimilarityResource;
 import nl.nn.workshop.resource.StudentResource;
 import nl.nn.workshop.resource.UpdateStudentRequestResource;
+import nl.nn.workshop.search.NameSearch;
+import nl.nn.workshop.version.CollectionVersions;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 @Service
+@Transactional(readOnly = true)
 public class StudentService {
 
   private final StudentRepository studentRepository;
-  private final MapperFacade mapperFacade;
+  private final StudentMapper studentMapper;
+  private final NameSearch nameSearch;
+  private final CollectionVersions collectionVersions;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public StudentService(StudentRepository studentRepository, MapperFacade mapperFacade) {
+  public StudentService(
+      StudentRepository studentRepository,
+      StudentMapper studentMapper,
+      NameSearch nameSearch,
+      CollectionVersions collectionVersions,
+      ApplicationEventPublisher eventPublisher) {
     this.studentRepository = studentRepository;
-    this.mapperFacade = mapperFacade;
+    this.studentMapper = studentMapper;
+    this.nameSearch = nameSearch;
+    this.collectionVersions = collectionVersions;
+    this.eventPublisher = eventPublisher;
   }
 
+  @Transactional
   public StudentResource create(CreateStudentRequestResource resource) {
-    Student saved = studentRepository.save(mapperFacade.map(resource, Student.class));
-    return mapperFacade.map(saved, StudentResource.class);
+    Student saved = studentRepository.save(studentMapper.toEntity(resource));
+    publishSaved(saved);
+    return studentMapper.toResource(saved);
   }
 
-  public StudentResource update(long id, UpdateStudentRequestResource resource) {
-    return studentRepository.findById(id)
-        .map(found -> {
-          found.setName(resource.getName());
-          found.setBirthday(resource.getBirthday());
-          Student saved = studentRepository.save(found);
-          return mapperFacade.map(saved, StudentResource.class);
-        })
-        .orElseThrow(() -> new ResponseStatusException(
-            HttpStatus.NOT_FOUND, String.format("student with id %d not found", id)));
+  @Transactional
+  public List<Long> createAll(List<CreateStudentRequestResource> resources) {
+    List<Student> students = resources.stream()
+        .map(studentMapper::toEntity)
+        .collect(Collectors.toList());
+    // ids come from the pooled sequence, so saveAll goes out as JDBC batches within one transaction
+    List<Long> ids = new ArrayList<>(students.size());
+    for (Student saved : studentRepository.saveAll(students)) {
+      publishSaved(saved);
+      ids.add(saved.getId());
+    }
+    return ids;
+  }
+
+  @Transactional
+  @CachePut(cacheNames = CacheConfiguration.STUDENTS, key = "#id")
+  public StudentResource update(long id, UpdateStudentRequestResource resource, Long expectedVersion) {
+    Student found = studentRepository.findById(id).orElseThrow(() -> Rejection.studentNotFound(id));
+    if (expectedVersion != null && found.getVersion() != expectedVersion) {
+      throw Rejection.studentChanged(id, true);
+    }
+    studentMapper.update(resource, found);
+    Student saved;
+    try {
+      saved = studentRepository.save(found);
+      // the version only moves on when the update is written, the response has to carry the new one
+      studentRepository.flush();
+    } catch (ObjectOptimisticLockingFailureException e) {
+      throw Rejection.studentChanged(id, expectedVersion != null);
+    }
+    publishSaved(saved);
+    return studentMapper.toResource(saved);
   }
 
+  /** The version of a student, which is all a conditional request needs to find out it is up to date. */
+  public long findVersion(long id) {
+    return studentRepository.findVersionById(id).orElseThrow(() -> Rejection.studentNotFound(id));
+  }
+
+  // a single primary key lookup, a list request that turns out to be up to date reads nothing else
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public long findCollectionVersion() {
+    return collectionVersions.current(CollectionVersions.Collection.STUDENTS);
+  }
+
+  @Cacheable(cacheNames = CacheConfiguration.STUDENTS, key = "#id")
   public StudentResource findById(long id) {
     return studentRepository.findById(id)
-        .map(found -> mapperFacade.map(found, StudentResource.class))
-        .orElseThrow(() -> new ResponseStatusException(
-            HttpStatus.NOT_FOUND, String.format("student with id %d not found", id)));
+        .map(studentMapper::toResource)
+        .orElseThrow(() -> Rejection.studentNotFound(id));
   }
 
   public List<StudentResource> findAll() {
     return StreamSupport.stream(studentRepository.findAll().spliterator(), false)
-        .map(student -> mapperFacade.map(student, StudentResource.class))
+        .map(studentMapper::toResource)
         .collect(Collectors.toList());
   }
 
+  public MultiGetResource<StudentResource> findAllById(long[] ids) {
+    return MultiGet.resolve(ids, studentRepository::findAllById, Student::getId, studentMapper::toResource);
+  }
+
+  public CursorPageResource<StudentResource> findPage(String cursor, int limit) {
+    long afterId = KeysetCursor.decode(cursor, 1)[0];
+    Slice<Student> slice = studentRepository.findByIdGreaterThanOrderByIdAsc(afterId, KeysetCursor.firstRows(limit));
+    List<StudentResource> items = slice.getContent().stream()
+        .map(studentMapper::toResource)
+        .collect(Collectors.toList());
+    String nextCursor = slice.hasNext() ? KeysetCursor.encode(items.get(items.size() - 1).getId()) : null;
+    return new CursorPageResource<>(items, nextCursor);
+  }
+
+  // served from memory, the whole list never has to leave the database for an autocompletion
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public List<NameMatchResource> search(String prefix, int limit) {
+    checkSearch("prefix", prefix, limit);
+    return nameSearch.findStudents(prefix, limit);
+  }
+
+  // fragments and misspellings would otherwise take a LIKE '%...%' scan over the unindexed name column
+  @Transactional(propagation = Propagation.SUPPORTS)
+  public List<NameSimilarityResource> searchSimilar(String query, int limit) {
+    checkSearch("query", query, limit);
+    return nameSearch.findSimilarStudents(query, limit);
+  }
+
+  @Transactional
+  @CacheEvict(cacheNames = CacheConfiguration.STUDENTS, key = "#id")
   public void delete(long id) {
     if (!studentRepository.existsById(id)) {
-      throw new ResponseStatusException(
-          HttpStatus.NOT_FOUND, String.format("student with id %d not found", id));
+      throw Rejection.studentNotFound(id);
     }
     studentRepository.deleteById(id);
+    eventPublisher.publishEvent(EntityEvent.deleted(EntityEvent.Entity.STUDENT, id));
+  }
+
+  private void checkSearch(String parameter, String value, int limit) {
+    if (value == null || value.isBlank()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, String.format("%s must not be blank", parameter));
+    }
+    if (limit < 1 || limit > NameSearch.MAX_LIMIT) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          String.format("limit must be between 1 and %d", NameSearch.MAX_LIMIT));
+    }
+    if (!nameSearch.isLoaded()) {
+      throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "student search is still loading");
+    }
+  }
+
+  private void publishSaved(Student saved) {
+    eventPublisher.publishEvent(EntityEvent.saved(EntityEvent.Entity.STUDENT, saved.getId(), saved.getName()));
   }
 
 }
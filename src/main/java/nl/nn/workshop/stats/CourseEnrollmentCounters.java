@@ -0,0 +1,153 @@
+package nl.nn.workshop.stats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.resource.CourseStatsResource;
+import nl.nn.workshop.service.EnrollmentEvent;
+import nl.nn.workshop.service.EntityEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Live enrollment counts per course, so polling them never runs a {@code COUNT(*)} over the enrollment
+ * table. Every course has a {@link LongAdder}: concurrent enrollments into one popular course add to
+ * separate cells instead of contending on a single value, and only a read sums the cells.
+ *
+ * <p>The counters are seeded with one grouped count once the application is ready and then follow
+ * committed {@link EnrollmentEvent}s and course deletions. Counts are not idempotent the way set membership
+ * is, an event that overlaps the seed or gets lost can leave a counter off by some. {@link #reconcile()}
+ * therefore compares the counters with the database every {@code workshop.stats.reconcile-interval} and
+ * corrects a course once the same difference shows up in two checks in a row, a difference that comes and
+ * goes is just an event still on its way.
+ */
+@Component
+public class CourseEnrollmentCounters {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CourseEnrollmentCounters.class);
+
+  private final EnrollmentRepository enrollmentRepository;
+  private final Map<Long, LongAdder> counters = new ConcurrentHashMap<>();
+  private final Counter corrections;
+  // the difference from the database per course seen by the last check, only touched by reconcile
+  private Map<Long, Long> suspected = new HashMap<>();
+  private volatile boolean loaded;
+
+  public CourseEnrollmentCounters(EnrollmentRepository enrollmentRepository, MeterRegistry meterRegistry) {
+    this.enrollmentRepository = enrollmentRepository;
+    this.corrections = Counter.builder("workshop.stats.corrections")
+        .description("Course enrollment counters corrected after disagreeing with the database")
+        .register(meterRegistry);
+  }
+
+  @Transactional(readOnly = true)
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    for (CourseStatsResource stats : enrollmentRepository.countEnrollmentsByCourse()) {
+      counter(stats.getCourseId()).add(stats.getEnrollments());
+    }
+    loaded = true;
+  }
+
+  // counting starts before the seed, an event that also made it into the seed is settled by reconcile
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEnrollment(EnrollmentEvent event) {
+    if (event.getType() == EnrollmentEvent.Type.CREATED) {
+      counter(event.getCourseId()).increment();
+    } else {
+      counter(event.getCourseId()).decrement();
+    }
+  }
+
+  // only a deletion that committed drops the counter, one that fails on the course's enrollments keeps it
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onEntity(EntityEvent event) {
+    if (event.getEntity() == EntityEvent.Entity.COURSE && event.getType() == EntityEvent.Type.DELETED) {
+      counters.remove(event.getId());
+    }
+  }
+
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /** The count of a known course, or {@code null} for a course the counters have never seen. */
+  public CourseStatsResource find(long courseId) {
+    LongAdder counter = counters.get(courseId);
+    return counter == null ? null : new CourseStatsResource(courseId, counter.sum());
+  }
+
+  /** All known courses in ascending id order. */
+  public List<CourseStatsResource> findAll() {
+    List<CourseStatsResource> all = new ArrayList<>(counters.size());
+    counters.forEach((courseId, counter) -> all.add(new CourseStatsResource(courseId, counter.sum())));
+    all.sort(Comparator.comparingLong(CourseStatsResource::getCourseId));
+    return all;
+  }
+
+  /** Remembers an existing course that has no enrollments yet, so asking for it again stays in memory. */
+  public CourseStatsResource track(long courseId) {
+    return new CourseStatsResource(courseId, counter(courseId).sum());
+  }
+
+  @Transactional(readOnly = true)
+  @Scheduled(
+      initialDelayString = "${workshop.stats.reconcile-interval:PT5M}",
+      fixedDelayString = "${workshop.stats.reconcile-interval:PT5M}")
+  public void reconcile() {
+    if (!loaded) {
+      return;
+    }
+    Map<Long, Long> before = new HashMap<>();
+    counters.forEach((courseId, counter) -> before.put(courseId, counter.sum()));
+    List<CourseStatsResource> counted = enrollmentRepository.countEnrollmentsByCourse();
+
+    Map<Long, Long> differences = new HashMap<>();
+    Set<Long> existing = new HashSet<>();
+    for (CourseStatsResource stats : counted) {
+      existing.add(stats.getCourseId());
+      LongAdder counter = counter(stats.getCourseId());
+      long current = counter.sum();
+      // a counter that moved while the database was counting can not be compared with that count
+      if (current != before.getOrDefault(stats.getCourseId(), 0L) || current == stats.getEnrollments()) {
+        continue;
+      }
+      long difference = stats.getEnrollments() - current;
+      if (suspected.getOrDefault(stats.getCourseId(), 0L) == difference) {
+        LOGGER.warn("enrollment counter of course {} was {} off the database, corrected",
+            stats.getCourseId(), difference);
+        counter.add(difference);
+        corrections.increment();
+      } else {
+        differences.put(stats.getCourseId(), difference);
+      }
+    }
+    suspected = differences;
+    // courses deleted in the meantime, only counters that are still empty are dropped
+    before.forEach((courseId, count) -> {
+      if (count == 0 && !existing.contains(courseId)) {
+        counters.computeIfPresent(courseId, (id, counter) -> counter.sum() == 0 ? null : counter);
+      }
+    });
+  }
+
+  private LongAdder counter(long courseId) {
+    return counters.computeIfAbsent(courseId, id -> new LongAdder());
+  }
+
+}
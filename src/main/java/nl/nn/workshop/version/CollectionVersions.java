@@ -0,0 +1,41 @@
+package nl.nn.workshop.version;
+
+import nl.nn.workshop.changes.ChangeLog;
+import org.springframework.stereotype.Component;
+
+/**
+ * A version per collection that moves on with every committed change to one of its members, so a list
+ * request can be answered with 304 Not Modified without reading the table. The version of a collection is
+ * the sequence number of the latest committed change to its members in the {@link ChangeLog}, which every
+ * application instance reads the same and which never hands out a number twice. Writers take nothing but
+ * their change log number for it, so no two transactions wait for each other over a version.
+ *
+ * <p>A caller has to take the version before it reads the collection, then a change that commits in
+ * between can only make the data newer than its version, and the next request simply gets it again.
+ */
+@Component
+public class CollectionVersions {
+
+  public enum Collection {
+    STUDENTS(ChangeLog.Entity.STUDENT),
+    COURSES(ChangeLog.Entity.COURSE),
+    ENROLLMENTS(ChangeLog.Entity.ENROLLMENT);
+
+    private final ChangeLog.Entity entity;
+
+    Collection(ChangeLog.Entity entity) {
+      this.entity = entity;
+    }
+  }
+
+  private final ChangeLog changeLog;
+
+  public CollectionVersions(ChangeLog changeLog) {
+    this.changeLog = changeLog;
+  }
+
+  public long current(Collection collection) {
+    return changeLog.getVersion(collection.entity);
+  }
+
+}
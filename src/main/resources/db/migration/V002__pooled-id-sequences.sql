@@ -0,0 +1,3 @@
+-- ids are handed out in blocks of 50 by Hibernate's pooled optimizer so inserts can be batched
+ALTER SEQUENCE student_id_seq INCREMENT BY 50;
+ALTER SEQUENCE course_id_seq INCREMENT BY 50;
@@ -0,0 +1 @@
+CREATE INDEX enrollment_course_id_student_id_idx ON enrollment (course_id, student_id);
@@ -0,0 +1,3 @@
+-- a course without capacity takes any number of students, seats_taken is only kept for courses with one
+ALTER TABLE course ADD COLUMN capacity INTEGER;
+ALTER TABLE course ADD COLUMN seats_taken INTEGER NOT NULL DEFAULT 0;
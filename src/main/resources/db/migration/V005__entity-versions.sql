@@ -0,0 +1,3 @@
+-- moved on by every update of a row, lets clients revalidate with an ETag and update with If-Match
+ALTER TABLE student ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE course ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
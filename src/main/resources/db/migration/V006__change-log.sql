@@ -0,0 +1,18 @@
+-- the changes of students, courses and enrollments, numbered right before their transaction commits, a
+-- change superseded by a newer one of its row is pruned once no reader needs it any more
+CREATE TABLE change_log (
+    sequence BIGINT NOT NULL,
+    entity VARCHAR NOT NULL,
+    row_id BIGINT NOT NULL,
+    course_id BIGINT NOT NULL,
+    type VARCHAR NOT NULL,
+    enrollment_date TIMESTAMP,
+    changed_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (sequence)
+);
+
+CREATE INDEX change_log_row_idx ON change_log (entity, row_id, course_id, sequence);
+CREATE INDEX change_log_entity_idx ON change_log (entity, sequence);
+
+-- hands out one number per committing transaction without a lock, so writers never wait for each other
+CREATE SEQUENCE change_log_seq;
@@ -1,16 +1,24 @@
 DROP TABLE IF EXISTS student;
+DROP SEQUENCE IF EXISTS student_id_seq;
+CREATE SEQUENCE student_id_seq START WITH 1 INCREMENT BY 50;
 CREATE TABLE student (
-    id LONG AUTO_INCREMENT NOT NULL,
+    id LONG DEFAULT NEXT VALUE FOR student_id_seq NOT NULL,
     name VARCHAR NOT NULL,
     birthday DATE NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
     PRIMARY KEY (id)
 );
 
 DROP TABLE IF EXISTS course;
+DROP SEQUENCE IF EXISTS course_id_seq;
+CREATE SEQUENCE course_id_seq START WITH 1 INCREMENT BY 50;
 CREATE TABLE course (
-    id LONG AUTO_INCREMENT NOT NULL,
+    id LONG DEFAULT NEXT VALUE FOR course_id_seq NOT NULL,
     name VARCHAR NOT NULL,
     available BOOLEAN NOT NULL DEFAULT true,
+    capacity INTEGER,
+    seats_taken INTEGER NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
     PRIMARY KEY (id)
 );
 
@@ -25,3 +33,23 @@ CREATE TABLE enrollment (
     FOREIGN KEY (student_id) REFERENCES student(id),
     FOREIGN KEY (course_id) REFERENCES course(id)
 );
+
+CREATE INDEX enrollment_course_id_student_id_idx ON enrollment (course_id, student_id);
+
+DROP TABLE IF EXISTS change_log;
+CREATE TABLE change_log (
+    sequence BIGINT NOT NULL,
+    entity VARCHAR NOT NULL,
+    row_id LONG NOT NULL,
+    course_id LONG NOT NULL,
+    type VARCHAR NOT NULL,
+    enrollment_date TIMESTAMP,
+    changed_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (sequence)
+);
+
+CREATE INDEX change_log_row_idx ON change_log (entity, row_id, course_id, sequence);
+CREATE INDEX change_log_entity_idx ON change_log (entity, sequence);
+
+DROP SEQUENCE IF EXISTS change_log_seq;
+CREATE SEQUENCE change_log_seq;
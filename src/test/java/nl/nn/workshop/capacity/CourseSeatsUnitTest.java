@@ -0,0 +1,161 @@
+package nl.nn.workshop.capacity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.service.EnrollmentEvent;
+import nl.nn.workshop.service.EntityEvent;
+import org.junit.jupiter.api.Test;
+
+public class CourseSeatsUnitTest {
+
+  private final CourseRepository courseRepository = mock(CourseRepository.class);
+  // resyncs only once a minute, so every reservation of a test follows the counter
+  private final CourseSeats courseSeats = new CourseSeats(courseRepository, Duration.ofMinutes(1));
+
+  @Test
+  void testReserve_whenManyThreadsRace_shouldReserveExactlyTheCapacityAndAskTheDatabaseOnlyForThose()
+      throws Exception {
+    int capacity = 100;
+    when(courseRepository.findById(1L)).thenReturn(Optional.of(course(1L, capacity, 0)));
+    assertThat(courseSeats.discover(1L)).isTrue();
+    // the conditional update of the row
+    AtomicInteger seatsTaken = new AtomicInteger();
+    when(courseRepository.reserveSeat(1L))
+        .thenAnswer(invocation -> seatsTaken.getAndUpdate(taken -> Math.min(taken + 1, capacity)) < capacity ? 1 : 0);
+
+    ExecutorService pool = Executors.newFixedThreadPool(32);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Boolean>> reservations = new ArrayList<>();
+    for (int i = 0; i < 20_000; i++) {
+      reservations.add(pool.submit(() -> {
+        start.await();
+        return courseSeats.reserve(1L);
+      }));
+    }
+    start.countDown();
+    int reserved = 0;
+    for (Future<Boolean> reservation : reservations) {
+      if (reservation.get()) {
+        reserved++;
+      }
+    }
+    pool.shutdown();
+
+    assertThat(reserved).isEqualTo(capacity);
+    assertThat(seatsTaken).hasValue(capacity);
+    verify(courseRepository, times(capacity)).reserveSeat(1L);
+  }
+
+  @Test
+  void testReserve_whenSeatIsGivenBack_shouldReserveItAgain() {
+    when(courseRepository.findById(1L)).thenReturn(Optional.of(course(1L, 2, 1)));
+    when(courseRepository.reserveSeat(1L)).thenReturn(1);
+    courseSeats.discover(1L);
+
+    assertThat(courseSeats.reserve(1L)).isTrue();
+    assertThat(courseSeats.reserve(1L)).isFalse();
+    courseSeats.cancel(1L);
+    assertThat(courseSeats.reserve(1L)).isTrue();
+    courseSeats.onEnrollment(EnrollmentEvent.deleted(7L, 1L, LocalDateTime.now()));
+    assertThat(courseSeats.reserve(1L)).isTrue();
+
+    verify(courseRepository).releaseSeat(1L);
+  }
+
+  @Test
+  void testDiscover_whenCourseHasNoCapacity_shouldNotCountItsSeats() {
+    when(courseRepository.findById(1L)).thenReturn(Optional.of(course(1L, null, 0)));
+
+    assertThat(courseSeats.discover(1L)).isFalse();
+    assertThat(courseSeats.discover(2L)).isFalse();
+
+    assertThat(courseSeats.hasCapacity(1L)).isFalse();
+    assertThat(courseSeats.reserve(1L)).isFalse();
+    verify(courseRepository, never()).reserveSeat(1L);
+  }
+
+  @Test
+  void testReserve_whenDatabaseHasNoSeatLeft_shouldReportFull() {
+    when(courseRepository.findById(1L)).thenReturn(Optional.of(course(1L, 5, 0)));
+    when(courseRepository.reserveSeat(1L)).thenReturn(0);
+    courseSeats.discover(1L);
+
+    assertThat(courseSeats.hasCapacity(1L)).isTrue();
+    assertThat(courseSeats.reserve(1L)).isFalse();
+  }
+
+  @Test
+  void testOnEntity_whenCourseDeletionCommitted_shouldStopCountingItsSeats() {
+    when(courseRepository.findById(1L)).thenReturn(Optional.of(course(1L, 5, 0)));
+    courseSeats.discover(1L);
+
+    courseSeats.onEntity(EntityEvent.deleted(EntityEvent.Entity.STUDENT, 1L));
+    assertThat(courseSeats.hasCapacity(1L)).isTrue();
+    courseSeats.onEntity(EntityEvent.deleted(EntityEvent.Entity.COURSE, 1L));
+    assertThat(courseSeats.hasCapacity(1L)).isFalse();
+  }
+
+  @Test
+  void testReserve_whenSeatsChangeThroughAnotherInstance_shouldCatchUpWithTheRow() {
+    // one course row with a single seat, shared by two instances
+    AtomicInteger seatsTaken = new AtomicInteger();
+    when(courseRepository.findById(1L)).thenAnswer(invocation -> Optional.of(course(1L, 1, seatsTaken.get())));
+    when(courseRepository.reserveSeat(1L)).thenAnswer(invocation -> seatsTaken.compareAndSet(0, 1) ? 1 : 0);
+    CourseSeats first = new CourseSeats(courseRepository, Duration.ZERO);
+    CourseSeats second = new CourseSeats(courseRepository, Duration.ZERO);
+    first.discover(1L);
+    second.discover(1L);
+
+    assertThat(first.reserve(1L)).isTrue();
+    // the row refuses the seat the second counter thought was free, and the counter takes the row over
+    assertThat(second.reserve(1L)).isFalse();
+    assertThat(second.reserve(1L)).isFalse();
+    verify(courseRepository, times(2)).reserveSeat(1L);
+
+    // the enrollment is deleted through the first instance, the second never hears of it
+    seatsTaken.decrementAndGet();
+    first.onEnrollment(EnrollmentEvent.deleted(7L, 1L, LocalDateTime.now()));
+
+    assertThat(second.reserve(1L)).isTrue();
+    assertThat(seatsTaken).hasValue(1);
+  }
+
+  @Test
+  void testReserve_whenCounterWasJustSetToTheRow_shouldRefuseInMemory() {
+    when(courseRepository.findById(1L)).thenReturn(Optional.of(course(1L, 1, 1)));
+    courseSeats.discover(1L);
+
+    assertThat(courseSeats.reserve(1L)).isFalse();
+    assertThat(courseSeats.reserve(1L)).isFalse();
+
+    verify(courseRepository).findById(1L);
+    verify(courseRepository, never()).reserveSeat(1L);
+  }
+
+  private static Course course(long id, Integer capacity, int seatsTaken) {
+    Course course = new Course();
+    course.setId(id);
+    course.setName("Physics");
+    course.setCapacity(capacity);
+    course.setSeatsTaken(seatsTaken);
+    return course;
+  }
+
+}
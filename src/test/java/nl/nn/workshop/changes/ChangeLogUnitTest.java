@@ -0,0 +1,119 @@
+package nl.nn.workshop.changes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import nl.nn.workshop.model.Change;
+import nl.nn.workshop.repository.ChangeRepository;
+import nl.nn.workshop.service.EnrollmentEvent;
+import nl.nn.workshop.service.EntityEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ChangeLogUnitTest {
+
+  private final ChangeRepository repository = mock(ChangeRepository.class);
+  private final ChangeLog changeLog = new ChangeLog(repository, Duration.ofSeconds(10));
+
+  @AfterEach
+  void endTransaction() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    TransactionSynchronizationManager.setActualTransactionActive(false);
+  }
+
+  @Test
+  void testOnEnrollment_whenNoTransactionIsActive_shouldSaveNumberedTombstoneWithItsKeyRightAway() {
+    LocalDateTime enrollmentDate = LocalDateTime.of(2021, 9, 1, 8, 30);
+    when(repository.nextNumber()).thenReturn(7L);
+
+    changeLog.onEnrollment(EnrollmentEvent.deleted(1L, 2L, enrollmentDate));
+
+    Change tombstone = appended().get(0);
+    assertThat(tombstone.getEntity()).isEqualTo(ChangeLog.Entity.ENROLLMENT);
+    assertThat(tombstone.getType()).isEqualTo(ChangeLog.Type.DELETED);
+    assertThat(tombstone.getRowId()).isEqualTo(1L);
+    assertThat(tombstone.getCourseId()).isEqualTo(2L);
+    assertThat(tombstone.getEnrollmentDate()).isEqualTo(enrollmentDate);
+    assertThat(tombstone.getSequence()).isEqualTo(7 * ChangeLog.CHANGES_PER_NUMBER);
+    assertThat(tombstone.getChangedAt()).isNotNull();
+  }
+
+  @Test
+  void testOnEntity_whenRowChangedTwiceInTransaction_shouldSaveOnlyItsLatestChangeUnderOneNumberBeforeCommit() {
+    when(repository.nextNumber()).thenReturn(3L);
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+
+    changeLog.onEntity(EntityEvent.saved(EntityEvent.Entity.STUDENT, 1L, "Isaac Newton"));
+    changeLog.onEntity(EntityEvent.saved(EntityEvent.Entity.COURSE, 1L, "Physics"));
+    changeLog.onEntity(EntityEvent.deleted(EntityEvent.Entity.STUDENT, 1L));
+    verify(repository, never()).nextNumber();
+    verify(repository, never()).saveAll(anyIterable());
+
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(synchronization -> synchronization.beforeCommit(false));
+
+    long first = 3 * ChangeLog.CHANGES_PER_NUMBER;
+    assertThat(appended()).extracting(Change::getSequence, Change::getEntity, Change::getRowId, Change::getType)
+        .containsExactly(
+            tuple(first, ChangeLog.Entity.COURSE, 1L, ChangeLog.Type.SAVED),
+            tuple(first + 1, ChangeLog.Entity.STUDENT, 1L, ChangeLog.Type.DELETED));
+  }
+
+  @Test
+  void testGetSequence_whenNumberMissingForLessThanGapTimeout_shouldStopBeforeIt() {
+    LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+    when(repository.findAfter(eq(0L), eq(Long.MAX_VALUE), any(Pageable.class))).thenReturn(List.of(
+        change(1, 0, now.minusMinutes(1)), change(1, 1, now.minusMinutes(1)), change(2, 0, now.minusMinutes(1)),
+        change(4, 0, now)));
+
+    // the transaction that took number 3 may still commit
+    assertThat(changeLog.getSequence()).isEqualTo(2 * ChangeLog.CHANGES_PER_NUMBER);
+  }
+
+  @Test
+  void testGetSequence_whenNumberMissingForLongerThanGapTimeout_shouldPassIt() {
+    LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+    when(repository.findAfter(eq(0L), eq(Long.MAX_VALUE), any(Pageable.class))).thenReturn(List.of(
+        change(1, 0, now.minusMinutes(1)), change(3, 0, now.minusMinutes(1)), change(4, 0, now)));
+
+    assertThat(changeLog.getSequence()).isEqualTo(4 * ChangeLog.CHANGES_PER_NUMBER);
+  }
+
+  private static Change change(long number, long position, LocalDateTime changedAt) {
+    Change change = new Change();
+    change.setSequence(number * ChangeLog.CHANGES_PER_NUMBER + position);
+    change.setEntity(ChangeLog.Entity.STUDENT);
+    change.setRowId(number);
+    change.setType(ChangeLog.Type.SAVED);
+    change.setChangedAt(changedAt);
+    return change;
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Change> appended() {
+    ArgumentCaptor<List<Change>> changes = ArgumentCaptor.forClass(List.class);
+    verify(repository).saveAll(changes.capture());
+    return changes.getValue();
+  }
+
+}
@@ -0,0 +1,101 @@
+package nl.nn.workshop.configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import nl.nn.workshop.AbstractUnitTest;
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.repository.ChangeRepository;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.service.StudentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.server.ResponseStatusException;
+
+@AutoConfigureMetrics
+@MockBean(ChangeRepository.class)
+@MockBean(CourseRepository.class)
+@MockBean(EnrollmentRepository.class)
+public class MetricsConfigurationUnitTest extends AbstractUnitTest {
+
+  @MockBean
+  private StudentRepository studentRepository;
+
+  @Autowired
+  private StudentService studentService;
+
+  @Test
+  void testPrometheusScrape_whenStudentsWereRequested_shouldExposeRouteServiceAndMappingTimers() throws Exception {
+    Student student = new Student();
+    student.setId(1L);
+    student.setName("Isaac Newton");
+    student.setBirthday(LocalDate.of(1643, 1, 4));
+
+    when(studentRepository.findById(1L)).thenReturn(Optional.of(student));
+    when(studentRepository.findById(2L)).thenReturn(Optional.empty());
+
+    mvc.perform(MockMvcRequestBuilders.get("/students/{id}", 1L).accept(MediaType.APPLICATION_JSON)).andReturn();
+    mvc.perform(MockMvcRequestBuilders.get("/students/{id}", 2L).accept(MediaType.APPLICATION_JSON)).andReturn();
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/actuator/prometheus")
+            .accept(MediaType.TEXT_PLAIN);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    String scrape = response.getContentAsString();
+    assertThat(scrape).containsPattern(
+        "http_server_requests_seconds\\{.*status=\"200\",uri=\"/students/\\{id}\",quantile=\"0.999\",}");
+    assertThat(scrape).containsPattern(
+        "http_server_requests_seconds_count\\{.*outcome=\"CLIENT_ERROR\",status=\"404\",uri=\"/students/\\{id}\",} 1.0");
+    assertThat(scrape).containsPattern(
+        "workshop_service_seconds_count\\{class=\"StudentService\",exception=\"none\",method=\"findById\",} 1.0");
+    assertThat(scrape).containsPattern(
+        "workshop_service_seconds_count\\{class=\"StudentService\",exception=\"ResponseStatusException\",method=\"findById\",} 1.0");
+    assertThat(scrape).contains("workshop_mapping_seconds_count");
+  }
+
+  @Test
+  void testTimeService_whenMethodsAreCalledRepeatedly_shouldKeepOneTimerPerAdvisedMethod() {
+    // a fresh aspect around the service, so only the calls below can add timers to it
+    MetricsConfiguration metricsConfiguration = new MetricsConfiguration(new SimpleMeterRegistry());
+    StudentService target = AopTestUtils.getUltimateTargetObject(studentService);
+    AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+    proxyFactory.addAspect(metricsConfiguration);
+    StudentService timedStudentService = proxyFactory.getProxy();
+
+    when(studentRepository.findAll()).thenReturn(List.of());
+    when(studentRepository.findById(3L)).thenReturn(Optional.empty());
+
+    for (int i = 0; i < 10; i++) {
+      timedStudentService.findAll();
+      assertThatThrownBy(() -> timedStudentService.findById(3L)).isInstanceOf(ResponseStatusException.class);
+    }
+
+    // every call gets a join point of its own, holding on to them would keep every call's arguments alive
+    Map<?, ?> successTimers = (Map<?, ?>) ReflectionTestUtils.getField(metricsConfiguration, "successTimers");
+    Map<?, ?> failureTimers = (Map<?, ?>) ReflectionTestUtils.getField(metricsConfiguration, "failureTimers");
+    assertThat(successTimers).hasSize(1);
+    assertThat(failureTimers).hasSize(1);
+  }
+
+}
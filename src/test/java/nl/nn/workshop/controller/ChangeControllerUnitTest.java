@@ -0,0 +1,151 @@
+package nl.nn.workshop.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import nl.nn.workshop.AbstractUnitTest;
+import nl.nn.workshop.changes.ChangeLog;
+import nl.nn.workshop.model.Change;
+import nl.nn.workshop.model.Student;
+import nl.nn.workshop.repository.ChangeRepository;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.ChangeFeedResource;
+import nl.nn.workshop.resource.ChangeResource;
+import nl.nn.workshop.resource.CreateStudentRequestResource;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+public class ChangeControllerUnitTest extends AbstractUnitTest {
+
+  @MockBean
+  private ChangeRepository changeRepository;
+
+  @MockBean
+  private StudentRepository studentRepository;
+
+  @MockBean
+  private CourseRepository courseRepository;
+
+  @MockBean
+  private EnrollmentRepository enrollmentRepository;
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void testGetChanges_whenRowsChangedSinceToken_shouldReturnOnlyThoseWithTombstonesAndSC200() throws Exception {
+    long studentId = 9801L;
+    long courseId = 9801L;
+    Student student = new Student();
+    student.setId(studentId);
+    student.setName("Isaac Newton");
+    student.setBirthday(LocalDate.of(1643, 1, 4));
+
+    when(studentRepository.save(any(Student.class))).thenReturn(student);
+    when(studentRepository.findAllById(anyIterable())).thenReturn(List.of(student));
+    when(enrollmentRepository.insertIfAbsent(eq(studentId), eq(courseId), any(LocalDateTime.class))).thenReturn(1);
+    when(courseRepository.existsById(courseId)).thenReturn(true);
+    when(changeRepository.nextNumber()).thenReturn(1L, 2L, 3L);
+
+    String token = changes(null).getToken();
+    assertThat(token).isEqualTo("0");
+
+    CreateStudentRequestResource resource = new CreateStudentRequestResource();
+    resource.setName(student.getName());
+    resource.setBirthday(student.getBirthday());
+    mvc.perform(MockMvcRequestBuilders.post("/students")
+        .content(GSON.toJson(resource))
+        .contentType(MediaType.APPLICATION_JSON));
+    mvc.perform(MockMvcRequestBuilders.post("/enrollments/student/{studentId}/course/{courseId}", studentId, courseId));
+    mvc.perform(MockMvcRequestBuilders.delete("/courses/{id}", courseId));
+
+    // one write and one number each, read back the way the table would
+    ArgumentCaptor<List<Change>> saved = ArgumentCaptor.forClass(List.class);
+    verify(changeRepository, times(3)).saveAll(saved.capture());
+    List<Change> changes = new ArrayList<>();
+    saved.getAllValues().forEach(changes::addAll);
+    when(changeRepository.findAfter(eq(0L), anyLong(), any(Pageable.class))).thenReturn(changes);
+
+    ChangeFeedResource feed = changes(token);
+    assertThat(feed.isMore()).isFalse();
+    assertThat(feed.getToken()).isEqualTo(Long.toString(3 * ChangeLog.CHANGES_PER_NUMBER));
+    assertThat(feed.getChanges()).extracting(ChangeResource::getEntity, ChangeResource::getType)
+        .containsExactly(tuple("STUDENT", "SAVED"), tuple("ENROLLMENT", "SAVED"), tuple("COURSE", "DELETED"));
+    assertThat(feed.getChanges().get(0).getStudent().getName()).isEqualTo("Isaac Newton");
+    assertThat(feed.getChanges().get(1).getEnrollment().getCourseId()).isEqualTo(courseId);
+    assertThat(feed.getChanges().get(2).getId()).isEqualTo(courseId);
+    assertThat(feed.getChanges().get(2).getCourse()).isNull();
+
+  }
+
+  @Test
+  void testGetChanges_whenTokenIsAheadOfCommittedChanges_shouldReturnNoChangesAndTheSameToken() throws Exception {
+    String token = Long.toString(Long.MAX_VALUE);
+
+    ChangeFeedResource feed = changes(token);
+    assertThat(feed.getChanges()).isEmpty();
+    assertThat(feed.getToken()).isEqualTo(token);
+    assertThat(feed.isMore()).isFalse();
+  }
+
+  @Test
+  void testGetChanges_whenTokenIsNegative_shouldSendMessageAndReturnSC400() throws Exception {
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/changes")
+            .param("since", "-1")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(400);
+    assertThat(response.getErrorMessage()).isEqualTo("token is not valid");
+    verify(changeRepository, never()).findAfter(eq(-1L), anyLong(), any(Pageable.class));
+  }
+
+  @Test
+  void testGetChanges_whenTokenIsMalformed_shouldSendMessageAndReturnSC400() throws Exception {
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/changes")
+            .param("since", "yesterday")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(400);
+    assertThat(response.getErrorMessage()).isEqualTo("token is not valid");
+  }
+
+  private ChangeFeedResource changes(String since) throws Exception {
+    MockHttpServletRequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/changes")
+            .accept(MediaType.APPLICATION_JSON);
+    if (since != null) {
+      request.param("since", since);
+    }
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+    return GSON.fromJson(response.getContentAsString(), ChangeFeedResource.class);
+  }
+
+}
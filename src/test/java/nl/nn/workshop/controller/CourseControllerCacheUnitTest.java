@@ -0,0 +1,178 @@
+package nl.nn.workshop.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import nl.nn.workshop.AbstractUnitTest;
+import nl.nn.workshop.configuration.CacheConfiguration;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.repository.ChangeRepository;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.CourseResource;
+import nl.nn.workshop.resource.UpdateCourseRequestResource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@MockBean(ChangeRepository.class)
+@MockBean(StudentRepository.class)
+@MockBean(EnrollmentRepository.class)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {
+    "spring.cache.type=caffeine",
+    "spring.cache.caffeine.spec=maximumSize=100,recordStats"})
+public class CourseControllerCacheUnitTest extends AbstractUnitTest {
+
+  @MockBean
+  private CourseRepository courseRepository;
+
+  @Autowired
+  private CacheManager cacheManager;
+
+  @Test
+  void testGetCourse_whenRequestedTwice_shouldHitRepositoryOnceAndReportCacheHit() throws Exception {
+    long courseId = 1L;
+
+    Course course = new Course();
+    course.setName("Physics");
+    course.setAvailable(true);
+    course.setId(courseId);
+
+    when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/{id}", courseId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    assertThat(mvc.perform(request).andReturn().getResponse().getStatus()).isEqualTo(200);
+    assertThat(mvc.perform(request).andReturn().getResponse().getStatus()).isEqualTo(200);
+
+    verify(courseRepository, times(1)).findById(courseId);
+
+    RequestBuilder metrics =
+        MockMvcRequestBuilders
+            .get("/actuator/metrics/cache.gets")
+            .param("tag", "cache:courses", "result:hit")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(metrics).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsString()).contains("\"value\":1.0");
+  }
+
+  @Test
+  void testPutCourse_whenCourseIsCached_shouldRefreshCachedCourse() throws Exception {
+    long courseId = 1L;
+
+    Course course = new Course();
+    course.setName("Physics");
+    course.setAvailable(true);
+    course.setId(courseId);
+
+    when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
+    when(courseRepository.save(any(Course.class))).then(returnsFirstArg());
+
+    RequestBuilder get =
+        MockMvcRequestBuilders
+            .get("/courses/{id}", courseId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    mvc.perform(get).andReturn();
+
+    UpdateCourseRequestResource courseUpdate = new UpdateCourseRequestResource();
+    courseUpdate.setName("Physics v1");
+    courseUpdate.setAvailable(false);
+
+    RequestBuilder put =
+        MockMvcRequestBuilders
+            .put("/courses/{id}", courseId)
+            .content(GSON.toJson(courseUpdate))
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    assertThat(mvc.perform(put).andReturn().getResponse().getStatus()).isEqualTo(200);
+
+    MockHttpServletResponse response = mvc.perform(get).andReturn().getResponse();
+    CourseResource fromResponse = GSON.fromJson(response.getContentAsString(), CourseResource.class);
+    assertThat(fromResponse.getName()).isEqualTo("Physics v1");
+    assertThat(fromResponse.isAvailable()).isFalse();
+
+    // one lookup for the first GET and one inside the update, the last GET is served from the cache
+    verify(courseRepository, times(2)).findById(courseId);
+  }
+
+  @Test
+  void testCachePut_whenTransactionIsActive_shouldReachCacheOnlyAfterCommit() {
+    Course course = new Course();
+    course.setName("Physics");
+    course.setId(1L);
+    Cache courses = cacheManager.getCache(CacheConfiguration.COURSES);
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      courses.put(1L, course);
+      assertThat(courses.get(1L)).isNull();
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertThat(courses.get(1L, Course.class)).isSameAs(course);
+  }
+
+  @Test
+  void testDeleteCourse_whenCourseIsCached_shouldEvictCachedCourse() throws Exception {
+    long courseId = 1L;
+
+    Course course = new Course();
+    course.setName("Physics");
+    course.setAvailable(true);
+    course.setId(courseId);
+
+    when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
+    when(courseRepository.existsById(courseId)).thenReturn(true);
+
+    RequestBuilder get =
+        MockMvcRequestBuilders
+            .get("/courses/{id}", courseId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    mvc.perform(get).andReturn();
+
+    RequestBuilder delete =
+        MockMvcRequestBuilders
+            .delete("/courses/{id}", courseId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    assertThat(mvc.perform(delete).andReturn().getResponse().getStatus()).isEqualTo(204);
+
+    when(courseRepository.findById(courseId)).thenReturn(Optional.empty());
+
+    MockHttpServletResponse response = mvc.perform(get).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(404);
+  }
+
+}
@@ -3,31 +3,68 @@ package nl.nn.workshop.controller;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.gson.reflect.TypeToken;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
 import nl.nn.workshop.AbstractUnitTest;
+import nl.nn.workshop.changes.ChangeLog;
+import nl.nn.workshop.model.Change;
 import nl.nn.workshop.model.Course;
+import nl.nn.workshop.repository.ChangeRepository;
 import nl.nn.workshop.repository.CourseRepository;
 import nl.nn.workshop.repository.EnrollmentRepository;
 import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.CourseRecommendationResource;
 import nl.nn.workshop.resource.CourseResource;
+import nl.nn.workshop.resource.CourseStatsResource;
 import nl.nn.workshop.resource.CreateCourseRequestResource;
+import nl.nn.workshop.resource.CursorPageResource;
+import nl.nn.workshop.resource.MultiGetResource;
+import nl.nn.workshop.resource.NameMatchResource;
+import nl.nn.workshop.resource.StudentResource;
 import nl.nn.workshop.resource.UpdateCourseRequestResource;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 @MockBean(StudentRepository.class)
-@MockBean(EnrollmentRepository.class)
 public class CourseControllerUnitTest extends AbstractUnitTest {
 
+  @MockBean
+  private ChangeRepository changeRepository;
+
+  @Autowired
+  private ChangeLog changeLog;
+
   @MockBean
   private CourseRepository courseRepository;
 
+  @MockBean
+  private EnrollmentRepository enrollmentRepository;
+
   @Test
   void testCreateCourse_whenCourseInfoIsProvided_shouldCreateAndReturnSC200() throws Exception {
     String courseName = "Physics";
@@ -191,4 +228,508 @@ public class CourseControllerUnitTest extends AbstractUnitTest {
     assertThat(response.getErrorMessage()).isEqualTo("course with id 1 not found");
   }
 
-}
\ No newline at end of file
+  @Test
+  void testGetCoursePage_whenLimitIsOutOfRange_shouldSendMessageAndReturnSC400() throws Exception {
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses")
+            .param("limit", "0")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(400);
+    assertThat(response.getErrorMessage()).isEqualTo("limit must be between 1 and 1000");
+  }
+
+  @Test
+  void testCreateCourses_whenBatchIsProvided_shouldCreateAllAndReturnIdsInRequestOrderAndSC200() throws Exception {
+    CreateCourseRequestResource physics = new CreateCourseRequestResource();
+    physics.setName("Physics");
+    physics.setAvailable(true);
+
+    CreateCourseRequestResource optics = new CreateCourseRequestResource();
+    optics.setName("Optics");
+    optics.setAvailable(false);
+
+    when(courseRepository.saveAll(anyIterable())).then(i -> {
+      Iterable<Course> courses = i.getArgument(0);
+      long id = 1L;
+      for (Course course : courses) {
+        course.setId(id++);
+      }
+      return courses;
+    });
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .post("/courses/batch")
+            .content(GSON.toJson(List.of(physics, optics)))
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    List<Long> fromResponse = GSON.fromJson(response.getContentAsString(), new TypeToken<List<Long>>() {}.getType());
+    assertThat(fromResponse).containsExactly(1L, 2L);
+  }
+
+  @Test
+  void testGetCourseStudents_whenCourseHasMoreStudents_shouldReturnPageWithNextCursorAndSC200() throws Exception {
+    long courseId = 7L;
+
+    when(enrollmentRepository.findStudentsByCourseId(eq(courseId), eq(Long.MIN_VALUE), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(new StudentResource(1L, "Isaac Newton", LocalDate.of(1643, 1, 4)), new StudentResource(2L, "Marie Curie", LocalDate.of(1867, 11, 7))), PageRequest.of(0, 2), true));
+    when(enrollmentRepository.findStudentsByCourseId(eq(courseId), eq(2L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(new StudentResource(3L, "Albert Einstein", LocalDate.of(1879, 3, 14))), PageRequest.of(0, 2), false));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/{id}/students", courseId)
+            .param("limit", "2")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<StudentResource> firstPage = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<CursorPageResource<StudentResource>>() {}.getType());
+    assertThat(firstPage.getItems()).extracting(StudentResource::getId).containsExactly(1L, 2L);
+    assertThat(firstPage.getNextCursor()).isNotNull();
+
+    request =
+        MockMvcRequestBuilders
+            .get("/courses/{id}/students", courseId)
+            .param("limit", "2")
+            .param("cursor", firstPage.getNextCursor())
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<StudentResource> secondPage = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<CursorPageResource<StudentResource>>() {}.getType());
+    assertThat(secondPage.getItems()).extracting(StudentResource::getId).containsExactly(3L);
+    assertThat(secondPage.getNextCursor()).isNull();
+  }
+
+  @Test
+  void testGetCourseStudents_whenCourseDoesNotExist_shouldSendMessageAndReturnSC404() throws Exception {
+    long courseId = 7L;
+
+    when(enrollmentRepository.findStudentsByCourseId(eq(courseId), eq(Long.MIN_VALUE), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of()));
+    when(courseRepository.existsById(courseId)).thenReturn(false);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/{id}/students", courseId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(404);
+    assertThat(response.getErrorMessage()).isEqualTo(String.format("course with id %d not found", courseId));
+  }
+
+  @Test
+  void testGetCourseRecommendations_whenStudentsShareCourses_shouldRankAndReturnSC200() throws Exception {
+    // ids of their own, the recommender lives as long as the cached application context
+    long courseId = 9201L;
+    long otherCourseId = 9202L;
+
+    when(enrollmentRepository.insertIfAbsent(any(Long.class), any(Long.class), any(LocalDateTime.class)))
+        .thenReturn(1);
+    for (long studentId : new long[] {9011L, 9012L}) {
+      mvc.perform(MockMvcRequestBuilders.post(
+          "/enrollments/student/{studentId}/course/{courseId}", studentId, courseId));
+      mvc.perform(MockMvcRequestBuilders.post(
+          "/enrollments/student/{studentId}/course/{courseId}", studentId, otherCourseId));
+    }
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/{id}/recommendations", courseId)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    List<CourseRecommendationResource> fromResponse = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<List<CourseRecommendationResource>>() {}.getType());
+    assertThat(fromResponse).containsExactly(new CourseRecommendationResource(otherCourseId, 2));
+  }
+
+  @Test
+  void testGetCourseRecommendations_whenCourseDoesNotExist_shouldFailAndReturnSC404() throws Exception {
+    long courseId = 9299L;
+
+    when(courseRepository.existsById(courseId)).thenReturn(false);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/{id}/recommendations", courseId)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(404);
+    assertThat(response.getErrorMessage()).isEqualTo("course with id 9299 not found");
+  }
+
+  @Test
+  void testGetCourseRecommendations_whenLimitIsTooLarge_shouldFailAndReturnSC400() throws Exception {
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/{id}/recommendations", 1L)
+            .param("limit", "21")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(400);
+    assertThat(response.getErrorMessage()).isEqualTo("limit must be between 1 and 20");
+  }
+
+  @Test
+  void testGetCourseStats_whenCourseHasEnrollments_shouldCountWithoutQueryAndReturnSC200() throws Exception {
+    // ids of their own, the counters live as long as the cached application context
+    long courseId = 9301L;
+
+    when(enrollmentRepository.insertIfAbsent(any(Long.class), any(Long.class), any(LocalDateTime.class)))
+        .thenReturn(1);
+    for (long studentId : new long[] {9021L, 9022L}) {
+      mvc.perform(MockMvcRequestBuilders.post(
+          "/enrollments/student/{studentId}/course/{courseId}", studentId, courseId));
+    }
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/{id}/stats", courseId)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CourseStatsResource fromResponse = GSON.fromJson(response.getContentAsString(), CourseStatsResource.class);
+    assertThat(fromResponse).isEqualTo(new CourseStatsResource(courseId, 2));
+    verify(courseRepository, never()).existsById(courseId);
+  }
+
+  @Test
+  void testGetCourseStats_whenCourseHasNoEnrollments_shouldReturnZeroAndSC200() throws Exception {
+    long courseId = 9302L;
+
+    when(courseRepository.existsById(courseId)).thenReturn(true);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/{id}/stats", courseId)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CourseStatsResource fromResponse = GSON.fromJson(response.getContentAsString(), CourseStatsResource.class);
+    assertThat(fromResponse).isEqualTo(new CourseStatsResource(courseId, 0));
+  }
+
+  @Test
+  void testGetCourseStats_whenCourseDoesNotExist_shouldFailAndReturnSC404() throws Exception {
+    long courseId = 9399L;
+
+    when(courseRepository.existsById(courseId)).thenReturn(false);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/{id}/stats", courseId)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(404);
+    assertThat(response.getErrorMessage()).isEqualTo("course with id 9399 not found");
+  }
+
+  @Test
+  void testGetAllCourseStats_whenCoursesHaveEnrollments_shouldListThemAndReturnSC200() throws Exception {
+    long courseId = 9303L;
+
+    when(enrollmentRepository.insertIfAbsent(any(Long.class), any(Long.class), any(LocalDateTime.class)))
+        .thenReturn(1);
+    mvc.perform(MockMvcRequestBuilders.post("/enrollments/student/{studentId}/course/{courseId}", 9031L, courseId));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/stats")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    List<CourseStatsResource> fromResponse = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<List<CourseStatsResource>>() {}.getType());
+    assertThat(fromResponse).contains(new CourseStatsResource(courseId, 1));
+    assertThat(fromResponse).isSortedAccordingTo(Comparator.comparingLong(CourseStatsResource::getCourseId));
+  }
+
+  @Test
+  void testCreateCourse_whenCapacityIsNegative_shouldSendMessageAndReturnSC400() throws Exception {
+    CreateCourseRequestResource resource = new CreateCourseRequestResource();
+    resource.setName("Physics");
+    resource.setAvailable(true);
+    resource.setCapacity(-1);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .post("/courses")
+            .content(GSON.toJson(resource))
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(400);
+    assertThat(response.getErrorMessage()).isEqualTo("capacity must not be negative");
+  }
+
+  @Test
+  void testSearchCourses_whenCourseWasDeleted_shouldNoLongerFindItAndReturnSC200() throws Exception {
+    // ids of their own, the search index lives as long as the cached application context
+    long keptId = 9501L;
+    long deletedId = 9502L;
+    AtomicLong ids = new AtomicLong(keptId - 1);
+    when(courseRepository.save(any(Course.class))).then(i -> {
+      Course c = i.getArgument(0, Course.class);
+      c.setId(ids.incrementAndGet());
+      return c;
+    });
+    when(courseRepository.existsById(deletedId)).thenReturn(true);
+    for (String name : new String[] {"Xylography", "Xylophone Basics"}) {
+      CreateCourseRequestResource resource = new CreateCourseRequestResource();
+      resource.setName(name);
+      resource.setAvailable(true);
+      mvc.perform(MockMvcRequestBuilders
+          .post("/courses")
+          .content(GSON.toJson(resource))
+          .contentType(MediaType.APPLICATION_JSON));
+    }
+    mvc.perform(MockMvcRequestBuilders.delete("/courses/{id}", deletedId));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/search")
+            .param("prefix", "xylo")
+            .param("limit", "5")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    List<NameMatchResource> fromResponse = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<List<NameMatchResource>>() {}.getType());
+    assertThat(fromResponse).containsExactly(new NameMatchResource(keptId, "Xylography"));
+  }
+
+  @Test
+  void testSearchCourses_whenLimitIsTooLarge_shouldSendMessageAndReturnSC400() throws Exception {
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/search")
+            .param("prefix", "x")
+            .param("limit", "101")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(400);
+    assertThat(response.getErrorMessage()).isEqualTo("limit must be between 1 and 100");
+  }
+
+  @Test
+  void testGetCoursesByIds_whenNoneExist_shouldReportAllAsMissingAndReturnSC200() throws Exception {
+    when(courseRepository.findAllById(List.of(5L, 3L))).thenReturn(List.of());
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses")
+            .param("ids", "5,3")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    MultiGetResource<CourseResource> fromResponse = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<MultiGetResource<CourseResource>>() {}.getType());
+    assertThat(fromResponse.getItems()).isEmpty();
+    assertThat(fromResponse.getMissingIds()).containsExactly(5L, 3L);
+  }
+
+  @Test
+  void testPutCourse_whenIfMatchIsCurrent_shouldUpdateAndReturnNewETagAndSC200() throws Exception {
+    long courseId = 9701L;
+    Course course = new Course();
+    course.setId(courseId);
+    course.setName("Physics");
+    course.setAvailable(true);
+    course.setVersion(4);
+
+    when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
+    when(courseRepository.save(any(Course.class))).then(i -> {
+      Course saved = i.getArgument(0, Course.class);
+      saved.setVersion(saved.getVersion() + 1);
+      return saved;
+    });
+
+    UpdateCourseRequestResource courseUpdate = new UpdateCourseRequestResource();
+    courseUpdate.setName("Classical Physics");
+    courseUpdate.setAvailable(true);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .put("/courses/{id}", courseId)
+            .header(HttpHeaders.IF_MATCH, "\"4\"")
+            .content(GSON.toJson(courseUpdate))
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"5\"");
+
+    CourseResource fromResponse = GSON.fromJson(response.getContentAsString(), CourseResource.class);
+    assertThat(fromResponse.getName()).isEqualTo("Classical Physics");
+    assertThat(fromResponse.getVersion()).isEqualTo(5);
+  }
+
+  @Test
+  void testGetCourse_whenETagIsOutdated_shouldGetWithCurrentETagAndReturnSC200() throws Exception {
+    long courseId = 9702L;
+    Course course = new Course();
+    course.setId(courseId);
+    course.setName("Physics");
+    course.setAvailable(true);
+    course.setVersion(2);
+
+    when(courseRepository.findVersionById(courseId)).thenReturn(Optional.of(2L));
+    when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses/{id}", courseId)
+            .header(HttpHeaders.IF_NONE_MATCH, "\"1\"")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"2\"");
+    assertThat(GSON.fromJson(response.getContentAsString(), CourseResource.class).getName()).isEqualTo("Physics");
+  }
+
+  @Test
+  void testGetAllCourses_whenRequestedAgain_shouldServeSameEncodingUntilCourseChangesAndReturnSC200() throws Exception {
+    long courseId = 9703L;
+    Course course = new Course();
+    course.setId(courseId);
+    course.setName("Physics");
+    course.setAvailable(true);
+
+    when(courseRepository.findAll()).thenReturn(List.of(course));
+    when(courseRepository.findById(courseId)).thenReturn(Optional.of(course));
+    when(courseRepository.save(any(Course.class))).then(returnsFirstArg());
+    // a version no other test uses, so an encoding another test left behind is read again
+    commitChange(ChangeLog.Entity.COURSE);
+
+    MockHttpServletResponse first = mvc.perform(MockMvcRequestBuilders.get("/courses")).andReturn().getResponse();
+    MockHttpServletResponse second = mvc.perform(MockMvcRequestBuilders.get("/courses")).andReturn().getResponse();
+    assertThat(second.getStatus()).isEqualTo(200);
+    assertThat(second.getContentType()).isEqualTo(MediaType.APPLICATION_JSON_VALUE);
+    assertThat(second.getContentAsString()).isEqualTo(first.getContentAsString());
+    assertThat(second.getHeader(HttpHeaders.ETAG)).isEqualTo(first.getHeader(HttpHeaders.ETAG));
+    verify(courseRepository).findAll();
+
+    mvc.perform(updateCourseRequest(courseId, "Classical Physics"));
+    verify(changeRepository).saveAll(anyIterable());
+    commitChange(ChangeLog.Entity.COURSE);
+
+    MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.get("/courses")).andReturn().getResponse();
+    List<CourseResource> fromResponse =
+        GSON.fromJson(response.getContentAsString(), new TypeToken<List<CourseResource>>() {}.getType());
+    assertThat(fromResponse).extracting(CourseResource::getName).containsExactly("Classical Physics");
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isNotEqualTo(first.getHeader(HttpHeaders.ETAG));
+  }
+
+  @Test
+  void testGetAllCourses_whenGzipIsAccepted_shouldSendCompressedListAndReturnSC200() throws Exception {
+    long courseId = 9704L;
+    Course course = new Course();
+    course.setId(courseId);
+    course.setName("Astronomy");
+    course.setAvailable(true);
+
+    when(courseRepository.findAll()).thenReturn(List.of(course));
+    long version = commitChange(ChangeLog.Entity.COURSE);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/courses")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    assertThat(response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + version + "-gzip\"");
+
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+      List<CourseResource> fromResponse = GSON.fromJson(
+          new String(gzip.readAllBytes(), StandardCharsets.UTF_8), new TypeToken<List<CourseResource>>() {}.getType());
+      assertThat(fromResponse).extracting(CourseResource::getId).containsExactly(courseId);
+    }
+  }
+
+  @Test
+  void testGetAllCourses_whenEitherEncodingIsCurrent_shouldSendTagOfAcceptedEncodingAndReturnSC304() throws Exception {
+    long version = commitChange(ChangeLog.Entity.COURSE);
+
+    MockHttpServletResponse gzip = mvc.perform(
+        MockMvcRequestBuilders
+            .get("/courses")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + version + "\""))
+        .andReturn().getResponse();
+    assertThat(gzip.getStatus()).isEqualTo(304);
+    assertThat(gzip.getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + version + "-gzip\"");
+
+    MockHttpServletResponse identity = mvc.perform(
+        MockMvcRequestBuilders
+            .get("/courses")
+            .header(HttpHeaders.IF_NONE_MATCH, "W/\"" + version + "-gzip\""))
+        .andReturn().getResponse();
+    assertThat(identity.getStatus()).isEqualTo(304);
+    assertThat(identity.getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + version + "\"");
+    verify(courseRepository, never()).findAll();
+  }
+
+  private RequestBuilder updateCourseRequest(long courseId, String name) {
+    UpdateCourseRequestResource courseUpdate = new UpdateCourseRequestResource();
+    courseUpdate.setName(name);
+    courseUpdate.setAvailable(true);
+    return MockMvcRequestBuilders
+        .put("/courses/{id}", courseId)
+        .content(GSON.toJson(courseUpdate))
+        .contentType(MediaType.APPLICATION_JSON);
+  }
+
+  // a change of entity that committed right after the latest the change log has seen, its number is returned
+  private long commitChange(ChangeLog.Entity entity) {
+    Change change = new Change();
+    change.setSequence((changeLog.getSequence() / ChangeLog.CHANGES_PER_NUMBER + 1) * ChangeLog.CHANGES_PER_NUMBER);
+    change.setEntity(entity);
+    change.setType(ChangeLog.Type.SAVED);
+    change.setChangedAt(LocalDateTime.now(ZoneOffset.UTC));
+    when(changeRepository.findAfter(anyLong(), eq(Long.MAX_VALUE), any(Pageable.class))).then(invocation ->
+        invocation.<Long>getArgument(0) < change.getSequence() ? List.of(change) : List.of());
+    return change.getSequence();
+  }
+
+}
@@ -1,31 +1,60 @@
 package nl.nn.workshop.controller;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 
 import com.google.gson.reflect.TypeToken;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 import nl.nn.workshop.AbstractUnitTest;
+import nl.nn.workshop.changes.ChangeLog;
+import nl.nn.workshop.model.Change;
+import nl.nn.workshop.model.Course;
 import nl.nn.workshop.model.Enrollment;
 import nl.nn.workshop.model.EnrollmentPk;
+import nl.nn.workshop.repository.ChangeRepository;
 import nl.nn.workshop.repository.CourseRepository;
 import nl.nn.workshop.repository.EnrollmentRepository;
 import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.CursorPageResource;
+import nl.nn.workshop.resource.EnrollmentDetailResource;
 import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.resource.IdSetResource;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 public class EnrollmentControllerUnitTest extends AbstractUnitTest {
 
+  @MockBean
+  private ChangeRepository changeRepository;
+
+  @Autowired
+  private ChangeLog changeLog;
+
   @MockBean
   private StudentRepository studentRepository;
 
@@ -40,9 +69,7 @@ public class EnrollmentControllerUnitTest extends AbstractUnitTest {
     long studentId = 1L;
     long courseId = 1L;
 
-    when(studentRepository.existsById(studentId)).thenReturn(true);
-    when(courseRepository.existsById(courseId)).thenReturn(true);
-    when(enrollmentRepository.save(any(Enrollment.class))).then(returnsFirstArg());
+    when(enrollmentRepository.insertIfAbsent(eq(studentId), eq(courseId), any(LocalDateTime.class))).thenReturn(1);
 
     RequestBuilder request =
         MockMvcRequestBuilders
@@ -223,4 +250,446 @@ public class EnrollmentControllerUnitTest extends AbstractUnitTest {
     assertThat(response.getContentAsString()).isEmpty();
   }
 
+  @Test
+  void testGetEnrollmentPage_whenMoreEnrollmentsExist_shouldSeekPastCursorAndReturnSC200() throws Exception {
+    LocalDateTime now = LocalDateTime.now();
+
+    Enrollment first = new Enrollment();
+    first.setEnrollmentDate(now);
+    first.setStudentId(1L);
+    first.setCourseId(2L);
+
+    Enrollment second = new Enrollment();
+    second.setEnrollmentDate(now);
+    second.setStudentId(2L);
+    second.setCourseId(1L);
+
+    when(enrollmentRepository.findAfter(eq(Long.MIN_VALUE), eq(Long.MIN_VALUE), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(first), PageRequest.of(0, 1), true));
+    when(enrollmentRepository.findAfter(eq(1L), eq(2L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(second), PageRequest.of(0, 1), false));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/enrollments")
+            .param("limit", "1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<EnrollmentResource> firstPage = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<CursorPageResource<EnrollmentResource>>() {}.getType());
+    assertThat(firstPage.getItems()).extracting(EnrollmentResource::getStudentId).containsExactly(1L);
+    assertThat(firstPage.getNextCursor()).isNotNull();
+
+    request =
+        MockMvcRequestBuilders
+            .get("/enrollments")
+            .param("limit", "1")
+            .param("cursor", firstPage.getNextCursor())
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<EnrollmentResource> secondPage = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<CursorPageResource<EnrollmentResource>>() {}.getType());
+    assertThat(secondPage.getItems()).extracting(EnrollmentResource::getStudentId).containsExactly(2L);
+    assertThat(secondPage.getNextCursor()).isNull();
+  }
+
+  @Test
+  void testExportEnrollments_whenNdjsonIsRequested_shouldStreamOneLinePerEnrollmentAndReturnSC200() throws Exception {
+    LocalDateTime now = LocalDateTime.now();
+
+    EnrollmentResource first = new EnrollmentResource(1L, 1L, now);
+    EnrollmentResource second = new EnrollmentResource(1L, 2L, now);
+
+    when(enrollmentRepository.streamAll()).thenReturn(Stream.of(first, second));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/enrollments")
+            .accept(MediaType.APPLICATION_NDJSON);
+
+    MvcResult result = mvc.perform(request).andReturn();
+    MockHttpServletResponse response = mvc.perform(asyncDispatch(result)).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON_VALUE);
+
+    String body = response.getContentAsString();
+    assertThat(body).endsWith("\n");
+    String[] lines = body.split("\n");
+    assertThat(lines).hasSize(2);
+    assertThat(lines).allSatisfy(line -> assertThat(line).startsWith("{\"studentId\":1,"));
+    assertThat(GSON.fromJson(lines[0], EnrollmentResource.class)).isEqualTo(first);
+    assertThat(GSON.fromJson(lines[1], EnrollmentResource.class)).isEqualTo(second);
+  }
+
+  @Test
+  public void testCreateEnrollment_whenEnrollmentAlreadyExists_shouldFailAndReturnSC409() throws Exception {
+    long studentId = 1L;
+    long courseId = 1L;
+
+    when(enrollmentRepository.insertIfAbsentOnReservedSeat(eq(studentId), eq(courseId), any(LocalDateTime.class)))
+        .thenReturn(0);
+    when(studentRepository.existsById(studentId)).thenReturn(true);
+    when(courseRepository.existsById(courseId)).thenReturn(true);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .post("/enrollments/student/{studentId}/course/{courseId}", studentId, courseId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(409);
+    assertThat(response.getErrorMessage()).isEqualTo("student 1 is already enrolled in the course 1");
+  }
+
+  @Test
+  public void testCreateEnrollment_whenConcurrentInsertWinsTheRace_shouldFailAndReturnSC409() throws Exception {
+    long studentId = 1L;
+    long courseId = 1L;
+
+    when(enrollmentRepository.insertIfAbsent(eq(studentId), eq(courseId), any(LocalDateTime.class)))
+        .thenThrow(new DataIntegrityViolationException("duplicate key value violates unique constraint"));
+    when(studentRepository.existsById(studentId)).thenReturn(true);
+    when(courseRepository.existsById(courseId)).thenReturn(true);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .post("/enrollments/student/{studentId}/course/{courseId}", studentId, courseId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(409);
+    assertThat(response.getErrorMessage()).isEqualTo("student 1 is already enrolled in the course 1");
+  }
+
+  @Test
+  void testGetStudentIdsByCourses_whenEnrollmentsWereCreated_shouldIntersectAndReturnSC200() throws Exception {
+    // ids of their own, the index lives as long as the cached application context
+    long firstCourseId = 9101L;
+    long secondCourseId = 9102L;
+
+    when(enrollmentRepository.insertIfAbsent(any(Long.class), any(Long.class), any(LocalDateTime.class)))
+        .thenReturn(1);
+    for (long studentId : new long[] {9001L, 9002L}) {
+      mvc.perform(MockMvcRequestBuilders.post(
+          "/enrollments/student/{studentId}/course/{courseId}", studentId, firstCourseId));
+    }
+    mvc.perform(MockMvcRequestBuilders.post(
+        "/enrollments/student/{studentId}/course/{courseId}", 9002L, secondCourseId));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/enrollments/students")
+            .param("all", String.valueOf(firstCourseId))
+            .param("none", String.valueOf(secondCourseId))
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    IdSetResource fromResponse = GSON.fromJson(response.getContentAsString(), IdSetResource.class);
+    assertThat(fromResponse).isEqualTo(new IdSetResource(new long[] {9001L}));
+  }
+
+  @Test
+  void testGetCourseIdsByStudents_whenEnrollmentWasDeleted_shouldLeaveItOutAndReturnSC200() throws Exception {
+    long studentId = 9003L;
+    long courseId = 9103L;
+
+    Enrollment enrollment = new Enrollment();
+    enrollment.setEnrollmentDate(LocalDateTime.now());
+    enrollment.setStudentId(studentId);
+    enrollment.setCourseId(courseId);
+
+    when(enrollmentRepository.insertIfAbsent(eq(studentId), eq(courseId), any(LocalDateTime.class))).thenReturn(1);
+    when(enrollmentRepository.findById(new EnrollmentPk(studentId, courseId))).thenReturn(Optional.of(enrollment));
+    mvc.perform(MockMvcRequestBuilders.post(
+        "/enrollments/student/{studentId}/course/{courseId}", studentId, courseId));
+    mvc.perform(MockMvcRequestBuilders.delete(
+        "/enrollments/student/{studentId}/course/{courseId}", studentId, courseId));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/enrollments/courses")
+            .param("any", String.valueOf(studentId))
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    IdSetResource fromResponse = GSON.fromJson(response.getContentAsString(), IdSetResource.class);
+    assertThat(fromResponse.getCount()).isEqualTo(0);
+  }
+
+  @Test
+  void testGetStudentIdsByCourses_whenOnlyNoneIsGiven_shouldFailAndReturnSC400() throws Exception {
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/enrollments/students")
+            .param("none", "1")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(400);
+    assertThat(response.getErrorMessage()).isEqualTo("at least one of all or any is required");
+  }
+
+  @Test
+  void testCreateEnrollment_whenCourseIsFull_shouldFailWithoutInsertingAndReturnSC409() throws Exception {
+    // ids of their own, the seat counters live as long as the cached application context
+    long studentId = 9041L;
+    long courseId = 9401L;
+
+    when(courseRepository.findById(courseId)).thenReturn(Optional.of(course(courseId, 1, 1)));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .post("/enrollments/student/{studentId}/course/{courseId}", studentId, courseId)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(409);
+    assertThat(response.getErrorMessage()).isEqualTo("course 9401 is full");
+    verify(courseRepository, never()).reserveSeat(courseId);
+    verify(enrollmentRepository, never())
+        .insertIfAbsentOnReservedSeat(eq(studentId), eq(courseId), any(LocalDateTime.class));
+  }
+
+  @Test
+  void testCreateEnrollment_whenReservedSeatIsNotUsed_shouldGiveItBackAndReturnSC409() throws Exception {
+    long studentId = 9042L;
+    long courseId = 9402L;
+
+    when(courseRepository.findById(courseId)).thenReturn(Optional.of(course(courseId, 5, 0)));
+    when(courseRepository.reserveSeat(courseId)).thenReturn(1);
+    when(enrollmentRepository.insertIfAbsentOnReservedSeat(eq(studentId), eq(courseId), any(LocalDateTime.class)))
+        .thenReturn(0);
+    when(studentRepository.existsById(studentId)).thenReturn(true);
+    when(courseRepository.existsById(courseId)).thenReturn(true);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .post("/enrollments/student/{studentId}/course/{courseId}", studentId, courseId)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(409);
+    assertThat(response.getErrorMessage()).isEqualTo("student 9042 is already enrolled in the course 9402");
+    verify(courseRepository).releaseSeat(courseId);
+  }
+
+  private static Course course(long id, int capacity, int seatsTaken) {
+    Course course = new Course();
+    course.setId(id);
+    course.setName("Physics");
+    course.setAvailable(true);
+    course.setCapacity(capacity);
+    course.setSeatsTaken(seatsTaken);
+    return course;
+  }
+
+  @Test
+  void testGetExpandedEnrollments_whenMoreEnrollmentsExist_shouldSeekPastCursorAndReturnSC200() throws Exception {
+    LocalDateTime now = LocalDateTime.now();
+    EnrollmentDetailResource first = new EnrollmentDetailResource(1L, "Isaac Newton", 2L, "Physics", true, now);
+    EnrollmentDetailResource second = new EnrollmentDetailResource(2L, "Ada Lovelace", 1L, "Algebra", false, now);
+
+    when(enrollmentRepository.findDetailsAfter(eq(Long.MIN_VALUE), eq(Long.MIN_VALUE), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(first), PageRequest.of(0, 1), true));
+    when(enrollmentRepository.findDetailsAfter(eq(1L), eq(2L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(second), PageRequest.of(0, 1), false));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/enrollments/expanded")
+            .param("limit", "1")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<EnrollmentDetailResource> firstPage = GSON.fromJson(response.getContentAsString(),
+        new TypeToken<CursorPageResource<EnrollmentDetailResource>>() {}.getType());
+    assertThat(firstPage.getItems()).extracting(EnrollmentDetailResource::getStudentName)
+        .containsExactly("Isaac Newton");
+    assertThat(firstPage.getNextCursor()).isNotNull();
+
+    request =
+        MockMvcRequestBuilders
+            .get("/enrollments/expanded")
+            .param("limit", "1")
+            .param("cursor", firstPage.getNextCursor())
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<EnrollmentDetailResource> secondPage = GSON.fromJson(response.getContentAsString(),
+        new TypeToken<CursorPageResource<EnrollmentDetailResource>>() {}.getType());
+    assertThat(secondPage.getItems()).containsExactly(second);
+    assertThat(secondPage.getNextCursor()).isNull();
+    verify(enrollmentRepository, never()).findAll();
+  }
+
+  @Test
+  void testGetExpandedEnrollments_whenStudentDoesNotExist_shouldFailAndReturnSC404() throws Exception {
+    when(enrollmentRepository.findDetailsByStudentId(eq(9601L), eq(Long.MIN_VALUE), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 100), false));
+    when(studentRepository.existsById(9601L)).thenReturn(false);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/enrollments/expanded")
+            .param("studentId", "9601")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(404);
+    assertThat(response.getErrorMessage()).isEqualTo("student with id 9601 not found");
+  }
+
+  @Test
+  void testGetExpandedEnrollments_whenBothFiltersAreGiven_shouldFailAndReturnSC400() throws Exception {
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/enrollments/expanded")
+            .param("studentId", "1")
+            .param("courseId", "2")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(400);
+    assertThat(response.getErrorMessage()).isEqualTo("at most one of studentId or courseId can be given");
+  }
+
+  @Test
+  void testGetAllEnrollments_whenEnrollmentWasCreatedSinceETag_shouldListAgainAndReturnSC200() throws Exception {
+    long studentId = 9702L;
+    long courseId = 9702L;
+    when(enrollmentRepository.findAll()).thenReturn(List.of());
+    when(enrollmentRepository.insertIfAbsent(eq(studentId), eq(courseId), any(LocalDateTime.class))).thenReturn(1);
+    commitChange(ChangeLog.Entity.ENROLLMENT);
+
+    String etag = mvc.perform(MockMvcRequestBuilders.get("/enrollments")).andReturn().getResponse()
+        .getHeader(HttpHeaders.ETAG);
+    MockHttpServletResponse unchanged = mvc.perform(
+        MockMvcRequestBuilders.get("/enrollments").header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn().getResponse();
+    assertThat(unchanged.getStatus()).isEqualTo(304);
+
+    mvc.perform(MockMvcRequestBuilders.post("/enrollments/student/{studentId}/course/{courseId}", studentId, courseId));
+    verify(changeRepository).saveAll(anyIterable());
+    commitChange(ChangeLog.Entity.ENROLLMENT);
+
+    MockHttpServletResponse response = mvc.perform(
+        MockMvcRequestBuilders.get("/enrollments").header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+  }
+
+  @Test
+  void testGetEnrollment_whenETagIsCurrent_shouldReturnSC304() throws Exception {
+    long studentId = 9703L;
+    long courseId = 9703L;
+    LocalDateTime enrollmentDate = LocalDateTime.of(2021, 9, 1, 8, 30);
+
+    Enrollment enrollment = new Enrollment();
+    enrollment.setStudentId(studentId);
+    enrollment.setCourseId(courseId);
+    enrollment.setEnrollmentDate(enrollmentDate);
+    when(enrollmentRepository.findById(new EnrollmentPk(studentId, courseId))).thenReturn(Optional.of(enrollment));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/enrollments/student/{studentId}/course/{courseId}", studentId, courseId)
+            .header(HttpHeaders.IF_NONE_MATCH, "\"" + enrollmentDate + "\"")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(304);
+    assertThat(response.getContentAsString()).isEmpty();
+  }
+
+  @Test
+  void testStreamEnrollmentEvents_whenEnrollmentsAreCreated_shouldPushThemAndResumeAfterLastEventId()
+      throws Exception {
+    long studentId = 9711L;
+
+    when(enrollmentRepository.insertIfAbsent(eq(studentId), any(Long.class), any(LocalDateTime.class)))
+        .thenReturn(1);
+
+    MvcResult subscription = mvc.perform(
+        MockMvcRequestBuilders
+            .get("/enrollments/events")
+            .accept(MediaType.TEXT_EVENT_STREAM)).andReturn();
+    assertThat(subscription.getRequest().isAsyncStarted()).isTrue();
+
+    mvc.perform(MockMvcRequestBuilders.post("/enrollments/student/{studentId}/course/{courseId}", studentId, 9711L));
+    mvc.perform(MockMvcRequestBuilders.post("/enrollments/student/{studentId}/course/{courseId}", studentId, 9712L));
+
+    String events = awaitContent(subscription.getResponse(), "\"courseId\":9712");
+    assertThat(events).contains("event:created", "\"courseId\":9711", "\"courseId\":9712");
+    String firstEventId = events.lines()
+        .filter(line -> line.startsWith("id:"))
+        .findFirst()
+        .orElseThrow()
+        .substring("id:".length());
+
+    MvcResult resumed = mvc.perform(
+        MockMvcRequestBuilders
+            .get("/enrollments/events")
+            .header("Last-Event-ID", firstEventId)
+            .accept(MediaType.TEXT_EVENT_STREAM)).andReturn();
+    String missed = awaitContent(resumed.getResponse(), "\"courseId\":9712");
+    assertThat(missed).contains("\"courseId\":9712").doesNotContain("\"courseId\":9711");
+  }
+
+  @Test
+  void testStreamEnrollmentEvents_whenLastEventIdIsFromAnotherRun_shouldSendMessageAndReturnSC410()
+      throws Exception {
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/enrollments/events")
+            .header("Last-Event-ID", "0-1")
+            .accept(MediaType.TEXT_EVENT_STREAM);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(410);
+    assertThat(response.getErrorMessage())
+        .isEqualTo("events since the last event id are no longer known, start over with a full download");
+  }
+
+  // the events are sent from a thread of the stream, so they show up in the response some time after the request
+  private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!response.getContentAsString().contains(expected) && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    return response.getContentAsString();
+  }
+
+  // a change of entity that committed right after the latest the change log has seen, its number is returned
+  private long commitChange(ChangeLog.Entity entity) {
+    Change change = new Change();
+    change.setSequence((changeLog.getSequence() / ChangeLog.CHANGES_PER_NUMBER + 1) * ChangeLog.CHANGES_PER_NUMBER);
+    change.setEntity(entity);
+    change.setType(ChangeLog.Type.SAVED);
+    change.setChangedAt(LocalDateTime.now(ZoneOffset.UTC));
+    when(changeRepository.findAfter(anyLong(), eq(Long.MAX_VALUE), any(Pageable.class))).then(invocation ->
+        invocation.<Long>getArgument(0) < change.getSequence() ? List.of(change) : List.of());
+    return change.getSequence();
+  }
+
 }
@@ -3,32 +3,54 @@ package nl.nn.workshop.controller;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.gson.reflect.TypeToken;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import nl.nn.workshop.AbstractUnitTest;
 import nl.nn.workshop.model.Student;
+import nl.nn.workshop.repository.ChangeRepository;
 import nl.nn.workshop.repository.CourseRepository;
 import nl.nn.workshop.repository.EnrollmentRepository;
 import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.CourseResource;
 import nl.nn.workshop.resource.CreateStudentRequestResource;
+import nl.nn.workshop.resource.CursorPageResource;
+import nl.nn.workshop.resource.MultiGetResource;
+import nl.nn.workshop.resource.NameMatchResource;
+import nl.nn.workshop.resource.NameSimilarityResource;
 import nl.nn.workshop.resource.StudentResource;
 import nl.nn.workshop.resource.UpdateStudentRequestResource;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.RequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+@MockBean(ChangeRepository.class)
 @MockBean(CourseRepository.class)
-@MockBean(EnrollmentRepository.class)
 public class StudentControllerUnitTest extends AbstractUnitTest {
 
   @MockBean
   private StudentRepository studentRepository;
 
+  @MockBean
+  private EnrollmentRepository enrollmentRepository;
+
   @Test
   void testCreateStudent_whenStudentInfoIsProvided_shouldCreateAndReturnSC200() throws Exception {
     LocalDate birthday = LocalDate.of(1643, 1, 4);
@@ -197,4 +219,362 @@ public class StudentControllerUnitTest extends AbstractUnitTest {
     assertThat(response.getErrorMessage()).isEqualTo(String.format("student with id %d not found", studentId));
   }
 
+  @Test
+  void testGetStudentPage_whenMoreStudentsExist_shouldReturnPageWithNextCursorAndSC200() throws Exception {
+    Student first = new Student();
+    first.setId(1L);
+    first.setName("Isaac Newton");
+    first.setBirthday(LocalDate.of(1643, 1, 4));
+
+    Student second = new Student();
+    second.setId(2L);
+    second.setName("Marie Curie");
+    second.setBirthday(LocalDate.of(1867, 11, 7));
+
+    Student third = new Student();
+    third.setId(3L);
+    third.setName("Albert Einstein");
+    third.setBirthday(LocalDate.of(1879, 3, 14));
+
+    when(studentRepository.findByIdGreaterThanOrderByIdAsc(eq(Long.MIN_VALUE), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(first, second), PageRequest.of(0, 2), true));
+    when(studentRepository.findByIdGreaterThanOrderByIdAsc(eq(2L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(third), PageRequest.of(0, 2), false));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/students")
+            .param("limit", "2")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<StudentResource> firstPage = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<CursorPageResource<StudentResource>>() {}.getType());
+    assertThat(firstPage.getItems()).extracting(StudentResource::getId).containsExactly(1L, 2L);
+    assertThat(firstPage.getNextCursor()).isNotNull();
+
+    request =
+        MockMvcRequestBuilders
+            .get("/students")
+            .param("limit", "2")
+            .param("cursor", firstPage.getNextCursor())
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<StudentResource> secondPage = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<CursorPageResource<StudentResource>>() {}.getType());
+    assertThat(secondPage.getItems()).extracting(StudentResource::getId).containsExactly(3L);
+    assertThat(secondPage.getNextCursor()).isNull();
+  }
+
+  @Test
+  void testGetStudentPage_whenCursorIsInvalid_shouldSendMessageAndReturnSC400() throws Exception {
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/students")
+            .param("limit", "2")
+            .param("cursor", "not-a-cursor")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(400);
+    assertThat(response.getErrorMessage()).isEqualTo("invalid cursor not-a-cursor");
+  }
+
+  @Test
+  void testCreateStudents_whenBatchIsProvided_shouldCreateAllAndReturnIdsInRequestOrderAndSC200() throws Exception {
+    CreateStudentRequestResource newton = new CreateStudentRequestResource();
+    newton.setName("Isaac Newton");
+    newton.setBirthday(LocalDate.of(1643, 1, 4));
+
+    CreateStudentRequestResource curie = new CreateStudentRequestResource();
+    curie.setName("Marie Curie");
+    curie.setBirthday(LocalDate.of(1867, 11, 7));
+
+    when(studentRepository.saveAll(anyIterable())).then(i -> {
+      Iterable<Student> students = i.getArgument(0);
+      long id = 51L;
+      for (Student student : students) {
+        student.setId(id--);
+      }
+      return students;
+    });
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .post("/students/batch")
+            .content(GSON.toJson(List.of(newton, curie)))
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    List<Long> fromResponse = GSON.fromJson(response.getContentAsString(), new TypeToken<List<Long>>() {}.getType());
+    assertThat(fromResponse).containsExactly(51L, 50L);
+  }
+
+  @Test
+  void testGetStudentCourses_whenStudentHasMoreCourses_shouldReturnPageWithNextCursorAndSC200() throws Exception {
+    long studentId = 7L;
+
+    when(enrollmentRepository.findCoursesByStudentId(eq(studentId), eq(Long.MIN_VALUE), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(new CourseResource(1L, "Physics", true), new CourseResource(2L, "Optics", true)), PageRequest.of(0, 2), true));
+    when(enrollmentRepository.findCoursesByStudentId(eq(studentId), eq(2L), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of(new CourseResource(3L, "Calculus", false)), PageRequest.of(0, 2), false));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/students/{id}/courses", studentId)
+            .param("limit", "2")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<CourseResource> firstPage = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<CursorPageResource<CourseResource>>() {}.getType());
+    assertThat(firstPage.getItems()).extracting(CourseResource::getId).containsExactly(1L, 2L);
+    assertThat(firstPage.getNextCursor()).isNotNull();
+
+    request =
+        MockMvcRequestBuilders
+            .get("/students/{id}/courses", studentId)
+            .param("limit", "2")
+            .param("cursor", firstPage.getNextCursor())
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    CursorPageResource<CourseResource> secondPage = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<CursorPageResource<CourseResource>>() {}.getType());
+    assertThat(secondPage.getItems()).extracting(CourseResource::getId).containsExactly(3L);
+    assertThat(secondPage.getNextCursor()).isNull();
+  }
+
+  @Test
+  void testGetStudentCourses_whenStudentDoesNotExist_shouldSendMessageAndReturnSC404() throws Exception {
+    long studentId = 7L;
+
+    when(enrollmentRepository.findCoursesByStudentId(eq(studentId), eq(Long.MIN_VALUE), any(Pageable.class)))
+        .thenReturn(new SliceImpl<>(List.of()));
+    when(studentRepository.existsById(studentId)).thenReturn(false);
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/students/{id}/courses", studentId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(404);
+    assertThat(response.getErrorMessage()).isEqualTo(String.format("student with id %d not found", studentId));
+  }
+
+  @Test
+  void testSearchStudents_whenNamesStartWithPrefix_shouldFindThemWithoutQueryAndReturnSC200() throws Exception {
+    // names of their own, the search index lives as long as the cached application context
+    AtomicLong ids = new AtomicLong(9500L);
+    when(studentRepository.save(any(Student.class))).then(i -> {
+      Student s = i.getArgument(0, Student.class);
+      s.setId(ids.incrementAndGet());
+      return s;
+    });
+    for (String name : new String[] {"Ptolemaeus Claudius", "ptolemy Soter", "Pythagoras"}) {
+      CreateStudentRequestResource resource = new CreateStudentRequestResource();
+      resource.setName(name);
+      resource.setBirthday(LocalDate.of(100, 1, 1));
+      mvc.perform(MockMvcRequestBuilders
+          .post("/students")
+          .content(GSON.toJson(resource))
+          .contentType(MediaType.APPLICATION_JSON));
+    }
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/students/search")
+            .param("prefix", "PTOL")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    List<NameMatchResource> fromResponse = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<List<NameMatchResource>>() {}.getType());
+    assertThat(fromResponse).containsExactly(
+        new NameMatchResource(9501L, "Ptolemaeus Claudius"), new NameMatchResource(9502L, "ptolemy Soter"));
+    verify(studentRepository, never()).findAll();
+  }
+
+  @Test
+  void testSearchStudents_whenPrefixIsBlank_shouldSendMessageAndReturnSC400() throws Exception {
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/students/search")
+            .param("prefix", " ")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(400);
+    assertThat(response.getErrorMessage()).isEqualTo("prefix must not be blank");
+  }
+
+  @Test
+  void testSearchSimilarStudents_whenNameIsMisspelled_shouldRankItFirstAndReturnSC200() throws Exception {
+    // names of their own, the search index lives as long as the cached application context
+    AtomicLong ids = new AtomicLong(9510L);
+    when(studentRepository.save(any(Student.class))).then(i -> {
+      Student s = i.getArgument(0, Student.class);
+      s.setId(ids.incrementAndGet());
+      return s;
+    });
+    for (String name : new String[] {"Srinivasa Ramanujan", "Srinivas Rao"}) {
+      CreateStudentRequestResource resource = new CreateStudentRequestResource();
+      resource.setName(name);
+      resource.setBirthday(LocalDate.of(1887, 12, 22));
+      mvc.perform(MockMvcRequestBuilders
+          .post("/students")
+          .content(GSON.toJson(resource))
+          .contentType(MediaType.APPLICATION_JSON));
+    }
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/students/search")
+            .param("query", "ramanujam")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    List<NameSimilarityResource> fromResponse = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<List<NameSimilarityResource>>() {}.getType());
+    assertThat(fromResponse).extracting(NameSimilarityResource::getId).containsExactly(9511L);
+    assertThat(fromResponse.get(0).getSimilarity()).isGreaterThan(0.5);
+  }
+
+  @Test
+  void testGetStudentsByIds_whenSomeExist_shouldReturnThemInRequestedOrderWithMissingIdsAndSC200() throws Exception {
+    Student newton = new Student();
+    newton.setId(1L);
+    newton.setName("Isaac Newton");
+    newton.setBirthday(LocalDate.of(1643, 1, 4));
+    Student leibniz = new Student();
+    leibniz.setId(2L);
+    leibniz.setName("Gottfried Leibniz");
+    leibniz.setBirthday(LocalDate.of(1646, 7, 1));
+
+    // the database returns the rows in its own order
+    when(studentRepository.findAllById(List.of(2L, 7L, 1L))).thenReturn(List.of(newton, leibniz));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/students")
+            .param("ids", "2,7,1,2")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(200);
+
+    MultiGetResource<StudentResource> fromResponse = GSON.fromJson(
+        response.getContentAsString(), new TypeToken<MultiGetResource<StudentResource>>() {}.getType());
+    assertThat(fromResponse.getItems()).extracting(StudentResource::getId).containsExactly(2L, 1L);
+    assertThat(fromResponse.getMissingIds()).containsExactly(7L);
+    verify(studentRepository, never()).findById(any(Long.class));
+  }
+
+  @Test
+  void testGetStudentsByIds_whenTooManyIdsAreRequested_shouldSendMessageAndReturnSC400() throws Exception {
+    String ids = LongStream.rangeClosed(1, 101).mapToObj(Long::toString).collect(Collectors.joining(","));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/students")
+            .param("ids", ids)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(400);
+    assertThat(response.getErrorMessage()).isEqualTo("at most 100 ids can be requested at once");
+  }
+
+  @Test
+  void testGetStudent_whenETagIsCurrent_shouldNotLoadStudentAndReturnSC304() throws Exception {
+    long studentId = 9701L;
+    when(studentRepository.findVersionById(studentId)).thenReturn(Optional.of(3L));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/students/{id}", studentId)
+            .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(304);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"3\"");
+    assertThat(response.getContentAsString()).isEmpty();
+    verify(studentRepository, never()).findById(studentId);
+  }
+
+  @Test
+  void testPutStudent_whenIfMatchIsOutdated_shouldSendMessageAndReturnSC412() throws Exception {
+    long studentId = 9702L;
+    Student student = new Student();
+    student.setId(studentId);
+    student.setName("Isaac Newton");
+    student.setBirthday(LocalDate.of(1643, 1, 4));
+    student.setVersion(2);
+
+    when(studentRepository.findById(studentId)).thenReturn(Optional.of(student));
+
+    UpdateStudentRequestResource studentUpdate = new UpdateStudentRequestResource();
+    studentUpdate.setName("Sir Isaac Newton");
+    studentUpdate.setBirthday(LocalDate.of(1643, 1, 4));
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .put("/students/{id}", studentId)
+            .header(HttpHeaders.IF_MATCH, "\"1\"")
+            .content(GSON.toJson(studentUpdate))
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(412);
+    assertThat(response.getErrorMessage())
+        .isEqualTo(String.format("student with id %d has been changed", studentId));
+    verify(studentRepository, never()).save(any(Student.class));
+  }
+
+  @Test
+  void testGetAllStudents_whenETagIsCurrent_shouldNotQueryAndReturnSC304() throws Exception {
+    when(studentRepository.findAll()).thenReturn(List.of());
+
+    MockHttpServletResponse first = mvc.perform(MockMvcRequestBuilders.get("/students")).andReturn().getResponse();
+    assertThat(first.getStatus()).isEqualTo(200);
+    String etag = first.getHeader(HttpHeaders.ETAG);
+    assertThat(etag).isNotNull();
+
+    RequestBuilder request =
+        MockMvcRequestBuilders
+            .get("/students")
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .accept(MediaType.APPLICATION_JSON);
+
+    MockHttpServletResponse response = mvc.perform(request).andReturn().getResponse();
+    assertThat(response.getStatus()).isEqualTo(304);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+    verify(studentRepository).findAll();
+  }
+
 }
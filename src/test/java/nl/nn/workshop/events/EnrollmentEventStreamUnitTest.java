@@ -0,0 +1,70 @@
+package nl.nn.workshop.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import nl.nn.workshop.service.EnrollmentEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class EnrollmentEventStreamUnitTest {
+
+  // the senders queue up behind a task that waits, like they would behind a client that does not read
+  private final CountDownLatch stuck = new CountDownLatch(1);
+  private final ExecutorService senders = Executors.newSingleThreadExecutor();
+  private final EnrollmentEventStream stream = new EnrollmentEventStream(2, Duration.ofMinutes(1), senders);
+
+  @AfterEach
+  void release() {
+    stuck.countDown();
+    senders.shutdown();
+  }
+
+  @Test
+  void testOnEnrollment_whenSubscriberFallsFurtherBehindThanItsBuffer_shouldDisconnectIt() {
+    senders.execute(this::awaitRelease);
+    stream.subscribe(null);
+    LocalDateTime enrollmentDate = LocalDateTime.of(2021, 9, 1, 8, 30);
+
+    stream.onEnrollment(EnrollmentEvent.created(1L, 1L, enrollmentDate));
+    stream.onEnrollment(EnrollmentEvent.created(1L, 2L, enrollmentDate));
+    assertThat(stream.getSubscriberCount()).isEqualTo(1);
+
+    stream.onEnrollment(EnrollmentEvent.created(1L, 3L, enrollmentDate));
+    assertThat(stream.getSubscriberCount()).isZero();
+  }
+
+  @Test
+  void testSubscribe_whenLastEventIdIsFromAnotherRun_shouldThrowGone() {
+    ResponseStatusException e =
+        catchThrowableOfType(() -> stream.subscribe("0-1"), ResponseStatusException.class);
+
+    assertThat(e.getStatus()).isEqualTo(HttpStatus.GONE);
+    assertThat(stream.getSubscriberCount()).isZero();
+  }
+
+  @Test
+  void testSubscribe_whenLastEventIdIsMalformed_shouldThrowBadRequest() {
+    ResponseStatusException e =
+        catchThrowableOfType(() -> stream.subscribe("yesterday"), ResponseStatusException.class);
+
+    assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+    assertThat(stream.getSubscriberCount()).isZero();
+  }
+
+  private void awaitRelease() {
+    try {
+      stuck.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
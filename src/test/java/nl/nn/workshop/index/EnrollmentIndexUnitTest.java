@@ -0,0 +1,81 @@
+package nl.nn.workshop.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.service.EnrollmentEvent;
+import org.junit.jupiter.api.Test;
+
+public class EnrollmentIndexUnitTest {
+
+  private static final long[] NONE = {};
+
+  private final EnrollmentRepository enrollmentRepository = mock(EnrollmentRepository.class);
+
+  @Test
+  void testFindStudents_whenCombiningCourses_shouldApplySetAlgebra() {
+    EnrollmentIndex index = loaded(
+        enrollment(1, 10), enrollment(1, 20),
+        enrollment(2, 10), enrollment(2, 20), enrollment(2, 30),
+        enrollment(3, 10),
+        enrollment(4, 30));
+
+    assertThat(index.findStudents(new long[] {10, 20}, NONE, NONE)).containsExactly(1, 2);
+    assertThat(index.findStudents(NONE, new long[] {20, 30}, NONE)).containsExactly(1, 2, 4);
+    assertThat(index.findStudents(new long[] {10}, NONE, new long[] {20})).containsExactly(3);
+    assertThat(index.findStudents(new long[] {10}, new long[] {30, 99}, NONE)).containsExactly(2);
+    assertThat(index.findStudents(new long[] {10, 99}, NONE, NONE)).isEmpty();
+    assertThat(index.findCourses(new long[] {1, 2}, NONE, new long[] {3})).containsExactly(20);
+  }
+
+  @Test
+  void testFindStudents_whenNeitherAllNorAnyGiven_shouldFail() {
+    EnrollmentIndex index = loaded();
+
+    assertThatThrownBy(() -> index.findStudents(NONE, NONE, new long[] {1}))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void testOnEnrollment_whenLoaded_shouldFollowCreatesAndDeletes() {
+    EnrollmentIndex index = loaded(enrollment(1, 10));
+
+    index.onEnrollment(EnrollmentEvent.created(2, 10, LocalDateTime.now()));
+    index.onEnrollment(EnrollmentEvent.deleted(1, 10, LocalDateTime.now()));
+
+    assertThat(index.findStudents(new long[] {10}, NONE, NONE)).containsExactly(2);
+    assertThat(index.findCourses(NONE, new long[] {1}, NONE)).isEmpty();
+  }
+
+  @Test
+  void testOnEnrollment_whenStillLoading_shouldReplayEventsAfterLoad() {
+    when(enrollmentRepository.streamAll()).thenReturn(Stream.of(enrollment(1, 10), enrollment(2, 10)));
+    EnrollmentIndex index = new EnrollmentIndex(enrollmentRepository);
+
+    index.onEnrollment(EnrollmentEvent.created(3, 10, LocalDateTime.now()));
+    index.onEnrollment(EnrollmentEvent.deleted(1, 10, LocalDateTime.now()));
+    assertThat(index.isLoaded()).isFalse();
+    index.load();
+
+    assertThat(index.isLoaded()).isTrue();
+    assertThat(index.findStudents(new long[] {10}, NONE, NONE)).containsExactly(2, 3);
+  }
+
+  private EnrollmentIndex loaded(EnrollmentResource... enrollments) {
+    when(enrollmentRepository.streamAll()).thenReturn(Stream.of(enrollments));
+    EnrollmentIndex index = new EnrollmentIndex(enrollmentRepository);
+    index.load();
+    return index;
+  }
+
+  private static EnrollmentResource enrollment(long studentId, long courseId) {
+    return new EnrollmentResource(studentId, courseId, LocalDateTime.now());
+  }
+
+}
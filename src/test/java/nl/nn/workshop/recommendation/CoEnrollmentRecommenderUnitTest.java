@@ -0,0 +1,144 @@
+package nl.nn.workshop.recommendation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.resource.CourseRecommendationResource;
+import nl.nn.workshop.resource.EnrollmentResource;
+import nl.nn.workshop.service.EnrollmentEvent;
+import org.junit.jupiter.api.Test;
+
+public class CoEnrollmentRecommenderUnitTest {
+
+  private static final int COURSES = 40;
+
+  private final EnrollmentRepository enrollmentRepository = mock(EnrollmentRepository.class);
+
+  @Test
+  void testFindRecommendations_whenLoaded_shouldRankByStudentsInCommon() {
+    CoEnrollmentRecommender recommender = loaded(Set.of(
+        pair(1, 10), pair(1, 20), pair(1, 30),
+        pair(2, 10), pair(2, 20),
+        pair(3, 10), pair(3, 30), pair(3, 40),
+        pair(4, 10), pair(4, 20)));
+
+    assertThat(recommender.findRecommendations(10, CoEnrollmentRecommender.TOP_K)).containsExactly(
+        new CourseRecommendationResource(20, 3),
+        new CourseRecommendationResource(30, 2),
+        new CourseRecommendationResource(40, 1));
+    assertThat(recommender.findRecommendations(10, 1)).containsExactly(new CourseRecommendationResource(20, 3));
+    assertThat(recommender.findRecommendations(99, 5)).isEmpty();
+  }
+
+  @Test
+  void testLoad_whenEnrollmentsSpanManyPartitions_shouldMatchBruteForce() {
+    Random random = new Random(42);
+    Set<Long> pairs = new HashSet<>();
+    for (int student = 1; student <= 20_000; student++) {
+      for (int i = 0; i < 1 + random.nextInt(5); i++) {
+        pairs.add(pair(student, 1 + random.nextInt(COURSES)));
+      }
+    }
+
+    CoEnrollmentRecommender recommender = loaded(pairs);
+
+    assertMatchesBruteForce(recommender, pairs);
+  }
+
+  @Test
+  void testOnEnrollment_whenCreatesAndDeletesFollowLoad_shouldMatchBruteForce() {
+    Random random = new Random(7);
+    Set<Long> pairs = new HashSet<>();
+    for (int student = 1; student <= 500; student++) {
+      pairs.add(pair(student, 1 + random.nextInt(COURSES)));
+    }
+    CoEnrollmentRecommender recommender = loaded(pairs);
+
+    for (int i = 0; i < 20_000; i++) {
+      long pair = pair(1 + random.nextInt(500), 1 + random.nextInt(COURSES));
+      boolean create = random.nextInt(3) > 0;
+      EnrollmentEvent event = create
+          ? EnrollmentEvent.created(pair >>> 32, pair & 0xFFFF_FFFFL, LocalDateTime.now())
+          : EnrollmentEvent.deleted(pair >>> 32, pair & 0xFFFF_FFFFL, LocalDateTime.now());
+      // repeated creates and deletes of absent pairs must be harmless, like replayed events
+      recommender.onEnrollment(event);
+      if (create) {
+        pairs.add(pair);
+      } else {
+        pairs.remove(pair);
+      }
+    }
+
+    assertMatchesBruteForce(recommender, pairs);
+  }
+
+  @Test
+  void testOnEnrollment_whenStillLoading_shouldReplayEventsAfterLoad() {
+    when(enrollmentRepository.streamAll()).thenReturn(Stream.of(enrollment(pair(1, 10))));
+    CoEnrollmentRecommender recommender = new CoEnrollmentRecommender(enrollmentRepository);
+
+    recommender.onEnrollment(EnrollmentEvent.created(1, 20, LocalDateTime.now()));
+    assertThat(recommender.isLoaded()).isFalse();
+    recommender.load();
+
+    assertThat(recommender.isLoaded()).isTrue();
+    assertThat(recommender.findRecommendations(20, 5)).containsExactly(new CourseRecommendationResource(10, 1));
+  }
+
+  private CoEnrollmentRecommender loaded(Set<Long> pairs) {
+    when(enrollmentRepository.streamAll()).thenReturn(pairs.stream().map(CoEnrollmentRecommenderUnitTest::enrollment));
+    CoEnrollmentRecommender recommender = new CoEnrollmentRecommender(enrollmentRepository);
+    recommender.load();
+    return recommender;
+  }
+
+  private static void assertMatchesBruteForce(CoEnrollmentRecommender recommender, Set<Long> pairs) {
+    Map<Long, List<Long>> coursesByStudent = pairs.stream()
+        .collect(Collectors.groupingBy(pair -> pair >>> 32, Collectors.mapping(pair -> pair & 0xFFFF_FFFFL,
+            Collectors.toList())));
+    Map<Long, Map<Long, Integer>> counts = new HashMap<>();
+    for (List<Long> courses : coursesByStudent.values()) {
+      for (long course : courses) {
+        for (long other : courses) {
+          if (course != other) {
+            counts.computeIfAbsent(course, c -> new HashMap<>()).merge(other, 1, Integer::sum);
+          }
+        }
+      }
+    }
+
+    for (long course = 1; course <= COURSES; course++) {
+      List<CourseRecommendationResource> expected = new ArrayList<>();
+      counts.getOrDefault(course, Map.of())
+          .forEach((other, count) -> expected.add(new CourseRecommendationResource(other, count)));
+      expected.sort(Comparator.comparingInt(CourseRecommendationResource::getSharedStudents).reversed()
+          .thenComparingLong(CourseRecommendationResource::getCourseId));
+
+      assertThat(recommender.findRecommendations(course, CoEnrollmentRecommender.TOP_K))
+          .as("course %d", course)
+          .containsExactlyElementsOf(expected.subList(0, Math.min(CoEnrollmentRecommender.TOP_K, expected.size())));
+    }
+  }
+
+  private static long pair(long studentId, long courseId) {
+    return studentId << 32 | courseId;
+  }
+
+  private static EnrollmentResource enrollment(long pair) {
+    return new EnrollmentResource(pair >>> 32, pair & 0xFFFF_FFFFL, LocalDateTime.now());
+  }
+
+}
@@ -0,0 +1,167 @@
+package nl.nn.workshop.repository.memory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import nl.nn.workshop.changes.ChangeLog;
+import nl.nn.workshop.model.Change;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.EnrollmentPk;
+import nl.nn.workshop.model.Student;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+
+public class InMemoryDatabaseUnitTest {
+
+  private static final Duration NEVER = Duration.ofDays(1);
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void testDurable_whenReopenedWithoutSnapshot_shouldReplayLog() throws IOException {
+    InMemoryDatabase database = InMemoryDatabase.durable(directory, NEVER);
+    long studentId = saveStudent(database, "Ada");
+    long courseId = saveCourse(database, "Algebra");
+    new InMemoryEnrollmentRepository(database).insertIfAbsent(studentId, courseId, LocalDateTime.now());
+    new InMemoryStudentRepository(database).deleteById(saveStudent(database, "Bob"));
+    // no close, as if the process died after the last acknowledged write
+
+    InMemoryDatabase reopened = InMemoryDatabase.durable(directory, NEVER);
+
+    assertThat(new InMemoryStudentRepository(reopened).findAll()).extracting(Student::getName).containsExactly("Ada");
+    assertThat(new InMemoryEnrollmentRepository(reopened).existsById(new EnrollmentPk(studentId, courseId)))
+        .isTrue();
+    reopened.close();
+  }
+
+  @Test
+  void testDurable_whenSnapshotFollowedByWrites_shouldRecoverSnapshotAndLogTail() throws IOException {
+    InMemoryDatabase database = InMemoryDatabase.durable(directory, NEVER);
+    saveStudent(database, "Ada");
+    database.snapshot();
+    saveStudent(database, "Bob");
+
+    InMemoryDatabase reopened = InMemoryDatabase.durable(directory, NEVER);
+
+    assertThat(new InMemoryStudentRepository(reopened).findAll())
+        .extracting(Student::getName).containsExactly("Ada", "Bob");
+    assertThat(WriteAheadLog.segments(directory)).hasSize(2);
+    reopened.close();
+  }
+
+  @Test
+  void testDurable_whenClosed_shouldLeaveNothingToReplay() throws IOException {
+    InMemoryDatabase database = InMemoryDatabase.durable(directory, NEVER);
+    saveStudent(database, "Ada");
+    database.close();
+
+    InMemoryDatabase reopened = InMemoryDatabase.durable(directory, NEVER);
+
+    assertThat(new InMemoryStudentRepository(reopened).count()).isEqualTo(1);
+    for (Path segment : WriteAheadLog.segments(directory)) {
+      assertThat(Files.size(segment)).isZero();
+    }
+    reopened.close();
+  }
+
+  @Test
+  void testDurable_whenLogTailIsTorn_shouldRecoverUpToLastCompleteRecord() throws IOException {
+    InMemoryDatabase database = InMemoryDatabase.durable(directory, NEVER);
+    saveStudent(database, "Ada");
+    saveStudent(database, "Bob");
+    Path segment = WriteAheadLog.segments(directory).get(0);
+    try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      file.truncate(file.size() - 3);
+    }
+
+    InMemoryDatabase reopened = InMemoryDatabase.durable(directory, NEVER);
+    long next = saveStudent(reopened, "Cid");
+    InMemoryDatabase again = InMemoryDatabase.durable(directory, NEVER);
+
+    assertThat(new InMemoryStudentRepository(again).findAll())
+        .extracting(Student::getName).containsExactly("Ada", "Cid");
+    assertThat(next).isEqualTo(2);
+    again.close();
+  }
+
+  @Test
+  void testDurable_whenRowsWereDeleted_shouldNotReuseTheirIds() throws IOException {
+    InMemoryDatabase database = InMemoryDatabase.durable(directory, NEVER);
+    long first = saveCourse(database, "Algebra");
+    new InMemoryCourseRepository(database).deleteById(first);
+    database.snapshot();
+
+    InMemoryDatabase reopened = InMemoryDatabase.durable(directory, NEVER);
+
+    assertThat(saveCourse(reopened, "Biology")).isEqualTo(first + 1);
+    reopened.close();
+  }
+
+  @Test
+  void testDurable_whenChangesSavedAndPruned_shouldRecoverTheRestAndKeepNumbering() throws IOException {
+    InMemoryDatabase database = InMemoryDatabase.durable(directory, NEVER);
+    InMemoryChangeRepository changes = new InMemoryChangeRepository(database);
+    LocalDateTime enrollmentDate = LocalDateTime.of(2021, 9, 1, 8, 30);
+    LocalDateTime changedAt = LocalDateTime.of(2021, 9, 2, 10, 0);
+    long first = changes.nextNumber() * ChangeLog.CHANGES_PER_NUMBER;
+    changes.saveAll(List.of(change(first, ChangeLog.Entity.STUDENT, 1, 0, ChangeLog.Type.SAVED, null, changedAt),
+        change(first + 1, ChangeLog.Entity.ENROLLMENT, 1, 2, ChangeLog.Type.SAVED, enrollmentDate, changedAt)));
+    database.snapshot();
+    long second = changes.nextNumber() * ChangeLog.CHANGES_PER_NUMBER;
+    changes.saveAll(List.of(
+        change(second, ChangeLog.Entity.STUDENT, 1, 0, ChangeLog.Type.DELETED, null, changedAt.plusSeconds(1))));
+    assertThat(changes.deleteSuperseded(changedAt.plusSeconds(1))).isEqualTo(1);
+    database.clear();
+
+    InMemoryDatabase reopened = InMemoryDatabase.durable(directory, NEVER);
+
+    InMemoryChangeRepository recovered = new InMemoryChangeRepository(reopened);
+    assertThat(recovered.findAfter(0, Long.MAX_VALUE, Pageable.unpaged()))
+        .extracting(Change::getSequence, Change::getEntity, Change::getType, Change::getEnrollmentDate)
+        .containsExactly(
+            tuple(first + 1, ChangeLog.Entity.ENROLLMENT, ChangeLog.Type.SAVED, enrollmentDate),
+            tuple(second, ChangeLog.Entity.STUDENT, ChangeLog.Type.DELETED, null));
+    assertThat(recovered.findLatest(Pageable.unpaged()).get(0).getChangedAt()).isEqualTo(changedAt.plusSeconds(1));
+    assertThat(recovered.nextNumber() * ChangeLog.CHANGES_PER_NUMBER).isGreaterThan(second);
+    reopened.close();
+  }
+
+  private static Change change(long sequence, ChangeLog.Entity entity, long id, long courseId, ChangeLog.Type type,
+      LocalDateTime enrollmentDate, LocalDateTime changedAt) {
+    Change change = new Change();
+    change.setSequence(sequence);
+    change.setEntity(entity);
+    change.setRowId(id);
+    change.setCourseId(courseId);
+    change.setType(type);
+    change.setEnrollmentDate(enrollmentDate);
+    change.setChangedAt(changedAt);
+    return change;
+  }
+
+  private static long saveStudent(InMemoryDatabase database, String name) {
+    Student student = new Student();
+    student.setName(name);
+    student.setBirthday(LocalDate.of(2000, 1, 1));
+    return new InMemoryStudentRepository(database).save(student).getId();
+  }
+
+  private static long saveCourse(InMemoryDatabase database, String name) {
+    Course course = new Course();
+    course.setName(name);
+    course.setAvailable(true);
+    return new InMemoryCourseRepository(database).save(course).getId();
+  }
+
+}
@@ -0,0 +1,82 @@
+package nl.nn.workshop.repository.memory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+public class LongTableUnitTest {
+
+  @Test
+  void testPutAndRemove_whenKeysCollide_shouldMatchSortedMap() {
+    LongTable<String> table = new LongTable<>();
+    TreeMap<Long, String> expected = new TreeMap<>();
+    Random random = new Random(42);
+
+    // a small key space forces long probe runs and deletions from the middle of them
+    for (int i = 0; i < 200_000; i++) {
+      long key = 1 + random.nextInt(2_000);
+      if (random.nextInt(3) == 0) {
+        assertThat(table.remove(key)).isEqualTo(expected.remove(key));
+      } else {
+        assertThat(table.put(key, "v" + i)).isEqualTo(expected.put(key, "v" + i));
+      }
+    }
+
+    assertThat(table.size()).isEqualTo(expected.size());
+    int index = 0;
+    for (Map.Entry<Long, String> entry : expected.entrySet()) {
+      assertThat(table.keyAt(index)).isEqualTo(entry.getKey());
+      assertThat(table.valueAt(index)).isEqualTo(entry.getValue());
+      assertThat(table.containsKey(entry.getKey())).isTrue();
+      index++;
+    }
+  }
+
+  @Test
+  void testPutAndRemove_whenKeysSpanManyChunks_shouldMatchSortedMap() {
+    LongTable<String> table = new LongTable<>();
+    TreeMap<Long, String> expected = new TreeMap<>();
+    Random random = new Random(7);
+
+    // ascending ids fill whole chunks, random ones split them and removes merge them again
+    for (long key = 1; key <= 20_000; key++) {
+      table.put(key * 4, "a" + key);
+      expected.put(key * 4, "a" + key);
+    }
+    for (int i = 0; i < 200_000; i++) {
+      long key = 1 + random.nextInt(100_000);
+      if (random.nextInt(2) == 0) {
+        assertThat(table.remove(key)).isEqualTo(expected.remove(key));
+      } else {
+        assertThat(table.put(key, "v" + i)).isEqualTo(expected.put(key, "v" + i));
+      }
+    }
+
+    assertThat(table.size()).isEqualTo(expected.size());
+    int index = 0;
+    for (Map.Entry<Long, String> entry : expected.entrySet()) {
+      assertThat(table.keyAt(index)).isEqualTo(entry.getKey());
+      assertThat(table.valueAt(index)).isEqualTo(entry.getValue());
+      assertThat(table.indexAfter(entry.getKey())).isEqualTo(index + 1);
+      assertThat(table.indexAfter(entry.getKey() - 1)).isEqualTo(index);
+      index++;
+    }
+  }
+
+  @Test
+  void testIndexAfter_whenKeyIsAbsent_shouldReturnPositionOfNextGreaterKey() {
+    LongTable<String> table = new LongTable<>();
+    table.put(10, "a");
+    table.put(30, "c");
+    table.put(20, "b");
+
+    assertThat(table.indexAfter(Long.MIN_VALUE)).isEqualTo(0);
+    assertThat(table.indexAfter(10)).isEqualTo(1);
+    assertThat(table.indexAfter(25)).isEqualTo(2);
+    assertThat(table.indexAfter(30)).isEqualTo(3);
+  }
+
+}
@@ -0,0 +1,97 @@
+package nl.nn.workshop.repository.memory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import nl.nn.workshop.changes.ChangeLog;
+import nl.nn.workshop.model.Change;
+import nl.nn.workshop.model.Course;
+import nl.nn.workshop.model.Enrollment;
+import nl.nn.workshop.model.Student;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SnapshotFileUnitTest {
+
+  // smaller than some of the rows, so rows land on window boundaries and need a window of their own
+  private static final int SMALL_WINDOW = 64;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void testWriteAndRead_whenRowsSpanManyWindows_shouldRoundTripTheSameBytes() throws IOException {
+    SnapshotFile.Image image = image();
+
+    SnapshotFile.write(directory, image, SMALL_WINDOW);
+    byte[] windowed = Files.readAllBytes(directory.resolve(SnapshotFile.NAME));
+    SnapshotFile.Image read = SnapshotFile.read(directory, SMALL_WINDOW);
+    SnapshotFile.write(directory, image);
+
+    assertThat(Files.readAllBytes(directory.resolve(SnapshotFile.NAME))).isEqualTo(windowed);
+    assertThat(read.generation).isEqualTo(3L);
+    assertThat(read.studentSequence).isEqualTo(200L);
+    assertThat(read.courseSequence).isEqualTo(100L);
+    assertThat(read.students).usingRecursiveFieldByFieldElementComparator().isEqualTo(image.students);
+    assertThat(read.courses).usingRecursiveFieldByFieldElementComparator().isEqualTo(image.courses);
+    assertThat(read.enrollments).usingRecursiveFieldByFieldElementComparator().isEqualTo(image.enrollments);
+    assertThat(read.changes).usingRecursiveFieldByFieldElementComparator().isEqualTo(image.changes);
+  }
+
+  @Test
+  void testRead_whenAByteIsFlipped_shouldRejectTheSnapshot() throws IOException {
+    SnapshotFile.write(directory, image(), SMALL_WINDOW);
+    Path path = directory.resolve(SnapshotFile.NAME);
+    byte[] bytes = Files.readAllBytes(path);
+    bytes[bytes.length / 2] ^= 1;
+    Files.write(path, bytes);
+
+    assertThatThrownBy(() -> SnapshotFile.read(directory, SMALL_WINDOW)).isInstanceOf(IOException.class);
+  }
+
+  private static SnapshotFile.Image image() {
+    List<Student> students = new ArrayList<>();
+    List<Course> courses = new ArrayList<>();
+    List<Enrollment> enrollments = new ArrayList<>();
+    List<Change> changes = new ArrayList<>();
+    for (int i = 1; i <= 20; i++) {
+      Student student = new Student();
+      student.setId((long) i);
+      student.setName(i % 5 == 0 ? "Ada Lovelace ".repeat(i) : i % 7 == 0 ? null : "Student " + i);
+      student.setBirthday(i % 3 == 0 ? null : LocalDate.of(2000, 1, i));
+      students.add(student);
+
+      Course course = new Course();
+      course.setId((long) i);
+      course.setName("Course " + "x".repeat(i * 4));
+      course.setAvailable(i % 2 == 0);
+      course.setCapacity(i % 4 == 0 ? null : i);
+      courses.add(course);
+
+      Enrollment enrollment = new Enrollment();
+      enrollment.setStudentId((long) i);
+      enrollment.setCourseId((long) 21 - i);
+      enrollment.setEnrollmentDate(LocalDateTime.of(2021, 9, 1, 8, i, 0, i * 1000));
+      enrollments.add(enrollment);
+
+      Change change = new Change();
+      change.setSequence(i * ChangeLog.CHANGES_PER_NUMBER);
+      change.setEntity(ChangeLog.Entity.ENROLLMENT);
+      change.setRowId(i);
+      change.setCourseId(21 - i);
+      change.setType(i % 2 == 0 ? ChangeLog.Type.SAVED : ChangeLog.Type.DELETED);
+      change.setEnrollmentDate(enrollment.getEnrollmentDate());
+      change.setChangedAt(LocalDateTime.of(2021, 9, 1, 9, i));
+      changes.add(change);
+    }
+    return new SnapshotFile.Image(3L, 200L, 100L, students, courses, enrollments, changes);
+  }
+
+}
@@ -0,0 +1,79 @@
+package nl.nn.workshop.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.stream.Stream;
+import nl.nn.workshop.repository.CourseRepository;
+import nl.nn.workshop.repository.StudentRepository;
+import nl.nn.workshop.resource.NameMatchResource;
+import nl.nn.workshop.resource.NameSimilarityResource;
+import nl.nn.workshop.service.EntityEvent;
+import org.junit.jupiter.api.Test;
+
+public class NameSearchUnitTest {
+
+  private final StudentRepository studentRepository = mock(StudentRepository.class);
+  private final CourseRepository courseRepository = mock(CourseRepository.class);
+
+  @Test
+  void testFindStudents_whenPrefixMatches_shouldIgnoreCaseAndAccentsAndOrderByName() {
+    NameSearch search = loaded(
+        name(1, "Marie Curie"), name(2, "Jos\u00e9 Mart\u00ed"), name(3, "jose rizal"), name(4, "Josephine Baker"),
+        name(5, "Jose Rizal"));
+
+    assertThat(search.findStudents("JOSE", 10))
+        .containsExactly(name(2, "Jos\u00e9 Mart\u00ed"), name(3, "jose rizal"), name(5, "Jose Rizal"),
+            name(4, "Josephine Baker"));
+    assertThat(search.findStudents("  jos\u00e9 r", 10)).containsExactly(name(3, "jose rizal"), name(5, "Jose Rizal"));
+    assertThat(search.findStudents("jos", 2)).containsExactly(name(2, "Jos\u00e9 Mart\u00ed"), name(3, "jose rizal"));
+    assertThat(search.findStudents("marie curies", 10)).isEmpty();
+    assertThat(search.findCourses("marie", 10)).isEmpty();
+  }
+
+  @Test
+  void testOnEntity_whenLoaded_shouldFollowRenamesAndDeletes() {
+    NameSearch search = loaded(name(1, "Isaac Newton"), name(2, "Isaac Asimov"));
+
+    search.onEntity(EntityEvent.saved(EntityEvent.Entity.STUDENT, 1, "Gottfried Leibniz"));
+    search.onEntity(EntityEvent.deleted(EntityEvent.Entity.STUDENT, 2));
+    search.onEntity(EntityEvent.saved(EntityEvent.Entity.COURSE, 7, "Isaac's Mechanics"));
+
+    assertThat(search.findStudents("isaac", 10)).isEmpty();
+    assertThat(search.findStudents("g", 10)).containsExactly(name(1, "Gottfried Leibniz"));
+    assertThat(search.findSimilarStudents("leibnitz", 10))
+        .extracting(NameSimilarityResource::getId)
+        .containsExactly(1L);
+    assertThat(search.findSimilarStudents("asimov", 10)).isEmpty();
+    assertThat(search.findCourses("isaac", 10)).containsExactly(name(7, "Isaac's Mechanics"));
+  }
+
+  @Test
+  void testOnEntity_whenStillLoading_shouldReplayOnTopOfTheLoadedNames() {
+    NameSearch search = new NameSearch(studentRepository, courseRepository);
+    when(studentRepository.streamNames()).thenReturn(Stream.of(name(1, "Isaac Newton"), name(2, "Isaac Asimov")));
+    when(courseRepository.streamNames()).thenReturn(Stream.empty());
+
+    search.onEntity(EntityEvent.saved(EntityEvent.Entity.STUDENT, 1, "Isaac Barrow"));
+    search.onEntity(EntityEvent.deleted(EntityEvent.Entity.STUDENT, 2));
+    assertThat(search.isLoaded()).isFalse();
+    search.load();
+
+    assertThat(search.isLoaded()).isTrue();
+    assertThat(search.findStudents("isaac", 10)).containsExactly(name(1, "Isaac Barrow"));
+  }
+
+  private NameSearch loaded(NameMatchResource... students) {
+    when(studentRepository.streamNames()).thenReturn(Stream.of(students));
+    when(courseRepository.streamNames()).thenReturn(Stream.empty());
+    NameSearch search = new NameSearch(studentRepository, courseRepository);
+    search.load();
+    return search;
+  }
+
+  private static NameMatchResource name(long id, String name) {
+    return new NameMatchResource(id, name);
+  }
+
+}
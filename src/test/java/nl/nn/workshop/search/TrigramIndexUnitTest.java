@@ -0,0 +1,61 @@
+package nl.nn.workshop.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nl.nn.workshop.resource.NameSimilarityResource;
+import org.junit.jupiter.api.Test;
+
+public class TrigramIndexUnitTest {
+
+  @Test
+  void testFind_whenQueryIsMisspelledOrAFragment_shouldRankBySharedTrigrams() {
+    TrigramIndex index = index("Isaac Newton", "Isaac Asimov", "Marie Curie", "Newt Scamander");
+
+    // "newtn" shares 4 of its 6 trigrams with both, the shorter name overlaps more
+    assertThat(index.find("Newtn", 10)).containsExactly(
+        match(1, "Isaac Newton", 4.0 / 6), match(4, "Newt Scamander", 4.0 / 6));
+    // "ewt" and "wto" are 2 of 5, Scamander only has "ewt"
+    assertThat(index.find("ewto", 10)).containsExactly(match(1, "Isaac Newton", 2.0 / 5));
+    assertThat(index.find("CURI\u00c9", 10)).containsExactly(match(3, "Marie Curie", 1));
+    // equally similar and just as long, the older id wins
+    assertThat(index.find("isaac", 1)).containsExactly(match(1, "Isaac Newton", 1));
+    assertThat(index.find("xyz", 10)).isEmpty();
+    assertThat(index.find(" -- ", 10)).isEmpty();
+  }
+
+  @Test
+  void testPut_whenNamesAreRenamedOrRemoved_shouldFollowThem() {
+    TrigramIndex index = index("Isaac Newton", "Newt Scamander");
+
+    index.put(1, "Gottfried Leibniz");
+    index.remove(2);
+    index.remove(99);
+
+    assertThat(index.find("newton", 10)).isEmpty();
+    assertThat(index.find("leibnitz", 10)).extracting(NameSimilarityResource::getId).containsExactly(1L);
+  }
+
+  @Test
+  void testPut_whenIdsArriveOutOfOrder_shouldKeepPostingsSorted() {
+    TrigramIndex index = new TrigramIndex();
+    for (long id : new long[] {10, 5, 7, 12, 1, 7}) {
+      index.put(id, "Ada");
+    }
+    index.remove(10);
+
+    assertThat(index.find("ada", 10)).extracting(NameSimilarityResource::getId).containsExactly(1L, 5L, 7L, 12L);
+  }
+
+  private static TrigramIndex index(String... names) {
+    TrigramIndex index = new TrigramIndex();
+    for (int i = 0; i < names.length; i++) {
+      index.put(i + 1, names[i]);
+    }
+    return index;
+  }
+
+  private static NameSimilarityResource match(long id, String name, double similarity) {
+    return new NameSimilarityResource(id, name, similarity);
+  }
+
+}
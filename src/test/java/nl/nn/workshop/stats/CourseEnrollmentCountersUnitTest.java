@@ -0,0 +1,81 @@
+package nl.nn.workshop.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.List;
+import nl.nn.workshop.repository.EnrollmentRepository;
+import nl.nn.workshop.resource.CourseStatsResource;
+import nl.nn.workshop.service.EnrollmentEvent;
+import org.junit.jupiter.api.Test;
+
+public class CourseEnrollmentCountersUnitTest {
+
+  private final EnrollmentRepository enrollmentRepository = mock(EnrollmentRepository.class);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void testOnEnrollment_whenSeeded_shouldCountOnTopOfTheSeed() {
+    CourseEnrollmentCounters counters = loaded(stats(10, 2), stats(20, 0));
+
+    counters.onEnrollment(EnrollmentEvent.created(1, 10, LocalDateTime.now()));
+    counters.onEnrollment(EnrollmentEvent.created(1, 20, LocalDateTime.now()));
+    counters.onEnrollment(EnrollmentEvent.deleted(2, 10, LocalDateTime.now()));
+
+    assertThat(counters.find(10)).isEqualTo(stats(10, 2));
+    assertThat(counters.find(99)).isNull();
+    assertThat(counters.findAll()).containsExactly(stats(10, 2), stats(20, 1));
+  }
+
+  @Test
+  void testReconcile_whenDifferenceIsSeenTwice_shouldCorrectTheCounter() {
+    CourseEnrollmentCounters counters = loaded(stats(10, 2));
+    // an event that never arrived
+    when(enrollmentRepository.countEnrollmentsByCourse()).thenReturn(List.of(stats(10, 3)));
+
+    counters.reconcile();
+    assertThat(counters.find(10)).isEqualTo(stats(10, 2));
+    counters.reconcile();
+
+    assertThat(counters.find(10)).isEqualTo(stats(10, 3));
+    assertThat(meterRegistry.counter("workshop.stats.corrections").count()).isEqualTo(1);
+  }
+
+  @Test
+  void testReconcile_whenDifferenceDisappears_shouldLeaveTheCounter() {
+    CourseEnrollmentCounters counters = loaded(stats(10, 2));
+    // the database already counts an enrollment whose event is still on its way
+    when(enrollmentRepository.countEnrollmentsByCourse()).thenReturn(List.of(stats(10, 3)));
+    counters.reconcile();
+    counters.onEnrollment(EnrollmentEvent.created(1, 10, LocalDateTime.now()));
+    counters.reconcile();
+
+    assertThat(counters.find(10)).isEqualTo(stats(10, 3));
+    assertThat(meterRegistry.counter("workshop.stats.corrections").count()).isZero();
+  }
+
+  @Test
+  void testReconcile_whenCoursesCameAndWent_shouldFollowTheDatabase() {
+    CourseEnrollmentCounters counters = loaded(stats(10, 1), stats(20, 0));
+    when(enrollmentRepository.countEnrollmentsByCourse()).thenReturn(List.of(stats(10, 1), stats(30, 0)));
+
+    counters.reconcile();
+
+    assertThat(counters.findAll()).containsExactly(stats(10, 1), stats(30, 0));
+  }
+
+  private CourseEnrollmentCounters loaded(CourseStatsResource... seed) {
+    when(enrollmentRepository.countEnrollmentsByCourse()).thenReturn(List.of(seed));
+    CourseEnrollmentCounters counters = new CourseEnrollmentCounters(enrollmentRepository, meterRegistry);
+    counters.load();
+    return counters;
+  }
+
+  private static CourseStatsResource stats(long courseId, long enrollments) {
+    return new CourseStatsResource(courseId, enrollments);
+  }
+
+}